@@ -0,0 +1,170 @@
+package benchmark;
+
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import service.AggregatingLiveOrderService;
+import service.EventLoopLiveOrderService;
+import service.InMemoryLiveOrderService;
+import service.LiveOrderService;
+import service.MatchingLiveOrderService;
+import service.OffHeapLiveOrderService;
+import service.PriceLadderLiveOrderService;
+import service.ShardedLiveOrderService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * Throughput of the LiveOrderService hot paths against a pre-filled book.
+ * <p>
+ * The book size stays constant while writing: {@link #replaceOrder} registers a new order and cancels a random
+ * resting one. Each side has priceLevels levels and the sides do not overlap. Thread count is set with
+ * {@code -t}, e.g.
+ * {@code java -jar target/benchmarks.jar LiveOrderServiceBenchmark -t 8 -p implementation=aggregating}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LiveOrderServiceBenchmark {
+
+    private static final int LOWEST_PRICE = 1000;
+
+    @Param({"inMemory", "aggregating", "priceLadder", "sharded", "eventLoop", "matching", "offHeap"})
+    public String implementation;
+
+    @Param({"1000", "100000", "1000000"})
+    public int bookSize;
+
+    @Param({"10", "1000"})
+    public int priceLevels;
+
+    private LiveOrderService liveOrderService;
+    /**
+     * OrderRefs of the resting orders, swapped atomically so each resting order is canceled exactly once
+     */
+    private AtomicReferenceArray<String> orderRefs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        liveOrderService = create(implementation);
+        orderRefs = new AtomicReferenceArray<>(bookSize);
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < bookSize; i++) {
+            orderRefs.set(i, register(random).getOrderRef());
+        }
+    }
+
+    /**
+     * Stop the event loop of services that run one, each trial would otherwise leave its thread running
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (liveOrderService instanceof Closeable) {
+            ((Closeable) liveOrderService).close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    public Order replaceOrder(ThreadState threadState) {
+        Order order = register(threadState.random);
+        String canceledOrderRef = orderRefs.getAndSet(threadState.random.nextInt(bookSize), order.getOrderRef());
+        return liveOrderService.cancelOrder(canceledOrderRef);
+    }
+
+    @Benchmark
+    public Order getOrder(ThreadState threadState) {
+        return liveOrderService.getOrder(orderRefs.get(threadState.random.nextInt(bookSize)));
+    }
+
+    @Benchmark
+    public List<OrderSummary> buySummary() {
+        return liveOrderService.buySummary();
+    }
+
+    @Benchmark
+    public List<OrderSummary> sellSummary() {
+        return liveOrderService.sellSummary();
+    }
+
+    @Benchmark
+    public List<OrderSummary> buySummaryTop10() {
+        return liveOrderService.buySummary(10);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Order mixedWriter(ThreadState threadState) {
+        return replaceOrder(threadState);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public List<OrderSummary> mixedReader(ThreadState threadState) {
+        return threadState.random.nextBoolean() ? liveOrderService.buySummary() : liveOrderService.sellSummary();
+    }
+
+    /**
+     * Buys rest below the sells so no order crosses, the matching implementation would otherwise fill away the
+     * resting orders the benchmarks look up and cancel
+     */
+    private Order register(SplittableRandom random) {
+        BuySell buySell = random.nextBoolean() ? BUY : SELL;
+        int price = LOWEST_PRICE + random.nextInt(priceLevels) + (buySell == SELL ? priceLevels : 0);
+        return liveOrderService.registerOrder("user" + random.nextInt(1000), 1 + random.nextInt(100) / 10.0,
+                price, buySell);
+    }
+
+    static LiveOrderService create(String implementation) {
+        switch (implementation) {
+            case "inMemory":
+                return new InMemoryLiveOrderService();
+            case "aggregating":
+                return new AggregatingLiveOrderService();
+            case "priceLadder":
+                return new PriceLadderLiveOrderService();
+            case "sharded":
+                return new ShardedLiveOrderService();
+            case "eventLoop":
+                return new EventLoopLiveOrderService();
+            case "matching":
+                return new MatchingLiveOrderService();
+            case "offHeap":
+                return new OffHeapLiveOrderService();
+            default:
+                throw new IllegalArgumentException(String.format("Implementation=%s not known", implementation));
+        }
+    }
+}
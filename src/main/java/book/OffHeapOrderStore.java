@@ -0,0 +1,408 @@
+package book;
+
+import model.BuySell;
+import model.Order;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * Orders held in fixed width slots of direct memory, so a resting order costs no objects on the heap.
+ * <p>
+ * A slot holds the quantity in {@link model.QuantityScale} units, price and side of an order, the UTF-8 bytes of
+ * its orderRef and the code of its userId, userIds being interned in a dictionary since a user has many orders.
+ * The indexes live in the slots too: a hash table from orderRef to slot chained through the slots, and a doubly
+ * linked list of each user's slots. Slots are allocated a chunk at a time and reused through a free list, and an
+ * {@link Order} is only materialized when an order is read.
+ * <p>
+ * Slot 0 is never used so 0 means no slot. Not thread safe, callers must guard access.
+ */
+public final class OffHeapOrderStore {
+
+    /**
+     * Long enough for UUID orderRefs
+     */
+    public static final int DEFAULT_MAX_ORDER_REF_LENGTH = 36;
+    public static final int MAX_ORDER_REF_LENGTH = 0xFF;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SLOTS = 1 << CHUNK_SHIFT;
+    private static final int INITIAL_BUCKETS = 1 << 12;
+    /**
+     * Largest bucket table whose 4 byte buckets still fit a ByteBuffer
+     */
+    private static final int MAX_BUCKETS = 1 << 28;
+
+    /**
+     * Slot layout, NEXT links the hash chain of a used slot and the free list of a free one
+     */
+    private static final int NEXT = 0;
+    private static final int USER_CODE = 4;
+    private static final int QUANTITY = 8;
+    private static final int USER_PREVIOUS = 16;
+    private static final int USER_NEXT = 20;
+    private static final int PRICE = 24;
+    private static final int SIDE = 28;
+    /**
+     * 0 for a free slot, orderRefs are never empty
+     */
+    private static final int ORDER_REF_LENGTH = 29;
+    private static final int ORDER_REF = 30;
+
+    private final int maxOrderRefLength;
+    private final int slotWidth;
+    private ByteBuffer[] chunks = new ByteBuffer[1];
+    private int chunkCount;
+    /**
+     * First slot of each hash chain
+     */
+    private ByteBuffer buckets;
+    private int bucketMask;
+    private int highWater = 1;
+    private int freeSlot;
+    private int size;
+
+    private final Map<String, Integer> userCodes = new HashMap<>();
+    private String[] userIds = new String[16];
+    /**
+     * First slot of each user's list, 0 once the user has no orders and its code is free
+     */
+    private int[] userHeads = new int[16];
+    private int[] freeUserCodes = new int[16];
+    private int freeUserCodeCount;
+    private int nextUserCode;
+
+    public OffHeapOrderStore() {
+        this(DEFAULT_MAX_ORDER_REF_LENGTH);
+    }
+
+    /**
+     * @param maxOrderRefLength the longest orderRef in UTF-8 bytes, sizes every slot
+     */
+    public OffHeapOrderStore(int maxOrderRefLength) {
+        if (maxOrderRefLength <= 0 || maxOrderRefLength > MAX_ORDER_REF_LENGTH) {
+            throw new IllegalArgumentException(String.format("MaxOrderRefLength=%s not allowed", maxOrderRefLength));
+        }
+        this.maxOrderRefLength = maxOrderRefLength;
+        this.slotWidth = (ORDER_REF + maxOrderRefLength + 7) & ~7;
+        this.buckets = ByteBuffer.allocateDirect(INITIAL_BUCKETS * 4);
+        this.bucketMask = INITIAL_BUCKETS - 1;
+    }
+
+    /**
+     * Store an order, replacing any order with the same orderRef
+     *
+     * @throws IllegalArgumentException if the orderRef is longer than the slots allow
+     */
+    public void put(Order order) {
+        byte[] orderRef = toBytes(order.getOrderRef());
+        int hash = hash(orderRef, orderRef.length);
+        int existing = find(orderRef, hash);
+        if (existing != 0) {
+            release(existing, hash);
+        }
+        int slot = allocate();
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + QUANTITY, order.getQuantityUnits());
+        chunk.putInt(offset + PRICE, order.getPrice());
+        chunk.put(offset + SIDE, (byte) order.getBuySell().ordinal());
+        chunk.put(offset + ORDER_REF_LENGTH, (byte) orderRef.length);
+        for (int i = 0; i < orderRef.length; i++) {
+            chunk.put(offset + ORDER_REF + i, orderRef[i]);
+        }
+        link(slot, hash);
+        linkUser(slot, order.getUserId());
+        if (++size > (bucketMask + 1) - ((bucketMask + 1) >>> 2) && bucketMask + 1 < MAX_BUCKETS) {
+            rehash((bucketMask + 1) << 1);
+        }
+    }
+
+    /**
+     * @return the order, null if there is none for the orderRef
+     */
+    public Order get(String orderRef) {
+        byte[] bytes = toBytesOrNull(orderRef);
+        if (bytes == null) {
+            return null;
+        }
+        int slot = find(bytes, hash(bytes, bytes.length));
+        return slot == 0 ? null : materialize(slot, orderRef);
+    }
+
+    /**
+     * @return the removed order, null if there is none for the orderRef
+     */
+    public Order remove(String orderRef) {
+        byte[] bytes = toBytesOrNull(orderRef);
+        if (bytes == null) {
+            return null;
+        }
+        int hash = hash(bytes, bytes.length);
+        int slot = find(bytes, hash);
+        if (slot == 0) {
+            return null;
+        }
+        Order order = materialize(slot, orderRef);
+        release(slot, hash);
+        return order;
+    }
+
+    /**
+     * Change the quantity and price of an order in its slot, the userId and side are kept
+     *
+     * @return the order before the change, null if there is none for the orderRef
+     */
+    public Order replace(Order order) {
+        byte[] bytes = toBytesOrNull(order.getOrderRef());
+        if (bytes == null) {
+            return null;
+        }
+        int slot = find(bytes, hash(bytes, bytes.length));
+        if (slot == 0) {
+            return null;
+        }
+        Order previous = materialize(slot, order.getOrderRef());
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + QUANTITY, order.getQuantityUnits());
+        chunk.putInt(offset + PRICE, order.getPrice());
+        return previous;
+    }
+
+    /**
+     * Add the orders of one side to out
+     */
+    public void orders(BuySell buySell, List<Order> out) {
+        byte side = (byte) buySell.ordinal();
+        for (int slot = 1; slot < highWater; slot++) {
+            ByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            if (chunk.get(offset + ORDER_REF_LENGTH) != 0 && chunk.get(offset + SIDE) == side) {
+                out.add(materialize(slot, null));
+            }
+        }
+    }
+
+    /**
+     * Add the orders of one user to out
+     */
+    public void ordersForUser(String userId, List<Order> out) {
+        Integer userCode = userCodes.get(userId);
+        if (userCode != null) {
+            for (int slot = userHeads[userCode]; slot != 0; slot = chunk(slot).getInt(offset(slot) + USER_NEXT)) {
+                out.add(materialize(slot, null));
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the direct memory held for slots and the orderRef index, in bytes
+     */
+    public long offHeapBytes() {
+        return (long) chunkCount * CHUNK_SLOTS * slotWidth + buckets.capacity();
+    }
+
+    private Order materialize(int slot, String orderRef) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        if (orderRef == null) {
+            byte[] bytes = new byte[chunk.get(offset + ORDER_REF_LENGTH) & 0xFF];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = chunk.get(offset + ORDER_REF + i);
+            }
+            orderRef = new String(bytes, UTF_8);
+        }
+        return Order.ofQuantityUnits(orderRef, userIds[chunk.getInt(offset + USER_CODE)],
+                chunk.getLong(offset + QUANTITY), chunk.getInt(offset + PRICE),
+                chunk.get(offset + SIDE) == BUY.ordinal() ? BUY : SELL);
+    }
+
+    private int find(byte[] orderRef, int hash) {
+        int slot = buckets.getInt((hash & bucketMask) << 2);
+        while (slot != 0 && !matches(slot, orderRef)) {
+            slot = chunk(slot).getInt(offset(slot) + NEXT);
+        }
+        return slot;
+    }
+
+    private boolean matches(int slot, byte[] orderRef) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        if ((chunk.get(offset + ORDER_REF_LENGTH) & 0xFF) != orderRef.length) {
+            return false;
+        }
+        for (int i = 0; i < orderRef.length; i++) {
+            if (chunk.get(offset + ORDER_REF + i) != orderRef[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void link(int slot, int hash) {
+        int bucket = (hash & bucketMask) << 2;
+        chunk(slot).putInt(offset(slot) + NEXT, buckets.getInt(bucket));
+        buckets.putInt(bucket, slot);
+    }
+
+    /**
+     * Take a used slot off its hash chain and its user's list and put it on the free list
+     */
+    private void release(int slot, int hash) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        int next = chunk.getInt(offset + NEXT);
+        int bucket = (hash & bucketMask) << 2;
+        int previous = buckets.getInt(bucket);
+        if (previous == slot) {
+            buckets.putInt(bucket, next);
+        } else {
+            int previousNext;
+            while ((previousNext = chunk(previous).getInt(offset(previous) + NEXT)) != slot) {
+                previous = previousNext;
+            }
+            chunk(previous).putInt(offset(previous) + NEXT, next);
+        }
+        unlinkUser(slot);
+        chunk.put(offset + ORDER_REF_LENGTH, (byte) 0);
+        chunk.putInt(offset + NEXT, freeSlot);
+        freeSlot = slot;
+        size--;
+    }
+
+    private int allocate() {
+        if (freeSlot != 0) {
+            int slot = freeSlot;
+            freeSlot = chunk(slot).getInt(offset(slot) + NEXT);
+            return slot;
+        }
+        if (highWater == Integer.MAX_VALUE) {
+            throw new IllegalStateException("OffHeapOrderStore is full");
+        }
+        if (highWater >>> CHUNK_SHIFT == chunkCount) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            chunks[chunkCount++] = ByteBuffer.allocateDirect(CHUNK_SLOTS * slotWidth);
+        }
+        return highWater++;
+    }
+
+    private void rehash(int bucketCount) {
+        buckets = ByteBuffer.allocateDirect(bucketCount * 4);
+        bucketMask = bucketCount - 1;
+        byte[] orderRef = new byte[maxOrderRefLength];
+        for (int slot = 1; slot < highWater; slot++) {
+            ByteBuffer chunk = chunk(slot);
+            int offset = offset(slot);
+            int length = chunk.get(offset + ORDER_REF_LENGTH) & 0xFF;
+            if (length != 0) {
+                for (int i = 0; i < length; i++) {
+                    orderRef[i] = chunk.get(offset + ORDER_REF + i);
+                }
+                link(slot, hash(orderRef, length));
+            }
+        }
+    }
+
+    private void linkUser(int slot, String userId) {
+        Integer code = userCodes.get(userId);
+        int userCode;
+        if (code == null) {
+            userCode = freeUserCodeCount > 0 ? freeUserCodes[--freeUserCodeCount] : newUserCode();
+            userCodes.put(userId, userCode);
+            userIds[userCode] = userId;
+        } else {
+            userCode = code;
+        }
+        int head = userHeads[userCode];
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putInt(offset + USER_CODE, userCode);
+        chunk.putInt(offset + USER_PREVIOUS, 0);
+        chunk.putInt(offset + USER_NEXT, head);
+        if (head != 0) {
+            chunk(head).putInt(offset(head) + USER_PREVIOUS, slot);
+        }
+        userHeads[userCode] = slot;
+    }
+
+    /**
+     * Take a slot off its user's list, freeing the user's code once it has no orders left
+     */
+    private void unlinkUser(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        int userCode = chunk.getInt(offset + USER_CODE);
+        int previous = chunk.getInt(offset + USER_PREVIOUS);
+        int next = chunk.getInt(offset + USER_NEXT);
+        if (previous == 0) {
+            userHeads[userCode] = next;
+        } else {
+            chunk(previous).putInt(offset(previous) + USER_NEXT, next);
+        }
+        if (next != 0) {
+            chunk(next).putInt(offset(next) + USER_PREVIOUS, previous);
+        }
+        if (userHeads[userCode] == 0) {
+            userCodes.remove(userIds[userCode]);
+            userIds[userCode] = null;
+            if (freeUserCodeCount == freeUserCodes.length) {
+                freeUserCodes = Arrays.copyOf(freeUserCodes, freeUserCodeCount * 2);
+            }
+            freeUserCodes[freeUserCodeCount++] = userCode;
+        }
+    }
+
+    private int newUserCode() {
+        if (nextUserCode == userIds.length) {
+            userIds = Arrays.copyOf(userIds, nextUserCode * 2);
+            userHeads = Arrays.copyOf(userHeads, nextUserCode * 2);
+        }
+        return nextUserCode++;
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks[slot >>> CHUNK_SHIFT];
+    }
+
+    private int offset(int slot) {
+        return (slot & (CHUNK_SLOTS - 1)) * slotWidth;
+    }
+
+    private byte[] toBytes(String orderRef) {
+        byte[] bytes = orderRef.getBytes(UTF_8);
+        if (bytes.length == 0 || bytes.length > maxOrderRefLength) {
+            throw new IllegalArgumentException(String.format("OrderRef=%s not allowed", orderRef));
+        }
+        return bytes;
+    }
+
+    /**
+     * @return null for an orderRef too long to be stored
+     */
+    private byte[] toBytesOrNull(String orderRef) {
+        byte[] bytes = orderRef.getBytes(UTF_8);
+        return bytes.length > maxOrderRefLength ? null : bytes;
+    }
+
+    private static int hash(byte[] bytes, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+}
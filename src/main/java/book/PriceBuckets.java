@@ -0,0 +1,83 @@
+package book;
+
+import model.BuySell;
+
+import java.util.Arrays;
+
+import static validate.InputValidator.validateBucketSize;
+
+/**
+ * Price levels of one side aggregated into fixed width price buckets, at several bucket sizes at once, kept up to
+ * date with every change to the exact levels so a coarse summary costs no more to read than an exact one.
+ * <p>
+ * A bucket of size n holds the prices above a multiple of n up to and including the next multiple, and is labelled
+ * with that highest price, so bucket prices are positive like order prices. A bucket whose highest price would
+ * overflow an int is labelled {@link Integer#MAX_VALUE}. Each bucket size keeps a {@link PriceLadder} keyed by
+ * bucket price, best bucket first.
+ * <p>
+ * Not thread safe, callers must guard access.
+ */
+public final class PriceBuckets {
+
+    private final int[] bucketSizes;
+    private final PriceLadder[] ladders;
+
+    /**
+     * @param bucketSizes the bucket sizes to maintain, duplicates are ignored
+     */
+    public PriceBuckets(BuySell buySell, int... bucketSizes) {
+        this.bucketSizes = Arrays.stream(bucketSizes).distinct().toArray();
+        this.ladders = new PriceLadder[this.bucketSizes.length];
+        for (int i = 0; i < this.bucketSizes.length; i++) {
+            validateBucketSize(this.bucketSizes[i]);
+            ladders[i] = new PriceLadder(buySell);
+        }
+    }
+
+    /**
+     * @return the bucket price of a price, the highest price of its bucket
+     */
+    public static int bucketPrice(int price, int bucketSize) {
+        long bucketPrice = ((long) price + bucketSize - 1) / bucketSize * bucketSize;
+        return (int) Math.min(bucketPrice, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Add one order's quantity to its bucket at every size
+     */
+    public void add(int price, long quantity) {
+        for (int i = 0; i < ladders.length; i++) {
+            ladders[i].add(bucketPrice(price, bucketSizes[i]), quantity);
+        }
+    }
+
+    /**
+     * Remove one order's quantity from its bucket at every size
+     */
+    public void remove(int price, long quantity) {
+        for (int i = 0; i < ladders.length; i++) {
+            ladders[i].remove(bucketPrice(price, bucketSizes[i]), quantity);
+        }
+    }
+
+    /**
+     * Change the quantity of one order in place, its bucket keeps its order count
+     */
+    public void adjust(int price, long quantityChange) {
+        for (int i = 0; i < ladders.length; i++) {
+            ladders[i].adjust(bucketPrice(price, bucketSizes[i]), quantityChange);
+        }
+    }
+
+    /**
+     * @return the buckets of one size, null if that size is not maintained
+     */
+    public PriceLadder ladder(int bucketSize) {
+        for (int i = 0; i < bucketSizes.length; i++) {
+            if (bucketSizes[i] == bucketSize) {
+                return ladders[i];
+            }
+        }
+        return null;
+    }
+}
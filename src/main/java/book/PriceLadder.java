@@ -0,0 +1,289 @@
+package book;
+
+import model.BuySell;
+import model.OrderSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * Ordered price levels for one side of the book, keyed by primitive int price with primitive long quantity in
+ * {@link model.QuantityScale} units, so level totals are exact.
+ * Levels are held in parallel sorted arrays so adding, removing and reading levels never boxes or allocates
+ * (apart from growing the arrays). Level index 0 is always the best price: highest for BUY, lowest for SELL.
+ * The arrays keep the best level last on both sides, so dropping the best level, as matching does on every
+ * emptied level, moves nothing.
+ * <p>
+ * Not thread safe, callers must guard access.
+ */
+public final class PriceLadder {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * true when the best price is the highest price (BUY side)
+     */
+    private final boolean descending;
+    /**
+     * Level keys in ascending order, the best level last: the price on the BUY side and its bitwise complement,
+     * which reverses the order without overflowing, on the SELL side
+     */
+    private int[] keys = new int[INITIAL_CAPACITY];
+    private long[] quantities = new long[INITIAL_CAPACITY];
+    private int[] orderCounts = new int[INITIAL_CAPACITY];
+    private int size;
+    /**
+     * Orders on every level
+     */
+    private int orderCount;
+
+    public PriceLadder(BuySell buySell) {
+        Objects.requireNonNull(buySell, "BuySell must not be blank");
+        this.descending = buySell == BUY;
+    }
+
+    /**
+     * Add one order's quantity to the level at price, creating the level if needed
+     */
+    public void add(int price, long quantity) {
+        int key = key(price);
+        int index = indexOf(key);
+        orderCount++;
+        if (index >= 0) {
+            quantities[index] = Math.addExact(quantities[index], quantity);
+            orderCounts[index]++;
+            return;
+        }
+        insert(-index - 1, key, quantity);
+    }
+
+    /**
+     * Remove one order's quantity from the level at price, dropping the level once its last order is gone
+     */
+    public void remove(int price, long quantity) {
+        int index = indexOf(key(price));
+        if (index < 0) {
+            return;
+        }
+        orderCount--;
+        if (--orderCounts[index] == 0) {
+            delete(index);
+        } else {
+            quantities[index] -= quantity;
+        }
+    }
+
+    /**
+     * Change the quantity of the level at price while its orders stay, as when an order is partially filled
+     * or amended
+     *
+     * @param quantityChange added to the level quantity, negative to take quantity off
+     */
+    public void adjust(int price, long quantityChange) {
+        int index = indexOf(key(price));
+        if (index >= 0) {
+            quantities[index] = Math.addExact(quantities[index], quantityChange);
+        }
+    }
+
+    /**
+     * @return the total quantity at price, or 0 if there is no level at that price
+     */
+    public long quantity(int price) {
+        int index = indexOf(key(price));
+        return index >= 0 ? quantities[index] : 0;
+    }
+
+    /**
+     * @return the number of price levels
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of orders resting on all levels
+     */
+    public int orderCount() {
+        return orderCount;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param level level index, 0 being the best price
+     * @return the price of the level
+     */
+    public int getPrice(int level) {
+        return price(keys[arrayIndex(level)]);
+    }
+
+    /**
+     * @param level level index, 0 being the best price
+     * @return the total quantity of the level
+     */
+    public long getQuantity(int level) {
+        return quantities[arrayIndex(level)];
+    }
+
+    /**
+     * @param level level index, 0 being the best price
+     * @return the number of orders resting at the level
+     */
+    public int getOrderCount(int level) {
+        return orderCounts[arrayIndex(level)];
+    }
+
+    /**
+     * Find where a price sits in the ladder
+     *
+     * @param price the price to look for
+     * @return the index of the first level priced at price or worse, {@link #size()} if there is none
+     */
+    public int levelFrom(int price) {
+        int index = Arrays.binarySearch(keys, 0, size, key(price));
+        int atOrBelow = index >= 0 ? index : -index - 2;
+        return size - 1 - atOrBelow;
+    }
+
+    /**
+     * @return the index of the best level priced from fromPrice to toPrice inclusive
+     */
+    public int firstLevel(int fromPrice, int toPrice) {
+        return levelFrom(descending ? toPrice : fromPrice);
+    }
+
+    /**
+     * @return the index after the worst level priced from fromPrice to toPrice inclusive
+     */
+    public int endLevel(int fromPrice, int toPrice) {
+        if (descending) {
+            return fromPrice == Integer.MIN_VALUE ? size : levelFrom(fromPrice - 1);
+        }
+        return toPrice == Integer.MAX_VALUE ? size : levelFrom(toPrice + 1);
+    }
+
+    /**
+     * @return every level, best price first
+     */
+    public List<OrderSummary> toOrderSummaries() {
+        return summaries(0, size);
+    }
+
+    /**
+     * @return the best depth levels, best price first
+     */
+    public List<OrderSummary> toOrderSummaries(int depth) {
+        return summaries(0, Math.min(depth, size));
+    }
+
+    /**
+     * @return the levels priced from fromPrice to toPrice inclusive, best price first
+     */
+    public List<OrderSummary> toOrderSummaries(int fromPrice, int toPrice) {
+        return summaries(firstLevel(fromPrice, toPrice), endLevel(fromPrice, toPrice));
+    }
+
+    /**
+     * Copy the best levels into caller supplied buffers, best price first
+     *
+     * @param pricesOut receives the level prices
+     * @param quantitiesOut receives the level quantities
+     * @return the number of levels copied, at most the shorter buffer length
+     */
+    public int topLevels(int[] pricesOut, long[] quantitiesOut) {
+        int count = Math.min(size, Math.min(pricesOut.length, quantitiesOut.length));
+        for (int level = 0; level < count; level++) {
+            int index = arrayIndex(level);
+            pricesOut[level] = price(keys[index]);
+            quantitiesOut[level] = quantities[index];
+        }
+        return count;
+    }
+
+    public void clear() {
+        size = 0;
+        orderCount = 0;
+    }
+
+    /**
+     * @return an independent ladder holding the same levels
+     */
+    public PriceLadder copy() {
+        PriceLadder copy = new PriceLadder(descending ? BUY : SELL);
+        int capacity = Math.max(size, INITIAL_CAPACITY);
+        copy.keys = Arrays.copyOf(keys, capacity);
+        copy.quantities = Arrays.copyOf(quantities, capacity);
+        copy.orderCounts = Arrays.copyOf(orderCounts, capacity);
+        copy.size = size;
+        copy.orderCount = orderCount;
+        return copy;
+    }
+
+    private List<OrderSummary> summaries(int firstLevel, int endLevel) {
+        List<OrderSummary> orderSummaries = new ArrayList<>(Math.max(endLevel - firstLevel, 0));
+        for (int level = firstLevel; level < endLevel; level++) {
+            int index = arrayIndex(level);
+            orderSummaries.add(OrderSummary.ofQuantityUnits(quantities[index], price(keys[index])));
+        }
+        return orderSummaries;
+    }
+
+    private int arrayIndex(int level) {
+        if (level < 0 || level >= size) {
+            throw new IndexOutOfBoundsException(String.format("Level=%s not in ladder of size %s", level, size));
+        }
+        return size - 1 - level;
+    }
+
+    /**
+     * @return the array index of the level with key, checking the best level first as matching mostly touches it,
+     * otherwise as {@link Arrays#binarySearch(int[], int, int, int)}
+     */
+    private int indexOf(int key) {
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private int key(int price) {
+        return descending ? price : ~price;
+    }
+
+    private int price(int key) {
+        return descending ? key : ~key;
+    }
+
+    private void insert(int index, int key, long quantity) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            orderCounts = Arrays.copyOf(orderCounts, capacity);
+        }
+        int moved = size - index;
+        System.arraycopy(keys, index, keys, index + 1, moved);
+        System.arraycopy(quantities, index, quantities, index + 1, moved);
+        System.arraycopy(orderCounts, index, orderCounts, index + 1, moved);
+        keys[index] = key;
+        quantities[index] = quantity;
+        orderCounts[index] = 1;
+        size++;
+    }
+
+    private void delete(int index) {
+        int moved = size - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(quantities, index + 1, quantities, index, moved);
+        System.arraycopy(orderCounts, index + 1, orderCounts, index, moved);
+        size--;
+    }
+}
@@ -0,0 +1,48 @@
+package codec;
+
+import java.nio.ByteBuffer;
+
+import static codec.MessageHeader.HEADER_LENGTH;
+
+/**
+ * Flyweight codec of a cancel order command: the orderRef to cancel
+ */
+public final class CancelOrderCodec extends Flyweight {
+
+    private static final int ORDER_REF_OFFSET = HEADER_LENGTH;
+
+    public CancelOrderCodec() {
+        super(MessageHeader.CANCEL_ORDER);
+    }
+
+    /**
+     * Write a cancel order frame at offset
+     *
+     * @return the frame length
+     */
+    public static int encode(ByteBuffer buffer, int offset, CharSequence orderRef) {
+        int frameLength = putString(buffer, offset + ORDER_REF_OFFSET, orderRef) - offset;
+        MessageHeader.write(buffer, offset, MessageHeader.CANCEL_ORDER, (byte) 0, frameLength);
+        return frameLength;
+    }
+
+    public CancelOrderCodec wrap(ByteBuffer buffer, int offset) {
+        wrapFrame(buffer, offset, ORDER_REF_OFFSET + 2);
+        checkString(offset + ORDER_REF_OFFSET);
+        return this;
+    }
+
+    /**
+     * Append the orderRef to out
+     */
+    public void orderRef(StringBuilder out) {
+        Utf8.decode(buffer, offset + ORDER_REF_OFFSET + 2, stringLength(buffer, offset + ORDER_REF_OFFSET), out);
+    }
+
+    /**
+     * @return the orderRef, allocating a String
+     */
+    public String orderRef() {
+        return Utf8.decode(buffer, offset + ORDER_REF_OFFSET + 2, stringLength(buffer, offset + ORDER_REF_OFFSET));
+    }
+}
@@ -0,0 +1,65 @@
+package codec;
+
+import java.nio.ByteBuffer;
+
+import static codec.MessageHeader.HEADER_LENGTH;
+
+/**
+ * Flyweight codec of a failed request: the simple class name of the exception it failed with and its message
+ */
+public final class ErrorCodec extends Flyweight {
+
+    private static final int ERROR_TYPE_OFFSET = HEADER_LENGTH;
+
+    public ErrorCodec() {
+        super(MessageHeader.ERROR);
+    }
+
+    /**
+     * @return the length of the frame encoding the error
+     */
+    public static int frameLength(CharSequence errorType, CharSequence message) {
+        return ERROR_TYPE_OFFSET + 2 + Utf8.encodedLength(errorType) + 2 + Utf8.encodedLength(fit(message));
+    }
+
+    /**
+     * Write an error frame at offset, a null message is written as an empty one and a message too long to encode
+     * is cut short
+     *
+     * @return the frame length
+     */
+    public static int encode(ByteBuffer buffer, int offset, CharSequence errorType, CharSequence message) {
+        int messageIndex = putString(buffer, offset + ERROR_TYPE_OFFSET, errorType);
+        int frameLength = putString(buffer, messageIndex, fit(message)) - offset;
+        MessageHeader.write(buffer, offset, MessageHeader.ERROR, (byte) 0, frameLength);
+        return frameLength;
+    }
+
+    private static CharSequence fit(CharSequence message) {
+        if (message == null) {
+            return "";
+        }
+        return Utf8.encodedLength(message) > Utf8.MAX_LENGTH ? message.subSequence(0, Utf8.MAX_LENGTH / 3) : message;
+    }
+
+    public ErrorCodec wrap(ByteBuffer buffer, int offset) {
+        wrapFrame(buffer, offset, ERROR_TYPE_OFFSET + 2);
+        checkString(checkString(offset + ERROR_TYPE_OFFSET));
+        return this;
+    }
+
+    /**
+     * @return the exception's simple class name, allocating a String
+     */
+    public String errorType() {
+        return Utf8.decode(buffer, offset + ERROR_TYPE_OFFSET + 2, stringLength(buffer, offset + ERROR_TYPE_OFFSET));
+    }
+
+    /**
+     * @return the exception's message, allocating a String
+     */
+    public String message() {
+        int messageIndex = offset + ERROR_TYPE_OFFSET + 2 + stringLength(buffer, offset + ERROR_TYPE_OFFSET);
+        return Utf8.decode(buffer, messageIndex + 2, stringLength(buffer, messageIndex));
+    }
+}
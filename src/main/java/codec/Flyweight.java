@@ -0,0 +1,102 @@
+package codec;
+
+import model.BuySell;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * Codec view over one frame of a buffer, rewrapped for every frame so reading and writing never allocate
+ */
+abstract class Flyweight {
+
+    private final byte templateId;
+    protected ByteBuffer buffer;
+    protected int offset;
+
+    Flyweight(byte templateId) {
+        this.templateId = templateId;
+    }
+
+    /**
+     * Point at the frame at offset for reading
+     *
+     * @param minFrameLength the length of the message's fixed fields, header included
+     * @throws IllegalArgumentException if the frame is another message, or its length does not cover the fixed
+     *                                  fields or runs past the buffer
+     */
+    void wrapFrame(ByteBuffer buffer, int offset, int minFrameLength) {
+        Objects.requireNonNull(buffer, "Buffer must not be blank");
+        byte frameTemplateId = MessageHeader.templateId(buffer, offset);
+        if (frameTemplateId != templateId) {
+            throw new IllegalArgumentException(String.format("TemplateId=%s not allowed", frameTemplateId));
+        }
+        int frameLength = MessageHeader.frameLength(buffer, offset);
+        if (frameLength < minFrameLength || frameLength > buffer.capacity() - offset) {
+            throw new IllegalArgumentException(String.format("FrameLength=%s not allowed", frameLength));
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /**
+     * Check the string at index ends within the wrapped frame
+     *
+     * @return the index after the string
+     * @throws IllegalArgumentException if it does not
+     */
+    int checkString(int index) {
+        int frameEnd = offset + frameLength();
+        if (index + 2 > frameEnd || index + 2 + stringLength(buffer, index) > frameEnd) {
+            throw new IllegalArgumentException(String.format("FrameLength=%s too short", frameLength()));
+        }
+        return index + 2 + stringLength(buffer, index);
+    }
+
+    /**
+     * @return the frame length, header included
+     */
+    public int frameLength() {
+        return MessageHeader.frameLength(buffer, offset);
+    }
+
+    static byte encode(BuySell buySell) {
+        return (byte) Objects.requireNonNull(buySell, "BuySell must not be blank").ordinal();
+    }
+
+    /**
+     * @throws IllegalArgumentException if code is neither side
+     */
+    static BuySell decodeBuySell(byte code) {
+        switch (code) {
+            case 0:
+                return BUY;
+            case 1:
+                return SELL;
+            default:
+                throw new IllegalArgumentException(String.format("BuySell=%s not allowed", code));
+        }
+    }
+
+    /**
+     * Write a string as an unsigned short byte length and its UTF-8 bytes
+     *
+     * @return the index after the string
+     */
+    static int putString(ByteBuffer buffer, int index, CharSequence value) {
+        Objects.requireNonNull(value, "Value must not be blank");
+        int length = Utf8.encodedLength(value);
+        if (length > Utf8.MAX_LENGTH) {
+            throw new IllegalArgumentException(String.format("Value of %s bytes too long to encode", length));
+        }
+        buffer.putShort(index, (short) length);
+        return Utf8.encode(value, buffer, index + 2);
+    }
+
+    static int stringLength(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+}
@@ -0,0 +1,14 @@
+package codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives each frame as soon as it is encoded
+ */
+public interface FrameSink {
+
+    /**
+     * The frame is only valid for the duration of the call, the buffer is reused for the next one
+     */
+    void onFrame(ByteBuffer buffer, int offset, int length);
+}
@@ -0,0 +1,50 @@
+package codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Header starting every codec frame.
+ * <p>
+ * A frame is an int frame length covering the header and body, a byte template id naming the message, a byte of
+ * flags and two reserved bytes, followed by the message body at {@link #HEADER_LENGTH}. Frames use the byte order
+ * of the buffer they are written to, both ends must agree on it.
+ */
+public final class MessageHeader {
+
+    public static final int FRAME_LENGTH_OFFSET = 0;
+    public static final int TEMPLATE_ID_OFFSET = 4;
+    public static final int FLAGS_OFFSET = 5;
+    public static final int HEADER_LENGTH = 8;
+
+    public static final byte REGISTER_ORDER = 1;
+    public static final byte CANCEL_ORDER = 2;
+    public static final byte ORDER = 3;
+    public static final byte SUMMARY = 4;
+    public static final byte GET_ORDER = 5;
+    public static final byte SUMMARY_REQUEST = 6;
+    public static final byte ERROR = 7;
+
+    private MessageHeader() {
+    }
+
+    /**
+     * @return the length of the frame at offset, header included
+     */
+    public static int frameLength(ByteBuffer buffer, int offset) {
+        return buffer.getInt(offset + FRAME_LENGTH_OFFSET);
+    }
+
+    /**
+     * @return the template id of the frame at offset, to pick the codec that reads it
+     */
+    public static byte templateId(ByteBuffer buffer, int offset) {
+        return buffer.get(offset + TEMPLATE_ID_OFFSET);
+    }
+
+    static void write(ByteBuffer buffer, int offset, byte templateId, byte flags, int frameLength) {
+        buffer.putInt(offset + FRAME_LENGTH_OFFSET, frameLength);
+        buffer.put(offset + TEMPLATE_ID_OFFSET, templateId);
+        buffer.put(offset + FLAGS_OFFSET, flags);
+        buffer.putShort(offset + FLAGS_OFFSET + 1, (short) 0);
+    }
+}
@@ -0,0 +1,95 @@
+package codec;
+
+import model.BuySell;
+import model.Order;
+import model.QuantityScale;
+
+import java.nio.ByteBuffer;
+
+import static codec.MessageHeader.HEADER_LENGTH;
+
+/**
+ * Flyweight codec of an order: quantity in {@link QuantityScale} units, price, side, orderRef and userId
+ */
+public final class OrderCodec extends Flyweight {
+
+    private static final int QUANTITY_OFFSET = HEADER_LENGTH;
+    private static final int PRICE_OFFSET = QUANTITY_OFFSET + 8;
+    private static final int BUY_SELL_OFFSET = PRICE_OFFSET + 4;
+    private static final int ORDER_REF_OFFSET = BUY_SELL_OFFSET + 1;
+
+    public OrderCodec() {
+        super(MessageHeader.ORDER);
+    }
+
+    /**
+     * @return the length of the frame encoding order
+     */
+    public static int frameLength(Order order) {
+        return ORDER_REF_OFFSET + 2 + Utf8.encodedLength(order.getOrderRef()) + 2
+                + Utf8.encodedLength(order.getUserId());
+    }
+
+    /**
+     * Write an order frame at offset
+     *
+     * @return the frame length
+     */
+    public static int encode(ByteBuffer buffer, int offset, Order order) {
+        buffer.putLong(offset + QUANTITY_OFFSET, order.getQuantityUnits());
+        buffer.putInt(offset + PRICE_OFFSET, order.getPrice());
+        buffer.put(offset + BUY_SELL_OFFSET, encode(order.getBuySell()));
+        int userIdIndex = putString(buffer, offset + ORDER_REF_OFFSET, order.getOrderRef());
+        int frameLength = putString(buffer, userIdIndex, order.getUserId()) - offset;
+        MessageHeader.write(buffer, offset, MessageHeader.ORDER, (byte) 0, frameLength);
+        return frameLength;
+    }
+
+    public OrderCodec wrap(ByteBuffer buffer, int offset) {
+        wrapFrame(buffer, offset, ORDER_REF_OFFSET + 2);
+        checkString(checkString(offset + ORDER_REF_OFFSET));
+        return this;
+    }
+
+    public long quantityUnits() {
+        return buffer.getLong(offset + QUANTITY_OFFSET);
+    }
+
+    public int price() {
+        return buffer.getInt(offset + PRICE_OFFSET);
+    }
+
+    public BuySell buySell() {
+        return decodeBuySell(buffer.get(offset + BUY_SELL_OFFSET));
+    }
+
+    /**
+     * Append the orderRef to out
+     */
+    public void orderRef(StringBuilder out) {
+        Utf8.decode(buffer, offset + ORDER_REF_OFFSET + 2, stringLength(buffer, offset + ORDER_REF_OFFSET), out);
+    }
+
+    /**
+     * Append the userId to out
+     */
+    public void userId(StringBuilder out) {
+        int userIdIndex = userIdIndex();
+        Utf8.decode(buffer, userIdIndex + 2, stringLength(buffer, userIdIndex), out);
+    }
+
+    /**
+     * @return the order, allocating it and its strings
+     */
+    public Order toOrder() {
+        int orderRefLength = stringLength(buffer, offset + ORDER_REF_OFFSET);
+        int userIdIndex = userIdIndex();
+        return Order.ofQuantityUnits(Utf8.decode(buffer, offset + ORDER_REF_OFFSET + 2, orderRefLength),
+                Utf8.decode(buffer, userIdIndex + 2, stringLength(buffer, userIdIndex)),
+                quantityUnits(), price(), buySell());
+    }
+
+    private int userIdIndex() {
+        return offset + ORDER_REF_OFFSET + 2 + stringLength(buffer, offset + ORDER_REF_OFFSET);
+    }
+}
@@ -0,0 +1,78 @@
+package codec;
+
+import model.BuySell;
+import model.OrderRequest;
+import model.QuantityScale;
+
+import java.nio.ByteBuffer;
+
+import static codec.MessageHeader.HEADER_LENGTH;
+
+/**
+ * Flyweight codec of a register order command: quantity in {@link QuantityScale} units, price, side and userId
+ */
+public final class RegisterOrderCodec extends Flyweight {
+
+    private static final int QUANTITY_OFFSET = HEADER_LENGTH;
+    private static final int PRICE_OFFSET = QUANTITY_OFFSET + 8;
+    private static final int BUY_SELL_OFFSET = PRICE_OFFSET + 4;
+    private static final int USER_ID_OFFSET = BUY_SELL_OFFSET + 1;
+
+    public RegisterOrderCodec() {
+        super(MessageHeader.REGISTER_ORDER);
+    }
+
+    /**
+     * Write a register order frame at offset, input is validated by the service decoding it
+     *
+     * @return the frame length
+     */
+    public static int encode(ByteBuffer buffer, int offset, CharSequence userId, long quantityUnits, int price,
+                             BuySell buySell) {
+        buffer.putLong(offset + QUANTITY_OFFSET, quantityUnits);
+        buffer.putInt(offset + PRICE_OFFSET, price);
+        buffer.put(offset + BUY_SELL_OFFSET, encode(buySell));
+        int frameLength = putString(buffer, offset + USER_ID_OFFSET, userId) - offset;
+        MessageHeader.write(buffer, offset, MessageHeader.REGISTER_ORDER, (byte) 0, frameLength);
+        return frameLength;
+    }
+
+    public RegisterOrderCodec wrap(ByteBuffer buffer, int offset) {
+        wrapFrame(buffer, offset, USER_ID_OFFSET + 2);
+        checkString(offset + USER_ID_OFFSET);
+        return this;
+    }
+
+    public long quantityUnits() {
+        return buffer.getLong(offset + QUANTITY_OFFSET);
+    }
+
+    public int price() {
+        return buffer.getInt(offset + PRICE_OFFSET);
+    }
+
+    public BuySell buySell() {
+        return decodeBuySell(buffer.get(offset + BUY_SELL_OFFSET));
+    }
+
+    /**
+     * Append the userId to out
+     */
+    public void userId(StringBuilder out) {
+        Utf8.decode(buffer, offset + USER_ID_OFFSET + 2, stringLength(buffer, offset + USER_ID_OFFSET), out);
+    }
+
+    /**
+     * @return the userId, allocating a String
+     */
+    public String userId() {
+        return Utf8.decode(buffer, offset + USER_ID_OFFSET + 2, stringLength(buffer, offset + USER_ID_OFFSET));
+    }
+
+    /**
+     * @return the command as an OrderRequest, allocating it
+     */
+    public OrderRequest toOrderRequest() {
+        return new OrderRequest(userId(), QuantityScale.toQuantity(quantityUnits()), price(), buySell());
+    }
+}
@@ -0,0 +1,121 @@
+package codec;
+
+import model.BuySell;
+import model.OrderSummary;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static codec.MessageHeader.HEADER_LENGTH;
+
+/**
+ * Flyweight codec of one side's summary levels, each a price and a quantity in {@link model.QuantityScale} units.
+ * <p>
+ * A summary too large for one frame is sent as several fragments by a {@link SummaryStreamEncoder}, levels keep
+ * their order across fragments and the last one is flagged {@link #LAST_FRAGMENT}. A summary encoded in one go is
+ * a single last fragment.
+ */
+public final class SummaryCodec extends Flyweight {
+
+    public static final byte LAST_FRAGMENT = 1;
+
+    private static final int BUY_SELL_OFFSET = HEADER_LENGTH;
+    private static final int LEVEL_COUNT_OFFSET = BUY_SELL_OFFSET + 4;
+    private static final int LEVELS_OFFSET = LEVEL_COUNT_OFFSET + 4;
+    private static final int PRICE_OFFSET = 0;
+    private static final int QUANTITY_OFFSET = 4;
+    private static final int LEVEL_LENGTH = 12;
+
+    public SummaryCodec() {
+        super(MessageHeader.SUMMARY);
+    }
+
+    /**
+     * @return the length of a frame holding levelCount levels
+     */
+    public static int frameLength(int levelCount) {
+        return LEVELS_OFFSET + levelCount * LEVEL_LENGTH;
+    }
+
+    /**
+     * @return the most levels a frame of frameLength bytes holds
+     */
+    public static int maxLevelCount(int frameLength) {
+        return (frameLength - LEVELS_OFFSET) / LEVEL_LENGTH;
+    }
+
+    /**
+     * Write a whole summary as a single last fragment at offset
+     *
+     * @return the frame length
+     */
+    public static int encode(ByteBuffer buffer, int offset, BuySell buySell, List<OrderSummary> orderSummaries) {
+        int levelCount = orderSummaries.size();
+        for (int i = 0; i < levelCount; i++) {
+            OrderSummary orderSummary = orderSummaries.get(i);
+            putLevel(buffer, offset, i, orderSummary.getQuantityUnits(), orderSummary.getPrice());
+        }
+        return putHeader(buffer, offset, buySell, levelCount, true);
+    }
+
+    static void putLevel(ByteBuffer buffer, int offset, int level, long quantityUnits, int price) {
+        int index = offset + LEVELS_OFFSET + level * LEVEL_LENGTH;
+        buffer.putInt(index + PRICE_OFFSET, price);
+        buffer.putLong(index + QUANTITY_OFFSET, quantityUnits);
+    }
+
+    /**
+     * Write the header and level count once the levels are in place
+     *
+     * @return the frame length
+     */
+    static int putHeader(ByteBuffer buffer, int offset, BuySell buySell, int levelCount, boolean last) {
+        buffer.put(offset + BUY_SELL_OFFSET, encode(buySell));
+        buffer.putInt(offset + LEVEL_COUNT_OFFSET, levelCount);
+        int frameLength = frameLength(levelCount);
+        MessageHeader.write(buffer, offset, MessageHeader.SUMMARY, last ? LAST_FRAGMENT : 0, frameLength);
+        return frameLength;
+    }
+
+    public SummaryCodec wrap(ByteBuffer buffer, int offset) {
+        wrapFrame(buffer, offset, LEVELS_OFFSET);
+        int levelCount = levelCount();
+        if (levelCount < 0 || levelCount > maxLevelCount(frameLength())) {
+            throw new IllegalArgumentException(String.format("LevelCount=%s not allowed", levelCount));
+        }
+        return this;
+    }
+
+    public BuySell buySell() {
+        return decodeBuySell(buffer.get(offset + BUY_SELL_OFFSET));
+    }
+
+    /**
+     * @return true if this fragment ends the summary
+     */
+    public boolean isLast() {
+        return (buffer.get(offset + MessageHeader.FLAGS_OFFSET) & LAST_FRAGMENT) != 0;
+    }
+
+    public int levelCount() {
+        return buffer.getInt(offset + LEVEL_COUNT_OFFSET);
+    }
+
+    public int price(int level) {
+        return buffer.getInt(offset + LEVELS_OFFSET + level * LEVEL_LENGTH + PRICE_OFFSET);
+    }
+
+    public long quantityUnits(int level) {
+        return buffer.getLong(offset + LEVELS_OFFSET + level * LEVEL_LENGTH + QUANTITY_OFFSET);
+    }
+
+    /**
+     * Add the levels of this fragment to out, allocating an OrderSummary per level
+     */
+    public void orderSummaries(List<OrderSummary> out) {
+        int levelCount = levelCount();
+        for (int level = 0; level < levelCount; level++) {
+            out.add(OrderSummary.ofQuantityUnits(quantityUnits(level), price(level)));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package codec;
+
+import model.BuySell;
+
+import java.nio.ByteBuffer;
+
+import static codec.MessageHeader.HEADER_LENGTH;
+
+/**
+ * Flyweight codec of a summary query: the side to summarize
+ */
+public final class SummaryRequestCodec extends Flyweight {
+
+    private static final int BUY_SELL_OFFSET = HEADER_LENGTH;
+    private static final int FRAME_LENGTH = BUY_SELL_OFFSET + 1;
+
+    public SummaryRequestCodec() {
+        super(MessageHeader.SUMMARY_REQUEST);
+    }
+
+    /**
+     * Write a summary request frame at offset
+     *
+     * @return the frame length
+     */
+    public static int encode(ByteBuffer buffer, int offset, BuySell buySell) {
+        buffer.put(offset + BUY_SELL_OFFSET, encode(buySell));
+        MessageHeader.write(buffer, offset, MessageHeader.SUMMARY_REQUEST, (byte) 0, FRAME_LENGTH);
+        return FRAME_LENGTH;
+    }
+
+    public SummaryRequestCodec wrap(ByteBuffer buffer, int offset) {
+        wrapFrame(buffer, offset, FRAME_LENGTH);
+        return this;
+    }
+
+    public BuySell buySell() {
+        return decodeBuySell(buffer.get(offset + BUY_SELL_OFFSET));
+    }
+}
@@ -0,0 +1,88 @@
+package codec;
+
+import model.BuySell;
+import model.OrderSummary;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Encodes a summary of any depth as a stream of {@link SummaryCodec} fragments through one reused buffer.
+ * <p>
+ * Levels are added one at a time and a fragment is handed to the {@link FrameSink} whenever the buffer fills, so a
+ * deep book is never copied whole and the first levels go out before the last are read. {@link #finish()} sends
+ * the remaining levels as the last fragment. Not thread safe, encode one summary at a time.
+ */
+public final class SummaryStreamEncoder {
+
+    private final ByteBuffer buffer;
+    private final int maxLevelCount;
+    private final FrameSink frameSink;
+    private BuySell buySell;
+    private int levelCount;
+
+    /**
+     * @param buffer fragments are encoded from its position zero up to its capacity
+     */
+    public SummaryStreamEncoder(ByteBuffer buffer, FrameSink frameSink) {
+        this.buffer = Objects.requireNonNull(buffer, "Buffer must not be blank");
+        this.frameSink = Objects.requireNonNull(frameSink, "FrameSink must not be blank");
+        this.maxLevelCount = SummaryCodec.maxLevelCount(buffer.capacity());
+        if (maxLevelCount < 1) {
+            throw new IllegalArgumentException(String.format("Capacity=%s not allowed", buffer.capacity()));
+        }
+    }
+
+    /**
+     * Start a summary, dropping any levels of one not finished
+     */
+    public SummaryStreamEncoder begin(BuySell buySell) {
+        this.buySell = Objects.requireNonNull(buySell, "BuySell must not be blank");
+        levelCount = 0;
+        return this;
+    }
+
+    /**
+     * Add the next level, best price first, sending a fragment if the buffer is full
+     */
+    public SummaryStreamEncoder add(long quantityUnits, int price) {
+        if (buySell == null) {
+            throw new IllegalStateException("Summary not begun");
+        }
+        if (levelCount == maxLevelCount) {
+            send(false);
+        }
+        SummaryCodec.putLevel(buffer, 0, levelCount++, quantityUnits, price);
+        return this;
+    }
+
+    /**
+     * Send the remaining levels as the last fragment, which is empty if they all went out already
+     */
+    public void finish() {
+        if (buySell == null) {
+            throw new IllegalStateException("Summary not begun");
+        }
+        send(true);
+        buySell = null;
+    }
+
+    /**
+     * Stream a whole summary
+     */
+    public void encode(BuySell buySell, List<OrderSummary> orderSummaries) {
+        begin(buySell);
+        for (int i = 0; i < orderSummaries.size(); i++) {
+            OrderSummary orderSummary = orderSummaries.get(i);
+            add(orderSummary.getQuantityUnits(), orderSummary.getPrice());
+        }
+        finish();
+    }
+
+    private void send(boolean last) {
+        int frameLength = SummaryCodec.putHeader(buffer, 0, buySell, levelCount, last);
+        levelCount = 0;
+        frameSink.onFrame(buffer, 0, frameLength);
+    }
+}
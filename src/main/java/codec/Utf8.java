@@ -0,0 +1,94 @@
+package codec;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * UTF-8 between CharSequences and buffers, one char at a time so neither direction allocates
+ */
+final class Utf8 {
+
+    static final int MAX_LENGTH = 0xFFFF;
+
+    private Utf8() {
+    }
+
+    static int encodedLength(CharSequence value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @return the index after the encoded bytes
+     */
+    static int encode(CharSequence value, ByteBuffer buffer, int index) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put(index++, (byte) c);
+            } else if (c < 0x800) {
+                buffer.put(index++, (byte) (0xC0 | c >> 6));
+                buffer.put(index++, (byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put(index++, (byte) (0xF0 | codePoint >> 18));
+                buffer.put(index++, (byte) (0x80 | codePoint >> 12 & 0x3F));
+                buffer.put(index++, (byte) (0x80 | codePoint >> 6 & 0x3F));
+                buffer.put(index++, (byte) (0x80 | codePoint & 0x3F));
+            } else {
+                buffer.put(index++, (byte) (0xE0 | c >> 12));
+                buffer.put(index++, (byte) (0x80 | c >> 6 & 0x3F));
+                buffer.put(index++, (byte) (0x80 | c & 0x3F));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Append length bytes of UTF-8 at index to out, which must be well formed as the encoder writes them
+     */
+    static void decode(ByteBuffer buffer, int index, int length, StringBuilder out) {
+        int end = index + length;
+        while (index < end) {
+            int b = buffer.get(index++) & 0xFF;
+            if (b < 0x80) {
+                out.append((char) b);
+            } else if (b < 0xE0) {
+                out.append((char) ((b & 0x1F) << 6 | buffer.get(index++) & 0x3F));
+            } else if (b < 0xF0) {
+                out.append((char) ((b & 0x0F) << 12 | (buffer.get(index++) & 0x3F) << 6 | buffer.get(index++) & 0x3F));
+            } else {
+                int codePoint = (b & 0x07) << 18 | (buffer.get(index++) & 0x3F) << 12
+                        | (buffer.get(index++) & 0x3F) << 6 | buffer.get(index++) & 0x3F;
+                out.append(Character.highSurrogate(codePoint)).append(Character.lowSurrogate(codePoint));
+            }
+        }
+    }
+
+    /**
+     * Allocating variant of {@link #decode(ByteBuffer, int, int, StringBuilder)}
+     */
+    static String decode(ByteBuffer buffer, int index, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(index + i);
+        }
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,8 @@
+package exception;
+
+public class IllegalBucketSize extends RuntimeException {
+
+    public IllegalBucketSize(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package exception;
+
+public class IllegalDepth extends RuntimeException {
+
+    public IllegalDepth(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package exception;
+
+public class IllegalInstrument extends RuntimeException {
+
+    public IllegalInstrument(String message) {
+        super(message);
+    }
+}
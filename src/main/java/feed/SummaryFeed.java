@@ -0,0 +1,245 @@
+package feed;
+
+import model.BuySell;
+import model.LevelChange;
+import model.OrderSummary;
+import model.PriceLevelUpdate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * Pushes price level changes to subscribers.
+ * <p>
+ * Writers only mark a level dirty. Each subscriber keeps its own set of dirty levels and the last quantity it was
+ * sent per level; on delivery it reads the current quantity of each dirty level from the {@link LevelSource} and
+ * sends the difference. Repeated changes to a level are therefore conflated into one update for a slow subscriber,
+ * and whatever order writers mark levels in, the last delivery always reflects the latest state.
+ * <p>
+ * A subscriber's dirty set is bounded. When it overflows the set is dropped and the subscriber is resynchronised
+ * by diffing the full summary against its last sent state.
+ */
+public class SummaryFeed {
+
+    public static final int DEFAULT_MAX_PENDING_LEVELS = 4096;
+
+    /**
+     * Current state of the levels the feed publishes
+     */
+    public interface LevelSource {
+
+        /**
+         * @return the current aggregate quantity at price, 0 if there is no level at that price
+         */
+        double levelQuantity(BuySell buySell, int price);
+
+        /**
+         * @return the current aggregated summary of one side
+         */
+        List<OrderSummary> summary(BuySell buySell);
+    }
+
+    private final LevelSource levelSource;
+    private final int maxPendingLevels;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private Executor executor;
+
+    /**
+     * Feed delivering on its own daemon threads
+     */
+    public SummaryFeed(LevelSource levelSource) {
+        this(levelSource, null, DEFAULT_MAX_PENDING_LEVELS);
+    }
+
+    /**
+     * @param levelSource reads the current levels
+     * @param executor runs deliveries, null to create daemon delivery threads on first subscription
+     * @param maxPendingLevels the dirty levels held per subscriber before it is resynchronised
+     */
+    public SummaryFeed(LevelSource levelSource, Executor executor, int maxPendingLevels) {
+        this.levelSource = Objects.requireNonNull(levelSource, "LevelSource must not be blank");
+        this.executor = executor;
+        this.maxPendingLevels = maxPendingLevels;
+    }
+
+    /**
+     * Subscribe to level changes, the subscriber first receives an ADDED update for every existing level
+     */
+    public SummarySubscription subscribe(SummaryListener listener) {
+        Subscriber subscriber = new Subscriber(Objects.requireNonNull(listener, "SummaryListener must not be blank"));
+        subscribers.add(subscriber);
+        subscriber.resync();
+        return subscriber;
+    }
+
+    /**
+     * Mark a level as changed, cheap when there are no subscribers
+     */
+    public void levelChanged(BuySell buySell, int price) {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.levelChanged(buySell, price);
+        }
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    private synchronized Executor executor() {
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "summary-feed");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    private static long levelKey(BuySell buySell, int price) {
+        return ((long) buySell.ordinal() << 32) | (price & 0xFFFFFFFFL);
+    }
+
+    private final class Subscriber implements SummarySubscription {
+        private final SummaryListener listener;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        /**
+         * Dirty level keys, guarded by this
+         */
+        private Set<Long> pending = new LinkedHashSet<>();
+        private boolean resync;
+
+        /**
+         * Last quantity sent per level, only touched by the delivery in progress
+         */
+        private final Map<Integer, Double> sentBuyLevels = new HashMap<>();
+        private final Map<Integer, Double> sentSellLevels = new HashMap<>();
+
+        private Subscriber(SummaryListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscribers.remove(this);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void levelChanged(BuySell buySell, int price) {
+            synchronized (this) {
+                if (!resync) {
+                    pending.add(levelKey(buySell, price));
+                    if (pending.size() > maxPendingLevels) {
+                        pending.clear();
+                        resync = true;
+                    }
+                }
+            }
+            schedule();
+        }
+
+        private void resync() {
+            synchronized (this) {
+                pending.clear();
+                resync = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor().execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            while (true) {
+                Set<Long> levelKeys;
+                boolean fullResync;
+                synchronized (this) {
+                    levelKeys = pending;
+                    fullResync = resync;
+                    pending = new LinkedHashSet<>();
+                    resync = false;
+                }
+                if (!cancelled) {
+                    if (fullResync) {
+                        deliverSummary(BUY, sentBuyLevels);
+                        deliverSummary(SELL, sentSellLevels);
+                    } else {
+                        for (long levelKey : levelKeys) {
+                            BuySell buySell = (levelKey >>> 32) == BUY.ordinal() ? BUY : SELL;
+                            int price = (int) levelKey;
+                            deliverLevel(buySell, price, levelSource.levelQuantity(buySell, price));
+                        }
+                    }
+                }
+                scheduled.set(false);
+                synchronized (this) {
+                    if ((pending.isEmpty() && !resync) || cancelled) {
+                        return;
+                    }
+                }
+                if (!scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        private void deliverSummary(BuySell buySell, Map<Integer, Double> sentLevels) {
+            Set<Integer> removedPrices = new HashSet<>(sentLevels.keySet());
+            for (OrderSummary orderSummary : levelSource.summary(buySell)) {
+                removedPrices.remove(orderSummary.getPrice());
+                deliverLevel(buySell, orderSummary.getPrice(), orderSummary.getQuantity());
+            }
+            for (int price : removedPrices) {
+                deliverLevel(buySell, price, 0.0);
+            }
+        }
+
+        private void deliverLevel(BuySell buySell, int price, double quantity) {
+            Map<Integer, Double> sentLevels = buySell == BUY ? sentBuyLevels : sentSellLevels;
+            Double sentQuantity = sentLevels.get(price);
+            PriceLevelUpdate update;
+            if (quantity == 0.0) {
+                if (sentQuantity == null) {
+                    return;
+                }
+                sentLevels.remove(price);
+                update = new PriceLevelUpdate(buySell, price, 0.0, LevelChange.REMOVED);
+            } else if (sentQuantity == null) {
+                sentLevels.put(price, quantity);
+                update = new PriceLevelUpdate(buySell, price, quantity, LevelChange.ADDED);
+            } else if (sentQuantity != quantity) {
+                sentLevels.put(price, quantity);
+                update = new PriceLevelUpdate(buySell, price, quantity, LevelChange.CHANGED);
+            } else {
+                return;
+            }
+            try {
+                listener.onUpdate(update);
+            } catch (RuntimeException e) {
+                // a failing listener must not stop delivery to itself or others
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package feed;
+
+import model.PriceLevelUpdate;
+
+/**
+ * Receives the price level changes of a subscribed order summary
+ */
+public interface SummaryListener {
+
+    /**
+     * Called for every level that changed since the last call, updates for one subscription are never
+     * delivered concurrently. Exceptions thrown by the listener are ignored.
+     */
+    void onUpdate(PriceLevelUpdate update);
+}
@@ -0,0 +1,14 @@
+package feed;
+
+/**
+ * Handle to a summary feed subscription
+ */
+public interface SummarySubscription {
+
+    /**
+     * Stop delivering updates, an update being delivered may still complete
+     */
+    void cancel();
+
+    boolean isCancelled();
+}
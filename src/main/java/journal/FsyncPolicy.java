@@ -0,0 +1,19 @@
+package journal;
+
+/**
+ * When appended journal events are forced to disk
+ */
+public enum FsyncPolicy {
+    /**
+     * Force after every append, the append returns once the event is durable
+     */
+    EVERY_EVENT,
+    /**
+     * Appends return once durable but concurrent appenders share a single force
+     */
+    GROUP_COMMIT,
+    /**
+     * Force in the background at a fixed interval, appends return before the event is durable
+     */
+    PERIODIC
+}
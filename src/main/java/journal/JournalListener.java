@@ -0,0 +1,18 @@
+package journal;
+
+import model.Order;
+
+/**
+ * Receives the journal events in append order while a journal is replayed
+ */
+public interface JournalListener {
+
+    void onRegister(Order order);
+
+    void onCancel(String orderRef);
+
+    /**
+     * The order keeps its orderRef, userId and side
+     */
+    void onAmend(String orderRef, double quantity, int price);
+}
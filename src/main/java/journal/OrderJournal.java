@@ -0,0 +1,406 @@
+package journal;
+
+import model.BuySell;
+import model.Order;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * Append only binary journal of register, cancel and amend events.
+ * <p>
+ * Each record is framed as {@code [int payload length][int CRC32 of payload][payload]} and the payload starts with
+ * a one byte event type. A torn or corrupt tail left by a crash is detected by the framing and checksum and cut off
+ * when the journal is replayed.
+ */
+public class OrderJournal implements Closeable {
+
+    public static final long DEFAULT_FSYNC_INTERVAL_MILLIS = 10;
+
+    private static final byte REGISTER = 1;
+    private static final byte CANCEL = 2;
+    private static final byte AMEND = 3;
+
+    private static final int HEADER_LENGTH = 8;
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+    private static final int MAX_PAYLOAD_LENGTH = 1 + 2 * (2 + MAX_STRING_LENGTH) + 8 + 4 + 1;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FsyncPolicy fsyncPolicy;
+    private final ScheduledExecutorService fsyncScheduler;
+
+    /**
+     * Guards the write buffer, checksum and writtenPosition
+     */
+    private final Lock writeLock = new ReentrantLock();
+    /**
+     * Held while forcing so concurrent appenders share one force
+     */
+    private final Lock syncLock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private volatile long writtenPosition;
+    private volatile long syncedPosition;
+
+    public OrderJournal(Path file, FsyncPolicy fsyncPolicy) {
+        this(file, fsyncPolicy, DEFAULT_FSYNC_INTERVAL_MILLIS);
+    }
+
+    public OrderJournal(Path file, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        this.file = file;
+        this.fsyncPolicy = fsyncPolicy;
+        try {
+            this.channel = FileChannel.open(file, CREATE, READ, WRITE);
+            this.writtenPosition = channel.size();
+            this.syncedPosition = writtenPosition;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Journal=%s could not be opened", file), e);
+        }
+        if (fsyncPolicy == FsyncPolicy.PERIODIC) {
+            fsyncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            fsyncScheduler.scheduleWithFixedDelay(() -> syncTo(writtenPosition),
+                    fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            fsyncScheduler = null;
+        }
+    }
+
+    /**
+     * Replay every complete record from the start of the journal, then cut off any torn or corrupt tail
+     * so that new events are appended after the last good record
+     *
+     * @param listener receives the events in append order
+     * @return the number of events replayed
+     */
+    public long replay(JournalListener listener) {
+        writeLock.lock();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            CRC32 checksum = new CRC32();
+            long readPosition = 0;
+            long validPosition = 0;
+            long events = 0;
+            boolean corrupt = false;
+            while (!corrupt && channel.read(buffer, readPosition) > 0) {
+                readPosition += buffer.position();
+                buffer.flip();
+                long passStart = validPosition;
+                while (buffer.remaining() >= HEADER_LENGTH) {
+                    int start = buffer.position();
+                    int length = buffer.getInt(start);
+                    if (length <= 0 || length > MAX_PAYLOAD_LENGTH) {
+                        corrupt = true;
+                        break;
+                    }
+                    if (buffer.remaining() < HEADER_LENGTH + length) {
+                        break;
+                    }
+                    checksum.reset();
+                    checksum.update(buffer.array(), buffer.arrayOffset() + start + HEADER_LENGTH, length);
+                    if ((int) checksum.getValue() != buffer.getInt(start + 4)) {
+                        corrupt = true;
+                        break;
+                    }
+                    buffer.position(start + HEADER_LENGTH);
+                    if (!decode(buffer, listener)) {
+                        corrupt = true;
+                        break;
+                    }
+                    buffer.position(start + HEADER_LENGTH + length);
+                    validPosition += HEADER_LENGTH + length;
+                    events++;
+                }
+                if (validPosition == passStart) {
+                    // no complete record in a full read, what is left is a torn tail
+                    break;
+                }
+                readPosition -= buffer.remaining();
+                buffer.clear();
+            }
+            if (validPosition < channel.size()) {
+                channel.truncate(validPosition);
+                channel.force(false);
+            }
+            writtenPosition = validPosition;
+            syncedPosition = validPosition;
+            return events;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Journal=%s could not be replayed", file), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void appendRegister(Order order) {
+        appendRegisters(Collections.singletonList(order));
+    }
+
+    /**
+     * Append a register event per order as one write, durable on return unless the policy is PERIODIC
+     */
+    public void appendRegisters(List<Order> orders) {
+        long position;
+        writeLock.lock();
+        try {
+            for (Order order : orders) {
+                encodeRegister(order);
+            }
+            position = flush();
+        } catch (RuntimeException e) {
+            writeBuffer.clear();
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+        sync(position);
+    }
+
+    public void appendCancel(String orderRef) {
+        appendCancels(Collections.singletonList(orderRef));
+    }
+
+    /**
+     * Append a cancel event per orderRef as one write, durable on return unless the policy is PERIODIC
+     */
+    public void appendCancels(Collection<String> orderRefs) {
+        long position;
+        writeLock.lock();
+        try {
+            for (String orderRef : orderRefs) {
+                encodeCancel(orderRef);
+            }
+            position = flush();
+        } catch (RuntimeException e) {
+            writeBuffer.clear();
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+        sync(position);
+    }
+
+    /**
+     * Append an amend event, durable on return unless the policy is PERIODIC
+     */
+    public void appendAmend(String orderRef, double quantity, int price) {
+        long position;
+        writeLock.lock();
+        try {
+            encodeAmend(orderRef, quantity, price);
+            position = flush();
+        } catch (RuntimeException e) {
+            writeBuffer.clear();
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+        sync(position);
+    }
+
+    /**
+     * @return the number of bytes appended to the journal
+     */
+    public long size() {
+        return writtenPosition;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() {
+        if (fsyncScheduler != null) {
+            fsyncScheduler.shutdownNow();
+        }
+        writeLock.lock();
+        try {
+            if (channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Journal=%s could not be closed", file), e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void encodeRegister(Order order) {
+        byte[] orderRef = toBytes(order.getOrderRef());
+        byte[] userId = toBytes(order.getUserId());
+        int start = beginRecord(1 + 2 + orderRef.length + 2 + userId.length + 8 + 4 + 1);
+        writeBuffer.put(REGISTER);
+        putString(orderRef);
+        putString(userId);
+        writeBuffer.putDouble(order.getQuantity());
+        writeBuffer.putInt(order.getPrice());
+        writeBuffer.put((byte) order.getBuySell().ordinal());
+        endRecord(start);
+    }
+
+    private void encodeCancel(String orderRef) {
+        byte[] ref = toBytes(orderRef);
+        int start = beginRecord(1 + 2 + ref.length);
+        writeBuffer.put(CANCEL);
+        putString(ref);
+        endRecord(start);
+    }
+
+    private void encodeAmend(String orderRef, double quantity, int price) {
+        byte[] ref = toBytes(orderRef);
+        int start = beginRecord(1 + 2 + ref.length + 8 + 4);
+        writeBuffer.put(AMEND);
+        putString(ref);
+        writeBuffer.putDouble(quantity);
+        writeBuffer.putInt(price);
+        endRecord(start);
+    }
+
+    private static boolean decode(ByteBuffer buffer, JournalListener listener) {
+        byte type = buffer.get();
+        if (type == REGISTER) {
+            String orderRef = getString(buffer);
+            String userId = getString(buffer);
+            double quantity = buffer.getDouble();
+            int price = buffer.getInt();
+            BuySell buySell = buffer.get() == BUY.ordinal() ? BUY : SELL;
+            listener.onRegister(new Order(orderRef, userId, quantity, price, buySell));
+            return true;
+        }
+        if (type == CANCEL) {
+            listener.onCancel(getString(buffer));
+            return true;
+        }
+        if (type == AMEND) {
+            String orderRef = getString(buffer);
+            double quantity = buffer.getDouble();
+            listener.onAmend(orderRef, quantity, buffer.getInt());
+            return true;
+        }
+        return false;
+    }
+
+    private int beginRecord(int payloadLength) {
+        if (writeBuffer.remaining() < HEADER_LENGTH + payloadLength) {
+            flush();
+            if (writeBuffer.capacity() < HEADER_LENGTH + payloadLength) {
+                writeBuffer = ByteBuffer.allocateDirect(HEADER_LENGTH + payloadLength);
+            }
+        }
+        int start = writeBuffer.position();
+        writeBuffer.position(start + HEADER_LENGTH);
+        return start;
+    }
+
+    private void endRecord(int start) {
+        int end = writeBuffer.position();
+        ByteBuffer payload = writeBuffer.duplicate();
+        payload.limit(end).position(start + HEADER_LENGTH);
+        crc.reset();
+        crc.update(payload);
+        writeBuffer.putInt(start, end - start - HEADER_LENGTH);
+        writeBuffer.putInt(start + 4, (int) crc.getValue());
+    }
+
+    /**
+     * Write out the buffered records, caller must hold the write lock
+     *
+     * @return the journal position after the write
+     */
+    private long flush() {
+        writeBuffer.flip();
+        try {
+            long position = writtenPosition;
+            while (writeBuffer.hasRemaining()) {
+                position += channel.write(writeBuffer, position);
+            }
+            writtenPosition = position;
+            if (fsyncPolicy == FsyncPolicy.EVERY_EVENT) {
+                channel.force(false);
+                syncedPosition = position;
+            }
+            return position;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Journal=%s could not be written", file), e);
+        } finally {
+            writeBuffer.clear();
+        }
+    }
+
+    private void sync(long position) {
+        if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+            syncTo(position);
+        }
+    }
+
+    /**
+     * Force the journal unless another appender already forced past position,
+     * a single force covers every append written before it started
+     */
+    private void syncTo(long position) {
+        if (syncedPosition >= position) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (syncedPosition >= position) {
+                return;
+            }
+            long target = writtenPosition;
+            channel.force(false);
+            syncedPosition = target;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Journal=%s could not be forced", file), e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void putString(byte[] bytes) {
+        writeBuffer.putShort((short) bytes.length);
+        writeBuffer.put(bytes);
+    }
+
+    private static byte[] toBytes(String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        if (bytes.length > MAX_STRING_LENGTH) {
+            throw new IllegalArgumentException(String.format("Value of %s bytes too long to journal", bytes.length));
+        }
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,170 @@
+package journal;
+
+import model.BuySell;
+import model.Order;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * Columnar snapshot file of a book of orders.
+ * <p>
+ * After a header of {@code [int magic][int version][int order count]} the file holds one column per field:
+ * orderRefs, a dictionary of distinct userIds followed by one dictionary index per order, quantities, prices and
+ * sides, then a trailing CRC32 of everything before it. Snapshots are written to a temporary file and atomically
+ * renamed so a reader only ever sees a complete snapshot. The directory is forced after the rename, so once
+ * {@link #write(Path, List)} returns the new snapshot survives a crash and older files can be deleted.
+ */
+public final class OrderSnapshot {
+
+    private static final int MAGIC = 0x4F534E50;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 12;
+    private static final int CHECKSUM_LENGTH = 8;
+
+    /**
+     * Write orders to a snapshot file, replacing any existing file atomically
+     */
+    public static void write(Path file, List<Order> orders) {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporaryFile, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(orders.size());
+            for (Order order : orders) {
+                writeString(out, order.getOrderRef());
+            }
+            Map<String, Integer> userIndexes = new HashMap<>();
+            List<String> userIds = new ArrayList<>();
+            for (Order order : orders) {
+                userIndexes.computeIfAbsent(order.getUserId(), userId -> {
+                    userIds.add(userId);
+                    return userIds.size() - 1;
+                });
+            }
+            out.writeInt(userIds.size());
+            for (String userId : userIds) {
+                writeString(out, userId);
+            }
+            for (Order order : orders) {
+                out.writeInt(userIndexes.get(order.getUserId()));
+            }
+            for (Order order : orders) {
+                out.writeDouble(order.getQuantity());
+            }
+            for (Order order : orders) {
+                out.writeInt(order.getPrice());
+            }
+            for (Order order : orders) {
+                out.writeByte(order.getBuySell().ordinal());
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Snapshot=%s could not be written", file), e);
+        }
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), READ)) {
+                directory.force(true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Snapshot=%s could not be written", file), e);
+        }
+    }
+
+    /**
+     * Read every order of a snapshot file
+     *
+     * @throws UncheckedIOException if the file can not be read or fails its checksum
+     */
+    public static List<Order> read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH + CHECKSUM_LENGTH || size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Size=%s not a valid snapshot", size));
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer content = buffer.duplicate();
+            content.limit((int) size - CHECKSUM_LENGTH);
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            if (crc.getValue() != buffer.getLong((int) size - CHECKSUM_LENGTH)) {
+                throw new IOException("Checksum mismatch");
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " snapshot");
+            }
+            int count = buffer.getInt();
+            String[] orderRefs = new String[count];
+            for (int i = 0; i < count; i++) {
+                orderRefs[i] = readString(buffer);
+            }
+            String[] userIds = new String[buffer.getInt()];
+            for (int i = 0; i < userIds.length; i++) {
+                userIds[i] = readString(buffer);
+            }
+            int[] userIndexes = new int[count];
+            buffer.asIntBuffer().get(userIndexes);
+            buffer.position(buffer.position() + 4 * count);
+            double[] quantities = new double[count];
+            buffer.asDoubleBuffer().get(quantities);
+            buffer.position(buffer.position() + 8 * count);
+            int[] prices = new int[count];
+            buffer.asIntBuffer().get(prices);
+            buffer.position(buffer.position() + 4 * count);
+
+            List<Order> orders = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                BuySell buySell = buffer.get() == BUY.ordinal() ? BUY : SELL;
+                orders.add(new Order(orderRefs[i], userIds[userIndexes[i]], quantities[i], prices[i], buySell));
+            }
+            return orders;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Snapshot=%s could not be read", file), e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private OrderSnapshot() {
+    }
+}
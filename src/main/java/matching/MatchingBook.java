@@ -0,0 +1,246 @@
+package matching;
+
+import book.PriceLadder;
+import model.BuySell;
+import model.Order;
+import model.Trade;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * Limit order book crossing incoming orders against the opposite side in price-time priority.
+ * <p>
+ * Each price level is a FIFO queue of resting orders linked through the orders themselves, so taking the oldest
+ * order of a level, appending to a level and cancelling from anywhere in a level are all O(1). A {@link PriceLadder}
+ * per side aggregates the levels and gives the best price in O(1). It keeps the best level at the end of its arrays
+ * on both sides, so dropping an emptied best level is O(1) as well and every fill is O(1).
+ * <p>
+ * Not thread safe, callers must guard access.
+ */
+public final class MatchingBook {
+
+    /**
+     * An order resting in its level queue, quantity is what is left after partial fills
+     */
+    private static final class RestingOrder {
+        private Order order;
+        private RestingOrder previous;
+        private RestingOrder next;
+
+        private RestingOrder(Order order) {
+            this.order = order;
+        }
+    }
+
+    private static final class Level {
+        private RestingOrder head;
+        private RestingOrder tail;
+    }
+
+    private final TradeListener tradeListener;
+    private final Map<String, RestingOrder> orders = new HashMap<>();
+    private final Map<String, Set<String>> orderRefsByUser = new HashMap<>();
+    private final Map<Integer, Level> buyLevels = new HashMap<>();
+    private final Map<Integer, Level> sellLevels = new HashMap<>();
+    private final PriceLadder buyLadder = new PriceLadder(BUY);
+    private final PriceLadder sellLadder = new PriceLadder(SELL);
+    private long lastTradeId;
+
+    /**
+     * @param tradeListener receives every trade as it happens
+     */
+    public MatchingBook(TradeListener tradeListener) {
+        this.tradeListener = Objects.requireNonNull(tradeListener, "TradeListener must not be blank");
+    }
+
+    /**
+     * Cross an incoming order against the opposite side for as long as prices overlap, best price first and
+     * oldest order first within a price, then rest whatever is left of it
+     *
+     * @return the resting remainder of the order, null if it was completely filled
+     */
+    public Order submit(Order order) {
+        BuySell buySell = order.getBuySell();
+        PriceLadder opposite = ladder(opposite(buySell));
+        Map<Integer, Level> oppositeLevels = levels(opposite(buySell));
+        long remaining = order.getQuantityUnits();
+        while (remaining > 0 && !opposite.isEmpty() && crosses(buySell, order.getPrice(), opposite.getPrice(0))) {
+            int price = opposite.getPrice(0);
+            Level level = oppositeLevels.get(price);
+            RestingOrder resting = level.head;
+            long fill = Math.min(remaining, resting.order.getQuantityUnits());
+            remaining -= fill;
+            if (fill == resting.order.getQuantityUnits()) {
+                unlink(oppositeLevels, price, level, resting);
+                forget(resting.order);
+                opposite.remove(price, fill);
+            } else {
+                Order filled = resting.order;
+                resting.order = Order.ofQuantityUnits(filled.getOrderRef(), filled.getUserId(),
+                        filled.getQuantityUnits() - fill, price, filled.getBuySell());
+                opposite.adjust(price, -fill);
+            }
+            trade(order, resting.order, fill, price);
+        }
+        if (remaining <= 0) {
+            return null;
+        }
+        Order rest = remaining == order.getQuantityUnits() ? order
+                : Order.ofQuantityUnits(order.getOrderRef(), order.getUserId(), remaining, order.getPrice(), buySell);
+        add(rest);
+        return rest;
+    }
+
+    /**
+     * Remove a resting order
+     *
+     * @return the order with its unfilled quantity, null if no such order is resting
+     */
+    public Order cancel(String orderRef) {
+        RestingOrder resting = orders.get(orderRef);
+        if (resting == null) {
+            return null;
+        }
+        Order order = resting.order;
+        Map<Integer, Level> levels = levels(order.getBuySell());
+        unlink(levels, order.getPrice(), levels.get(order.getPrice()), resting);
+        forget(order);
+        ladder(order.getBuySell()).remove(order.getPrice(), order.getQuantityUnits());
+        return order;
+    }
+
+    /**
+     * Amend a resting order. Reducing its quantity at the same price keeps its place in the level, any other
+     * change loses it: the order is taken off the book and submitted again, so at a crossing price it trades.
+     *
+     * @param amended the order with its new quantity and price
+     * @return the order as it was before the amendment, null if no such order is resting
+     */
+    public Order amend(Order amended) {
+        RestingOrder resting = orders.get(amended.getOrderRef());
+        if (resting == null) {
+            return null;
+        }
+        Order previous = resting.order;
+        if (amended.getPrice() == previous.getPrice() && amended.getQuantityUnits() <= previous.getQuantityUnits()) {
+            resting.order = amended;
+            ladder(previous.getBuySell()).adjust(previous.getPrice(),
+                    amended.getQuantityUnits() - previous.getQuantityUnits());
+        } else {
+            cancel(previous.getOrderRef());
+            submit(amended);
+        }
+        return previous;
+    }
+
+    /**
+     * @return the resting order with its unfilled quantity, null if no such order is resting
+     */
+    public Order get(String orderRef) {
+        RestingOrder resting = orders.get(orderRef);
+        return resting == null ? null : resting.order;
+    }
+
+    /**
+     * Add the resting orders of one side to out, best price first and oldest first within a price
+     */
+    public void orders(BuySell buySell, List<Order> out) {
+        PriceLadder ladder = ladder(buySell);
+        Map<Integer, Level> levels = levels(buySell);
+        for (int i = 0; i < ladder.size(); i++) {
+            for (RestingOrder resting = levels.get(ladder.getPrice(i)).head; resting != null; resting = resting.next) {
+                out.add(resting.order);
+            }
+        }
+    }
+
+    /**
+     * Add the resting orders of one user to out
+     */
+    public void ordersForUser(String userId, List<Order> out) {
+        Set<String> orderRefs = orderRefsByUser.get(userId);
+        if (orderRefs != null) {
+            for (String orderRef : orderRefs) {
+                out.add(orders.get(orderRef).order);
+            }
+        }
+    }
+
+    /**
+     * @return the aggregated resting levels of one side
+     */
+    public PriceLadder ladder(BuySell buySell) {
+        return buySell == BUY ? buyLadder : sellLadder;
+    }
+
+    private Map<Integer, Level> levels(BuySell buySell) {
+        return buySell == BUY ? buyLevels : sellLevels;
+    }
+
+    private static BuySell opposite(BuySell buySell) {
+        return buySell == BUY ? SELL : BUY;
+    }
+
+    private static boolean crosses(BuySell buySell, int price, int oppositePrice) {
+        return buySell == BUY ? oppositePrice <= price : oppositePrice >= price;
+    }
+
+    private void add(Order order) {
+        RestingOrder resting = new RestingOrder(order);
+        orders.put(order.getOrderRef(), resting);
+        orderRefsByUser.computeIfAbsent(order.getUserId(), userId -> new LinkedHashSet<>()).add(order.getOrderRef());
+        Level level = levels(order.getBuySell()).computeIfAbsent(order.getPrice(), price -> new Level());
+        if (level.tail == null) {
+            level.head = resting;
+        } else {
+            level.tail.next = resting;
+            resting.previous = level.tail;
+        }
+        level.tail = resting;
+        ladder(order.getBuySell()).add(order.getPrice(), order.getQuantityUnits());
+    }
+
+    private static void unlink(Map<Integer, Level> levels, int price, Level level, RestingOrder resting) {
+        if (resting.previous == null) {
+            level.head = resting.next;
+        } else {
+            resting.previous.next = resting.next;
+        }
+        if (resting.next == null) {
+            level.tail = resting.previous;
+        } else {
+            resting.next.previous = resting.previous;
+        }
+        if (level.head == null) {
+            levels.remove(price);
+        }
+    }
+
+    private void forget(Order order) {
+        orders.remove(order.getOrderRef());
+        Set<String> orderRefs = orderRefsByUser.get(order.getUserId());
+        orderRefs.remove(order.getOrderRef());
+        if (orderRefs.isEmpty()) {
+            orderRefsByUser.remove(order.getUserId());
+        }
+    }
+
+    private void trade(Order incoming, Order resting, long quantity, int price) {
+        String buyOrderRef = incoming.getBuySell() == BUY ? incoming.getOrderRef() : resting.getOrderRef();
+        String sellOrderRef = incoming.getBuySell() == BUY ? resting.getOrderRef() : incoming.getOrderRef();
+        Trade trade = new Trade(++lastTradeId, buyOrderRef, sellOrderRef, quantity, price, incoming.getBuySell());
+        try {
+            tradeListener.onTrade(trade);
+        } catch (RuntimeException e) {
+            // the book is already updated, a failing listener must not leave a fill half applied
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package matching;
+
+import model.Trade;
+
+/**
+ * Receives trades on the matching thread, in trade order, while the book is locked
+ */
+public interface TradeListener {
+
+    /**
+     * Should be quick and must not call back into the book, exceptions are ignored
+     */
+    void onTrade(Trade trade);
+}
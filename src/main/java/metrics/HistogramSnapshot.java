@@ -0,0 +1,69 @@
+package metrics;
+
+/**
+ * Counts of a {@link LatencyHistogram} at one point in time, values are reported as the highest value
+ * of their bucket
+ */
+public final class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+
+    HistogramSnapshot(long[] counts) {
+        this.counts = counts;
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return the value at or below which percentile percent of the values fall, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException(String.format("Percentile=%s not allowed", percentile));
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return LatencyHistogram.highestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    public long getMax() {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return LatencyHistogram.highestValue(i);
+            }
+        }
+        return 0;
+    }
+
+    public double getMean() {
+        if (count == 0) {
+            return 0;
+        }
+        double total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += (double) counts[i] * LatencyHistogram.highestValue(i);
+        }
+        return total / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%s p50=%s p99=%s p99.9=%s max=%s", count, getValueAtPercentile(50),
+                getValueAtPercentile(99), getValueAtPercentile(99.9), getMax());
+    }
+}
@@ -0,0 +1,72 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent log-linear histogram of latencies in nanoseconds, in the style of HdrHistogram.
+ * <p>
+ * Values below 32 have a bucket each, above that every power of two is split into 16 buckets, so a recorded value
+ * is known to within 1/16 of itself. Values above {@link #MAX_VALUE} are counted as MAX_VALUE. Counts are striped
+ * across threads so recording is one uncontended atomic increment and never allocates.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * About 18 minutes
+     */
+    public static final long MAX_VALUE = (1L << 40) - 1;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BUCKETS = SUB_BUCKETS << 1;
+    static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+    private static final int MAX_STRIPES = 8;
+
+    private final int stripeMask;
+    private final AtomicLongArray counts;
+
+    public LatencyHistogram() {
+        int stripes = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES));
+        this.stripeMask = stripes - 1;
+        this.counts = new AtomicLongArray(stripes * BUCKET_COUNT);
+    }
+
+    /**
+     * @param nanos the latency, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        counts.incrementAndGet(stripe * BUCKET_COUNT + bucketIndex(Math.min(Math.max(nanos, 0), MAX_VALUE)));
+    }
+
+    /**
+     * @return the counts recorded so far, merged across stripes
+     */
+    public HistogramSnapshot snapshot() {
+        long[] merged = new long[BUCKET_COUNT];
+        for (int i = 0; i < counts.length(); i++) {
+            merged[i % BUCKET_COUNT] += counts.get(i);
+        }
+        return new HistogramSnapshot(merged);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return the highest value counted in the bucket
+     */
+    static long highestValue(int bucketIndex) {
+        if (bucketIndex < LINEAR_BUCKETS) {
+            return bucketIndex;
+        }
+        int shift = (bucketIndex - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long subBucket = (bucketIndex - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
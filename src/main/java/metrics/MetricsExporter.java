@@ -0,0 +1,9 @@
+package metrics;
+
+/**
+ * Publishes metrics snapshots to a monitoring system
+ */
+public interface MetricsExporter {
+
+    void export(MetricsSnapshot snapshot);
+}
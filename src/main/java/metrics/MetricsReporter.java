@@ -0,0 +1,47 @@
+package metrics;
+
+import java.io.Closeable;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports a snapshot of the metrics at a fixed interval from a background thread
+ */
+public class MetricsReporter implements Closeable {
+
+    private final OrderServiceMetrics metrics;
+    private final MetricsExporter exporter;
+    private final ScheduledExecutorService scheduler;
+
+    public MetricsReporter(OrderServiceMetrics metrics, MetricsExporter exporter, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException(String.format("IntervalMillis=%s not allowed", intervalMillis));
+        }
+        this.metrics = Objects.requireNonNull(metrics, "Metrics must not be blank");
+        this.exporter = Objects.requireNonNull(exporter, "Exporter must not be blank");
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Export a snapshot now
+     */
+    public void report() {
+        try {
+            exporter.export(metrics.snapshot());
+        } catch (RuntimeException e) {
+            // a failing exporter must not stop later reports
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
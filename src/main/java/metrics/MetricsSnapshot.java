@@ -0,0 +1,43 @@
+package metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Operation metrics and gauge values taken at one point in time
+ */
+public final class MetricsSnapshot {
+
+    private final long timestampMillis;
+    private final Map<Operation, OperationSnapshot> operations;
+    private final Map<String, Long> gauges;
+
+    MetricsSnapshot(long timestampMillis, Map<Operation, OperationSnapshot> operations, Map<String, Long> gauges) {
+        this.timestampMillis = timestampMillis;
+        this.operations = Collections.unmodifiableMap(operations);
+        this.gauges = Collections.unmodifiableMap(gauges);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public OperationSnapshot getOperation(Operation operation) {
+        return operations.get(operation);
+    }
+
+    public Map<Operation, OperationSnapshot> getOperations() {
+        return operations;
+    }
+
+    /**
+     * @return the value of a gauge, null if there is no such gauge
+     */
+    public Long getGauge(String name) {
+        return gauges.get(name);
+    }
+
+    public Map<String, Long> getGauges() {
+        return gauges;
+    }
+}
@@ -0,0 +1,9 @@
+package metrics;
+
+/**
+ * The LiveOrderService calls that are timed
+ */
+public enum Operation {
+    REGISTER, REGISTER_BATCH, GET, CANCEL, CANCEL_BATCH, AMEND, ORDERS_FOR_USER, CANCEL_ALL_FOR_USER, SUMMARY,
+    BOOK_SNAPSHOT
+}
@@ -0,0 +1,53 @@
+package metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Counts and latencies of one operation since the metrics were created
+ */
+public final class OperationSnapshot {
+
+    /**
+     * Every call, including those that threw
+     */
+    private final long calls;
+    /**
+     * Error counts by exception simple name
+     */
+    private final Map<String, Long> errors;
+    private final HistogramSnapshot latency;
+
+    OperationSnapshot(long calls, Map<String, Long> errors, HistogramSnapshot latency) {
+        this.calls = calls;
+        this.errors = Collections.unmodifiableMap(errors);
+        this.latency = latency;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public Map<String, Long> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the count of errors of one exception type, e.g. {@code OrderNotFound}
+     */
+    public long getErrors(String exceptionName) {
+        return errors.getOrDefault(exceptionName, 0L);
+    }
+
+    /**
+     * @return call latencies in nanoseconds
+     */
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("calls=%s errors=%s latency %s", calls, errors, latency);
+    }
+}
@@ -0,0 +1,91 @@
+package metrics;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Call counts, error counts by exception type and latency histograms per {@link Operation}, plus named gauges
+ * read when a snapshot is taken.
+ * <p>
+ * Recording a call touches a striped counter and a striped histogram and does not allocate, apart from the first
+ * error of each exception type per operation.
+ */
+public final class OrderServiceMetrics {
+
+    private static final class OperationMetrics {
+        private final LongAdder calls = new LongAdder();
+        private final ConcurrentMap<Class<?>, LongAdder> errors = new ConcurrentHashMap<>();
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    private static final class Gauge {
+        private final String name;
+        private final LongSupplier value;
+
+        private Gauge(String name, LongSupplier value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private final OperationMetrics[] operations = new OperationMetrics[Operation.values().length];
+    private final CopyOnWriteArrayList<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    public OrderServiceMetrics() {
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = new OperationMetrics();
+        }
+    }
+
+    /**
+     * Record a call that returned normally
+     *
+     * @param startNanos {@link System#nanoTime()} when the call started
+     */
+    public void record(Operation operation, long startNanos) {
+        OperationMetrics metrics = operations[operation.ordinal()];
+        metrics.latency.record(System.nanoTime() - startNanos);
+        metrics.calls.increment();
+    }
+
+    /**
+     * Record a call that threw, counted as a call as well as an error of the exception's type
+     *
+     * @param startNanos {@link System#nanoTime()} when the call started
+     */
+    public void recordError(Operation operation, RuntimeException error, long startNanos) {
+        record(operation, startNanos);
+        operations[operation.ordinal()].errors.computeIfAbsent(error.getClass(), type -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * Add a gauge, read each time a snapshot is taken so it should be cheap
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.add(new Gauge(name, value));
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<Operation, OperationSnapshot> operationSnapshots = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            OperationMetrics metrics = operations[operation.ordinal()];
+            Map<String, Long> errors = new TreeMap<>();
+            metrics.errors.forEach((type, count) -> errors.put(type.getSimpleName(), count.sum()));
+            operationSnapshots.put(operation,
+                    new OperationSnapshot(metrics.calls.sum(), errors, metrics.latency.snapshot()));
+        }
+        Map<String, Long> gaugeValues = new LinkedHashMap<>();
+        for (Gauge gauge : gauges) {
+            gaugeValues.put(gauge.name, gauge.value.getAsLong());
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), operationSnapshots, gaugeValues);
+    }
+}
@@ -0,0 +1,49 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Buy and Sell order summaries taken at the same point in time
+ */
+public final class BookSnapshot {
+
+    /**
+     * Increases with every change to the book, snapshots with the same sequence have the same summaries
+     */
+    private final long sequence;
+    private final List<OrderSummary> buySummary;
+    private final List<OrderSummary> sellSummary;
+
+    public BookSnapshot(long sequence, List<OrderSummary> buySummary, List<OrderSummary> sellSummary) {
+        this.sequence = sequence;
+        Objects.requireNonNull(buySummary, "BuySummary must not be blank");
+        Objects.requireNonNull(sellSummary, "SellSummary must not be blank");
+        this.buySummary = Collections.unmodifiableList(buySummary);
+        this.sellSummary = Collections.unmodifiableList(sellSummary);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the Buy levels, highest price first
+     */
+    public List<OrderSummary> getBuySummary() {
+        return buySummary;
+    }
+
+    /**
+     * @return the Sell levels, lowest price first
+     */
+    public List<OrderSummary> getSellSummary() {
+        return sellSummary;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%s buy %s sell %s", sequence, buySummary, sellSummary);
+    }
+}
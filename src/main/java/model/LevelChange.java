@@ -0,0 +1,5 @@
+package model;
+
+public enum LevelChange {
+    ADDED, CHANGED, REMOVED
+}
@@ -4,6 +4,7 @@ import java.util.Objects;
 
 import static validate.InputValidator.validatePrice;
 import static validate.InputValidator.validateQuantity;
+import static validate.InputValidator.validateQuantityUnits;
 import static validate.InputValidator.validateUserId;
 
 /**
@@ -11,7 +12,7 @@ import static validate.InputValidator.validateUserId;
  */
 public final class Order {
     /**
-     * UUID for registered order
+     * Unique reference for registered order
      */
     private final String orderRef;
     /**
@@ -19,9 +20,9 @@ public final class Order {
      */
     private final String userId;
     /**
-     * The order quantity, must be greater than zero
+     * The order quantity in {@link QuantityScale} units, must be greater than zero
      */
-    private final double quantity;
+    private final long quantity;
     /**
      * The order price must be greater than zero
      */
@@ -31,12 +32,19 @@ public final class Order {
      */
     private final BuySell buySell;
 
+    /**
+     * @param quantity in kg, rounded to the nearest {@link QuantityScale} unit
+     */
     public Order(String orderRef, String userId, double quantity, int price, BuySell buySell) {
+        this(orderRef, userId, validQuantityUnits(quantity), price, buySell);
+    }
+
+    private Order(String orderRef, String userId, long quantity, int price, BuySell buySell) {
         Objects.requireNonNull(orderRef, "OrderRef must not be blank");
         Objects.requireNonNull(buySell, "BuySell must not be blank");
 
         validateUserId(userId);
-        validateQuantity(quantity);
+        validateQuantityUnits(quantity);
         validatePrice(price);
 
         this.orderRef = orderRef;
@@ -46,6 +54,19 @@ public final class Order {
         this.buySell = buySell;
     }
 
+    /**
+     * Create an order from a quantity already in {@link QuantityScale} units
+     */
+    public static Order ofQuantityUnits(String orderRef, String userId, long quantityUnits, int price,
+                                        BuySell buySell) {
+        return new Order(orderRef, userId, quantityUnits, price, buySell);
+    }
+
+    private static long validQuantityUnits(double quantity) {
+        validateQuantity(quantity);
+        return QuantityScale.toUnits(quantity);
+    }
+
     public String getOrderRef() {
         return orderRef;
     }
@@ -54,7 +75,17 @@ public final class Order {
         return userId;
     }
 
+    /**
+     * @return the quantity in kg
+     */
     public double getQuantity() {
+        return QuantityScale.toQuantity(quantity);
+    }
+
+    /**
+     * @return the quantity in {@link QuantityScale} units
+     */
+    public long getQuantityUnits() {
         return quantity;
     }
 
@@ -0,0 +1,46 @@
+package model;
+
+/**
+ * Request to register an Order, used to submit orders in batches
+ */
+public final class OrderRequest {
+    /**
+     * The userId for user registering the order
+     */
+    private final String userId;
+    /**
+     * The order quantity
+     */
+    private final double quantity;
+    /**
+     * The order price
+     */
+    private final int price;
+    /**
+     * Buy or Sell transaction type
+     */
+    private final BuySell buySell;
+
+    public OrderRequest(String userId, double quantity, int price, BuySell buySell) {
+        this.userId = userId;
+        this.quantity = quantity;
+        this.price = price;
+        this.buySell = buySell;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public double getQuantity() {
+        return quantity;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+
+    public BuySell getBuySell() {
+        return buySell;
+    }
+}
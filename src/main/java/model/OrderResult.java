@@ -0,0 +1,42 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * Outcome of one item of a batch request, either the Order or the exception that item failed with
+ */
+public final class OrderResult {
+    private final Order order;
+    private final RuntimeException error;
+
+    private OrderResult(Order order, RuntimeException error) {
+        this.order = order;
+        this.error = error;
+    }
+
+    public static OrderResult success(Order order) {
+        return new OrderResult(Objects.requireNonNull(order, "Order must not be blank"), null);
+    }
+
+    public static OrderResult failure(RuntimeException error) {
+        return new OrderResult(null, Objects.requireNonNull(error, "Error must not be blank"));
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the registered or canceled Order, null if the item failed
+     */
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * @return the exception the item failed with, null if it succeeded
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+}
@@ -5,18 +5,51 @@ import validate.InputValidator;
 import java.util.Objects;
 
 public class OrderSummary {
-    private final double quantity;
+    /**
+     * Total quantity in {@link QuantityScale} units
+     */
+    private final long quantity;
     private final int price;
 
+    /**
+     * @param quantity in kg, rounded to the nearest {@link QuantityScale} unit
+     */
     public OrderSummary(double quantity, int price) {
-        InputValidator.validateQuantity(quantity);
+        this(validQuantityUnits(quantity), price);
+    }
+
+    private OrderSummary(long quantity, int price) {
+        InputValidator.validateTotalQuantityUnits(quantity);
         InputValidator.validatePrice(price);
 
         this.quantity = quantity;
         this.price = price;
     }
 
+    /**
+     * Create a summary from a total quantity already in {@link QuantityScale} units, which may be more than any
+     * one order is allowed
+     */
+    public static OrderSummary ofQuantityUnits(long quantityUnits, int price) {
+        return new OrderSummary(quantityUnits, price);
+    }
+
+    private static long validQuantityUnits(double quantity) {
+        InputValidator.validateQuantity(quantity);
+        return QuantityScale.toUnits(quantity);
+    }
+
+    /**
+     * @return the total quantity in kg
+     */
     public double getQuantity() {
+        return QuantityScale.toQuantity(quantity);
+    }
+
+    /**
+     * @return the total quantity in {@link QuantityScale} units
+     */
+    public long getQuantityUnits() {
         return quantity;
     }
 
@@ -29,17 +62,17 @@ public class OrderSummary {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         OrderSummary that = (OrderSummary) o;
-        return Double.compare(that.getQuantity(), getQuantity()) == 0 &&
+        return that.getQuantityUnits() == getQuantityUnits() &&
                 getPrice() == that.getPrice();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getQuantity(), getPrice());
+        return Objects.hash(getQuantityUnits(), getPrice());
     }
 
     @Override
     public String toString() {
-        return String.format("%s kg for £%s", quantity, price);
+        return String.format("%s kg for £%s", getQuantity(), price);
     }
 }
@@ -0,0 +1,66 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * Change to one price level of the order summary
+ */
+public final class PriceLevelUpdate {
+    /**
+     * Buy or Sell side of the level
+     */
+    private final BuySell buySell;
+    /**
+     * The level price
+     */
+    private final int price;
+    /**
+     * The new aggregate quantity of the level, 0 when the level was removed
+     */
+    private final double quantity;
+    private final LevelChange change;
+
+    public PriceLevelUpdate(BuySell buySell, int price, double quantity, LevelChange change) {
+        this.buySell = Objects.requireNonNull(buySell, "BuySell must not be blank");
+        this.price = price;
+        this.quantity = quantity;
+        this.change = Objects.requireNonNull(change, "LevelChange must not be blank");
+    }
+
+    public BuySell getBuySell() {
+        return buySell;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+
+    public double getQuantity() {
+        return quantity;
+    }
+
+    public LevelChange getChange() {
+        return change;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PriceLevelUpdate that = (PriceLevelUpdate) o;
+        return getPrice() == that.getPrice() &&
+                Double.compare(that.getQuantity(), getQuantity()) == 0 &&
+                getBuySell() == that.getBuySell() &&
+                getChange() == that.getChange();
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getBuySell(), getPrice(), getQuantity(), getChange());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s kg for £%s", change, buySell, quantity, price);
+    }
+}
@@ -0,0 +1,49 @@
+package model;
+
+/**
+ * Fixed-point scale of order quantities.
+ * <p>
+ * Quantities are held as a whole number of units of {@code 1 / UNITS_PER_KG} kg, so level totals are exact long
+ * sums that never drift however often orders are added and removed. A quantity given in kg is rounded to the
+ * nearest unit. The scale is read once from the {@code quantity.unitsPerKg} system property, by default
+ * 1000 units per kg, i.e. grams.
+ */
+public final class QuantityScale {
+
+    public static final long UNITS_PER_KG = unitsPerKg(System.getProperty("quantity.unitsPerKg", "1000"));
+
+    /**
+     * Largest quantity in units, every quantity up to it converts to kg and back exactly
+     */
+    public static final long MAX_UNITS = 1L << 53;
+
+    /**
+     * @return the quantity in units, rounded to the nearest unit
+     */
+    public static long toUnits(double quantity) {
+        return Math.round(quantity * UNITS_PER_KG);
+    }
+
+    /**
+     * @return the quantity in kg
+     */
+    public static double toQuantity(long units) {
+        return units / (double) UNITS_PER_KG;
+    }
+
+    static long unitsPerKg(String value) {
+        long unitsPerKg;
+        try {
+            unitsPerKg = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            unitsPerKg = 0;
+        }
+        if (unitsPerKg <= 0 || unitsPerKg > 1_000_000_000L) {
+            throw new IllegalArgumentException(String.format("UnitsPerKg=%s not allowed", value));
+        }
+        return unitsPerKg;
+    }
+
+    private QuantityScale() {
+    }
+}
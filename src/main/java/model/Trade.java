@@ -0,0 +1,74 @@
+package model;
+
+import java.util.Objects;
+
+/**
+ * A fill between an incoming order and an order resting on the opposite side, at the resting order's price
+ */
+public final class Trade {
+    /**
+     * Increasing trade identifier, in the order trades happened
+     */
+    private final long tradeId;
+    private final String buyOrderRef;
+    private final String sellOrderRef;
+    /**
+     * Filled quantity in {@link QuantityScale} units
+     */
+    private final long quantity;
+    private final int price;
+    /**
+     * Side of the incoming order that crossed the book
+     */
+    private final BuySell aggressor;
+
+    public Trade(long tradeId, String buyOrderRef, String sellOrderRef, long quantityUnits, int price,
+                 BuySell aggressor) {
+        this.tradeId = tradeId;
+        this.buyOrderRef = Objects.requireNonNull(buyOrderRef, "BuyOrderRef must not be blank");
+        this.sellOrderRef = Objects.requireNonNull(sellOrderRef, "SellOrderRef must not be blank");
+        this.quantity = quantityUnits;
+        this.price = price;
+        this.aggressor = Objects.requireNonNull(aggressor, "Aggressor must not be blank");
+    }
+
+    public long getTradeId() {
+        return tradeId;
+    }
+
+    public String getBuyOrderRef() {
+        return buyOrderRef;
+    }
+
+    public String getSellOrderRef() {
+        return sellOrderRef;
+    }
+
+    /**
+     * @return the filled quantity in kg
+     */
+    public double getQuantity() {
+        return QuantityScale.toQuantity(quantity);
+    }
+
+    /**
+     * @return the filled quantity in {@link QuantityScale} units
+     */
+    public long getQuantityUnits() {
+        return quantity;
+    }
+
+    public int getPrice() {
+        return price;
+    }
+
+    public BuySell getAggressor() {
+        return aggressor;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%s %s kg at %s buy %s sell %s", tradeId, getQuantity(), price, buyOrderRef,
+                sellOrderRef);
+    }
+}
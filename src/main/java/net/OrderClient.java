@@ -0,0 +1,318 @@
+package net;
+
+import codec.CancelOrderCodec;
+import codec.ErrorCodec;
+import codec.GetOrderCodec;
+import codec.MessageHeader;
+import codec.OrderCodec;
+import codec.RegisterOrderCodec;
+import codec.SummaryCodec;
+import codec.SummaryRequestCodec;
+import exception.IllegalPrice;
+import exception.IllegalQuantity;
+import exception.IllegalUserId;
+import exception.OrderNotFound;
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import model.QuantityScale;
+import service.AsyncLiveOrderService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static codec.MessageHeader.HEADER_LENGTH;
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static validate.InputValidator.validatePrice;
+import static validate.InputValidator.validateQuantity;
+import static validate.InputValidator.validateUserId;
+
+/**
+ * AsyncLiveOrderService calling an {@link OrderServer} over one TCP connection.
+ * <p>
+ * Calls are pipelined: each is written as soon as it is made and returns without waiting for the response, so any
+ * number of calls from any number of threads can be in flight at once. The server answers in request order, and a
+ * reader thread completes the futures in that order as the responses arrive. Callbacks attached with the non async
+ * {@link CompletableFuture} methods run on the reader thread and delay every later response.
+ * <p>
+ * A failed call completes exceptionally with the exception the server side call failed with, where it is one of
+ * the service's own exceptions, and with IllegalStateException otherwise. Once the connection is lost every
+ * pending and later call completes exceptionally with IllegalStateException.
+ */
+public class OrderClient implements AsyncLiveOrderService, Closeable {
+
+    /**
+     * A call waiting for its response, summaries collect their levels fragment by fragment
+     */
+    private static final class Pending {
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private final boolean summary;
+
+        private Pending(boolean summary) {
+            this.summary = summary;
+        }
+    }
+
+    private final SocketChannel channel;
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private final Thread reader;
+
+    /**
+     * Guards the write buffer, the channel's writes and the order of pending calls
+     */
+    private final Object writeLock = new Object();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(OrderServer.MAX_FRAME_LENGTH);
+    private boolean closed;
+
+    /**
+     * Reader state, only touched by the reader thread
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(OrderServer.MAX_FRAME_LENGTH);
+    private final OrderCodec orderCodec = new OrderCodec();
+    private final SummaryCodec summaryCodec = new SummaryCodec();
+    private final ErrorCodec errorCodec = new ErrorCodec();
+    private List<OrderSummary> levels = new ArrayList<>();
+
+    /**
+     * Connect to the server
+     */
+    public OrderClient(InetSocketAddress address) {
+        Objects.requireNonNull(address, "Address must not be blank");
+        try {
+            this.channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Address=%s could not be connected", address), e);
+        }
+        this.reader = new Thread(this::run, "order-client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Invalid input is rejected before anything is written
+     */
+    @Override
+    public CompletableFuture<Order> registerOrderAsync(String userId, double quantity, int price, BuySell buySell) {
+        Objects.requireNonNull(buySell, "BuySell must not be blank");
+        validateUserId(userId);
+        validateQuantity(quantity);
+        validatePrice(price);
+        synchronized (writeLock) {
+            if (closed) {
+                return failed();
+            }
+            return send(RegisterOrderCodec.encode(writeBuffer, 0, userId, QuantityScale.toUnits(quantity), price,
+                    buySell), false);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Order> cancelOrderAsync(String orderRef) {
+        if (orderRef == null) {
+            return notFound();
+        }
+        synchronized (writeLock) {
+            if (closed) {
+                return failed();
+            }
+            return send(CancelOrderCodec.encode(writeBuffer, 0, orderRef), false);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Order> getOrderAsync(String orderRef) {
+        if (orderRef == null) {
+            return notFound();
+        }
+        synchronized (writeLock) {
+            if (closed) {
+                return failed();
+            }
+            return send(GetOrderCodec.encode(writeBuffer, 0, orderRef), false);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<OrderSummary>> buySummaryAsync() {
+        return summaryAsync(BUY);
+    }
+
+    @Override
+    public CompletableFuture<List<OrderSummary>> sellSummaryAsync() {
+        return summaryAsync(SELL);
+    }
+
+    /**
+     * Close the connection, calls still waiting for their responses complete exceptionally
+     */
+    @Override
+    public void close() {
+        close(channel);
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<List<OrderSummary>> summaryAsync(BuySell buySell) {
+        synchronized (writeLock) {
+            if (closed) {
+                return failed();
+            }
+            return send(SummaryRequestCodec.encode(writeBuffer, 0, buySell), true);
+        }
+    }
+
+    /**
+     * Write the request encoded at the start of the write buffer, caller must hold the write lock
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> send(int frameLength, boolean summary) {
+        Pending call = new Pending(summary);
+        pending.add(call);
+        writeBuffer.limit(frameLength).position(0);
+        try {
+            while (writeBuffer.hasRemaining()) {
+                channel.write(writeBuffer);
+            }
+        } catch (IOException e) {
+            // the reader sees the closed channel and fails every pending call
+            close(channel);
+        } finally {
+            writeBuffer.clear();
+        }
+        return (CompletableFuture<T>) (CompletableFuture<?>) call.future;
+    }
+
+    private static void close(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(closed());
+        return future;
+    }
+
+    private static <T> CompletableFuture<T> notFound() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new OrderNotFound("OrderRef=null"));
+        return future;
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("Connection closed");
+    }
+
+    private void run() {
+        try {
+            while (channel.read(readBuffer) >= 0 && onResponses()) {
+                // keep reading
+            }
+        } catch (IOException e) {
+            // closed, by close() or by the server
+        } finally {
+            close(channel);
+            synchronized (writeLock) {
+                closed = true;
+            }
+            for (Pending call = pending.poll(); call != null; call = pending.poll()) {
+                call.future.completeExceptionally(closed());
+            }
+        }
+    }
+
+    /**
+     * Complete the calls answered by the responses read so far, leaving a partial one for the next read
+     *
+     * @return false if the server sent a malformed or unexpected frame
+     */
+    private boolean onResponses() {
+        int offset = 0;
+        int end = readBuffer.position();
+        while (end - offset >= HEADER_LENGTH) {
+            int frameLength = MessageHeader.frameLength(readBuffer, offset);
+            if (frameLength < HEADER_LENGTH || frameLength > OrderServer.MAX_FRAME_LENGTH) {
+                return false;
+            }
+            if (end - offset < frameLength) {
+                break;
+            }
+            if (!onResponse(offset)) {
+                return false;
+            }
+            offset += frameLength;
+        }
+        readBuffer.flip();
+        readBuffer.position(offset);
+        readBuffer.compact();
+        return true;
+    }
+
+    private boolean onResponse(int offset) {
+        Pending call = pending.peek();
+        if (call == null) {
+            return false;
+        }
+        switch (MessageHeader.templateId(readBuffer, offset)) {
+            case MessageHeader.ORDER:
+                if (call.summary) {
+                    return false;
+                }
+                pending.poll();
+                call.future.complete(orderCodec.wrap(readBuffer, offset).toOrder());
+                return true;
+            case MessageHeader.SUMMARY:
+                if (!call.summary) {
+                    return false;
+                }
+                summaryCodec.wrap(readBuffer, offset).orderSummaries(levels);
+                if (summaryCodec.isLast()) {
+                    pending.poll();
+                    call.future.complete(levels);
+                    levels = new ArrayList<>();
+                }
+                return true;
+            case MessageHeader.ERROR:
+                pending.poll();
+                errorCodec.wrap(readBuffer, offset);
+                call.future.completeExceptionally(toException(errorCodec.errorType(), errorCodec.message()));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static RuntimeException toException(String errorType, String message) {
+        switch (errorType) {
+            case "OrderNotFound":
+                return new OrderNotFound(message);
+            case "IllegalUserId":
+                return new IllegalUserId(message);
+            case "IllegalQuantity":
+                return new IllegalQuantity(message);
+            case "IllegalPrice":
+                return new IllegalPrice(message);
+            default:
+                return new IllegalStateException(String.format("%s: %s", errorType, message));
+        }
+    }
+}
@@ -0,0 +1,630 @@
+package net;
+
+import codec.CancelOrderCodec;
+import codec.ErrorCodec;
+import codec.GetOrderCodec;
+import codec.MessageHeader;
+import codec.OrderCodec;
+import codec.RegisterOrderCodec;
+import codec.SummaryCodec;
+import codec.SummaryRequestCodec;
+import codec.SummaryStreamEncoder;
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import model.QuantityScale;
+import service.AsyncLiveOrderService;
+import service.LiveOrderService;
+import service.PipelinedLiveOrderService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static codec.MessageHeader.HEADER_LENGTH;
+import static model.BuySell.BUY;
+
+/**
+ * TCP front end serving a {@link LiveOrderService} in the {@code codec} binary protocol, see {@link OrderClient}.
+ * <p>
+ * One acceptor thread hands each connection to one of a few worker threads, each multiplexing its connections over
+ * a {@link Selector}, so a connection costs two small buffers rather than a thread. A client may pipeline any
+ * number of requests without waiting for their responses. A worker never calls the service itself, it passes every
+ * complete request it has read to an {@link AsyncLiveOrderService} and writes the responses as their futures
+ * complete, holding back a response until those of the earlier requests on its connection are written, so
+ * responses always arrive in request order and a slow write, such as a journal fsync, holds up no connection's
+ * reads. Summaries are streamed as {@link SummaryCodec} fragments of bounded size.
+ * <p>
+ * A failed request is answered with an {@link ErrorCodec} frame naming its exception. A connection that sends a
+ * malformed frame is closed. A connection holds at most {@value #MAX_PENDING_RESPONSES} requests in flight and
+ * about {@value #OUT_HIGH_WATER_MARK} bytes of unwritten responses, beyond either its further requests are left
+ * unread until its responses are written, so a client that does not read its responses only holds up itself and
+ * costs the server bounded memory.
+ */
+public class OrderServer implements Closeable {
+
+    public static final int DEFAULT_WORKER_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * Largest frame either end accepts, enough for an order with the longest orderRef and userId
+     */
+    public static final int MAX_FRAME_LENGTH = 1 << 18;
+
+    /**
+     * Length of the fragments summaries are streamed in
+     */
+    public static final int SUMMARY_FRAGMENT_LENGTH = 1 << 14;
+
+    /**
+     * Requests of one connection passed to the service whose responses are not yet encoded
+     */
+    public static final int MAX_PENDING_RESPONSES = 1024;
+
+    /**
+     * Unwritten response bytes of one connection past which no more responses are encoded nor requests applied
+     */
+    public static final int OUT_HIGH_WATER_MARK = 1 << 16;
+
+    private static final int BACKLOG = 1024;
+    private static final int INITIAL_BUFFER_LENGTH = 1024;
+
+    private final AsyncLiveOrderService liveOrderService;
+    /**
+     * The pipeline created to serve a blocking LiveOrderService, closed with the server
+     */
+    private final PipelinedLiveOrderService pipeline;
+    private final ServerSocketChannel serverChannel;
+    private final Worker[] workers;
+    private final Thread acceptor;
+    private final AtomicBoolean closing = new AtomicBoolean();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    public OrderServer(LiveOrderService liveOrderService, InetSocketAddress address) {
+        this(liveOrderService, address, DEFAULT_WORKER_COUNT);
+    }
+
+    /**
+     * Bind and start serving a blocking LiveOrderService through a {@link PipelinedLiveOrderService} of its own
+     *
+     * @param address port 0 binds an ephemeral port, see {@link #getAddress()}
+     */
+    public OrderServer(LiveOrderService liveOrderService, InetSocketAddress address, int workerCount) {
+        this(new PipelinedLiveOrderService(
+                        Objects.requireNonNull(liveOrderService, "LiveOrderService must not be blank")),
+                true, address, workerCount);
+    }
+
+    /**
+     * Bind and start serving
+     *
+     * @param address port 0 binds an ephemeral port, see {@link #getAddress()}
+     */
+    public OrderServer(AsyncLiveOrderService liveOrderService, InetSocketAddress address, int workerCount) {
+        this(liveOrderService, false, address, workerCount);
+    }
+
+    private OrderServer(AsyncLiveOrderService liveOrderService, boolean ownsService, InetSocketAddress address,
+                        int workerCount) {
+        this.liveOrderService = Objects.requireNonNull(liveOrderService, "LiveOrderService must not be blank");
+        this.pipeline = ownsService ? (PipelinedLiveOrderService) liveOrderService : null;
+        Objects.requireNonNull(address, "Address must not be blank");
+        if (workerCount < 1) {
+            throw new IllegalArgumentException(String.format("WorkerCount=%s not allowed", workerCount));
+        }
+        this.workers = new Worker[workerCount];
+        try {
+            this.serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(address, BACKLOG);
+            for (int i = 0; i < workerCount; i++) {
+                workers[i] = new Worker("order-server-" + i);
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(String.format("Address=%s could not be bound", address), e);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+        this.acceptor = new Thread(this::accept, "order-server-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @return the address the server is bound to
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Server closed", e);
+        }
+    }
+
+    /**
+     * @return the number of open connections
+     */
+    public int connectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Stop accepting, close every connection and stop the threads. Responses not yet written are dropped, the
+     * served service is left open, the pipeline created for a blocking LiveOrderService is closed.
+     */
+    @Override
+    public void close() {
+        if (!closing.compareAndSet(false, true)) {
+            return;
+        }
+        closeQuietly(serverChannel);
+        for (Worker worker : workers) {
+            if (worker != null) {
+                worker.stop();
+            }
+        }
+        try {
+            if (acceptor != null) {
+                acceptor.join();
+            }
+            for (Worker worker : workers) {
+                if (worker != null) {
+                    worker.thread.join();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (!closing.get()) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                // closed, or out of file descriptors, which leaves nothing to do but retry
+                continue;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                closeQuietly(channel);
+                continue;
+            }
+            connectionCount.incrementAndGet();
+            workers[next].add(channel);
+            next = (next + 1) % workers.length;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+
+
+    /**
+     * A client connection. Both buffers are kept ready for writing, in holds the bytes read but not yet applied and
+     * out the responses not yet written. Only completionQueued is touched outside the worker thread.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER_LENGTH);
+        private ByteBuffer out = ByteBuffer.allocate(INITIAL_BUFFER_LENGTH);
+        /**
+         * Responses of the applied requests not yet encoded into out, in request order
+         */
+        private final ArrayDeque<Response> responses = new ArrayDeque<>();
+        /**
+         * true while the connection waits in its worker's queue of connections with completed responses
+         */
+        private final AtomicBoolean completionQueued = new AtomicBoolean();
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Make room for length more bytes of responses
+         */
+        private void ensureOut(int length) {
+            if (out.remaining() < length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + length));
+                out.flip();
+                grown.put(out);
+                out = grown;
+            }
+        }
+    }
+
+    /**
+     * The future answer to one request
+     */
+    private static final class Response {
+        private final CompletableFuture<?> future;
+        /**
+         * The side of a summary, null for an order
+         */
+        private final BuySell summarySide;
+
+        private Response(CompletableFuture<?> future, BuySell summarySide) {
+            this.future = future;
+            this.summarySide = summarySide;
+        }
+    }
+
+    /**
+     * Selector thread serving its share of the connections
+     */
+    private final class Worker {
+        private final Thread thread;
+        private final Selector selector;
+        private final Queue<SocketChannel> added = new ConcurrentLinkedQueue<>();
+        /**
+         * Connections whose responses completed since the worker last looked
+         */
+        private final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+        private volatile boolean stopped;
+
+        /**
+         * Decoding and encoding state, only touched by the worker thread
+         */
+        private final RegisterOrderCodec registerOrder = new RegisterOrderCodec();
+        private final CancelOrderCodec cancelOrder = new CancelOrderCodec();
+        private final GetOrderCodec getOrder = new GetOrderCodec();
+        private final SummaryRequestCodec summaryRequest = new SummaryRequestCodec();
+        private final SummaryStreamEncoder summaryEncoder =
+                new SummaryStreamEncoder(ByteBuffer.allocate(SUMMARY_FRAGMENT_LENGTH), this::onSummaryFragment);
+        private Connection current;
+
+        private Worker(String name) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+        }
+
+        private void add(SocketChannel channel) {
+            added.add(channel);
+            selector.wakeup();
+        }
+
+        private void stop() {
+            stopped = true;
+            selector.wakeup();
+        }
+
+        private void run() {
+            try {
+                while (!stopped) {
+                    selector.select();
+                    register();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        onReady(key);
+                    }
+                    for (Connection connection = completed.poll(); connection != null; connection = completed.poll()) {
+                        connection.completionQueued.set(false);
+                        if (connection.key.isValid()) {
+                            serve(connection);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // the selector failed, nothing more can be served
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeConnection(key);
+                }
+                for (SocketChannel channel = added.poll(); channel != null; channel = added.poll()) {
+                    connectionCount.decrementAndGet();
+                    closeQuietly(channel);
+                }
+                closeQuietly(selector);
+            }
+        }
+
+        private void register() {
+            for (SocketChannel channel = added.poll(); channel != null; channel = added.poll()) {
+                Connection connection = new Connection(channel);
+                try {
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (ClosedChannelException e) {
+                    connectionCount.decrementAndGet();
+                }
+            }
+        }
+
+        private void onReady(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            if (key.isValid() && key.isReadable()) {
+                try {
+                    if (connection.channel.read(connection.in) < 0) {
+                        closeConnection(key);
+                        return;
+                    }
+                } catch (IOException e) {
+                    closeConnection(key);
+                    return;
+                }
+            }
+            if (key.isValid()) {
+                serve(connection);
+            }
+        }
+
+        /**
+         * Called from the thread completing a response, hands the connection back to the worker
+         */
+        private void onCompleted(Connection connection) {
+            if (connection.completionQueued.compareAndSet(false, true)) {
+                completed.add(connection);
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Encode the responses completed in request order and write them, applying the requests read so far
+         * whenever every response encoded is written. Reads more requests only once nothing is left to write and
+         * the connection has room for more requests in flight, writes first while responses are left unwritten,
+         * and otherwise waits for a response to complete.
+         */
+        private void serve(Connection connection) {
+            SelectionKey key = connection.key;
+            try {
+                boolean progress;
+                do {
+                    progress = encodeCompleted(connection);
+                    if (!flush(connection)) {
+                        key.interestOps(SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    int applied = apply(connection);
+                    if (applied < 0) {
+                        closeConnection(key);
+                        return;
+                    }
+                    progress |= applied > 0;
+                } while (progress);
+                key.interestOps(connection.responses.size() < MAX_PENDING_RESPONSES ? SelectionKey.OP_READ : 0);
+            } catch (IOException e) {
+                closeConnection(key);
+            }
+        }
+
+        /**
+         * Encode the completed responses at the head of the queue until out reaches its high water mark
+         *
+         * @return true if any was encoded
+         */
+        private boolean encodeCompleted(Connection connection) {
+            boolean encoded = false;
+            current = connection;
+            try {
+                for (Response response = connection.responses.peek();
+                     response != null && response.future.isDone()
+                             && connection.out.position() < OUT_HIGH_WATER_MARK;
+                     response = connection.responses.peek()) {
+                    connection.responses.poll();
+                    encode(connection, response);
+                    encoded = true;
+                }
+            } finally {
+                current = null;
+            }
+            return encoded;
+        }
+
+        /**
+         * Apply the complete requests read so far while the connection has room for their responses, leaving the
+         * rest and a partial request in the buffer
+         *
+         * @return the number of requests applied, -1 if the connection sent a malformed frame
+         */
+        private int apply(Connection connection) {
+            ByteBuffer in = connection.in;
+            int offset = 0;
+            int end = in.position();
+            int applied = 0;
+            boolean partial = false;
+            while (connection.responses.size() < MAX_PENDING_RESPONSES
+                    && connection.out.position() < OUT_HIGH_WATER_MARK) {
+                if (end - offset < HEADER_LENGTH) {
+                    partial = true;
+                    break;
+                }
+                int frameLength = MessageHeader.frameLength(in, offset);
+                if (frameLength < HEADER_LENGTH || frameLength > MAX_FRAME_LENGTH) {
+                    return -1;
+                }
+                if (end - offset < frameLength) {
+                    partial = true;
+                    break;
+                }
+                if (!isWellFormed(in, offset)) {
+                    return -1;
+                }
+                onRequest(connection, in, offset);
+                offset += frameLength;
+                applied++;
+            }
+            if (offset > 0) {
+                in.flip();
+                in.position(offset);
+                in.compact();
+            }
+            if (partial && !in.hasRemaining()) {
+                // a frame larger than the buffer
+                ByteBuffer grown = ByteBuffer.allocate(Math.min(in.capacity() * 2, MAX_FRAME_LENGTH));
+                in.flip();
+                grown.put(in);
+                connection.in = grown;
+            }
+            return applied;
+        }
+
+        /**
+         * Check the frame is a request whose fields, strings included, lie within its frame length and whose side
+         * is BUY or SELL, so nothing is read from the bytes of other frames
+         */
+        private boolean isWellFormed(ByteBuffer in, int offset) {
+            try {
+                switch (MessageHeader.templateId(in, offset)) {
+                    case MessageHeader.REGISTER_ORDER:
+                        registerOrder.wrap(in, offset).buySell();
+                        return true;
+                    case MessageHeader.CANCEL_ORDER:
+                        cancelOrder.wrap(in, offset);
+                        return true;
+                    case MessageHeader.GET_ORDER:
+                        getOrder.wrap(in, offset);
+                        return true;
+                    case MessageHeader.SUMMARY_REQUEST:
+                        summaryRequest.wrap(in, offset).buySell();
+                        return true;
+                    default:
+                        return false;
+                }
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Pass a well formed request to the service and queue its response
+         */
+        private void onRequest(Connection connection, ByteBuffer in, int offset) {
+            byte templateId = MessageHeader.templateId(in, offset);
+            CompletableFuture<?> future;
+            BuySell summarySide = null;
+            try {
+                switch (templateId) {
+                    case MessageHeader.REGISTER_ORDER:
+                        registerOrder.wrap(in, offset);
+                        future = liveOrderService.registerOrderAsync(registerOrder.userId(),
+                                QuantityScale.toQuantity(registerOrder.quantityUnits()), registerOrder.price(),
+                                registerOrder.buySell());
+                        break;
+                    case MessageHeader.CANCEL_ORDER:
+                        future = liveOrderService.cancelOrderAsync(cancelOrder.wrap(in, offset).orderRef());
+                        break;
+                    case MessageHeader.GET_ORDER:
+                        future = liveOrderService.getOrderAsync(getOrder.wrap(in, offset).orderRef());
+                        break;
+                    case MessageHeader.SUMMARY_REQUEST:
+                        summarySide = summaryRequest.wrap(in, offset).buySell();
+                        future = summarySide == BUY
+                                ? liveOrderService.buySummaryAsync() : liveOrderService.sellSummaryAsync();
+                        break;
+                    default:
+                        throw new IllegalStateException(String.format("TemplateId=%s not a request", templateId));
+                }
+            } catch (RuntimeException e) {
+                // input rejected before it was queued
+                CompletableFuture<Object> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                future = failed;
+            }
+            connection.responses.add(new Response(future, summarySide));
+            if (!future.isDone()) {
+                future.whenComplete((result, error) -> onCompleted(connection));
+            }
+        }
+
+        /**
+         * Encode a completed response, its failure as an error frame
+         */
+        @SuppressWarnings("unchecked")
+        private void encode(Connection connection, Response response) {
+            Object result;
+            try {
+                result = response.future.join();
+            } catch (CompletionException e) {
+                writeError(connection, e.getCause());
+                return;
+            } catch (RuntimeException e) {
+                writeError(connection, e);
+                return;
+            }
+            if (response.summarySide == null) {
+                writeOrder(connection, (Order) result);
+            } else {
+                summaryEncoder.encode(response.summarySide, (List<OrderSummary>) result);
+            }
+        }
+
+        private void writeOrder(Connection connection, Order order) {
+            connection.ensureOut(OrderCodec.frameLength(order));
+            ByteBuffer out = connection.out;
+            out.position(out.position() + OrderCodec.encode(out, out.position(), order));
+        }
+
+        private void writeError(Connection connection, Throwable error) {
+            String errorType = error.getClass().getSimpleName();
+            connection.ensureOut(ErrorCodec.frameLength(errorType, error.getMessage()));
+            ByteBuffer out = connection.out;
+            out.position(out.position() + ErrorCodec.encode(out, out.position(), errorType, error.getMessage()));
+        }
+
+        /**
+         * The encoder's buffer is a heap buffer, so a fragment is copied with one array copy
+         */
+        private void onSummaryFragment(ByteBuffer buffer, int offset, int length) {
+            current.ensureOut(length);
+            current.out.put(buffer.array(), buffer.arrayOffset() + offset, length);
+        }
+
+        /**
+         * Write as much of the responses as the socket takes
+         *
+         * @return true if they were all written
+         */
+        private boolean flush(Connection connection) throws IOException {
+            ByteBuffer out = connection.out;
+            if (out.position() == 0) {
+                return true;
+            }
+            out.flip();
+            connection.channel.write(out);
+            out.compact();
+            return out.position() == 0;
+        }
+
+        private void closeConnection(SelectionKey key) {
+            key.cancel();
+            closeQuietly(key.channel());
+            connectionCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ref;
+
+/**
+ * Strategy generating the OrderRef given to a registered order
+ */
+public interface OrderRefGenerator {
+
+    /**
+     * @return a new OrderRef, unique for the lifetime of the book
+     */
+    String nextOrderRef();
+}
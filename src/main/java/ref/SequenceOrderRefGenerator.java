@@ -0,0 +1,44 @@
+package ref;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compact OrderRefs made of a node id and a monotonic sequence, both base 36 encoded, e.g. {@code kf3x9a1-2bz}.
+ * <p>
+ * Each thread reserves a block of sequence numbers at a time so the shared counter is only touched once per block,
+ * refs from one thread are increasing but refs from different threads interleave. The default node id is the
+ * start time in milliseconds so refs stay unique across restarts of a single node.
+ */
+public class SequenceOrderRefGenerator implements OrderRefGenerator {
+
+    private static final int BLOCK_SIZE = 1024;
+
+    private final String prefix;
+    private final AtomicLong nextBlock = new AtomicLong();
+    private final ThreadLocal<long[]> block = ThreadLocal.withInitial(() -> new long[]{0, 0});
+
+    public SequenceOrderRefGenerator() {
+        this(System.currentTimeMillis());
+    }
+
+    public SequenceOrderRefGenerator(long nodeId) {
+        this(Long.toString(nodeId, Character.MAX_RADIX));
+    }
+
+    public SequenceOrderRefGenerator(String nodeId) {
+        if (nodeId == null || nodeId.isEmpty()) {
+            throw new IllegalArgumentException(String.format("NodeId=%s not allowed", nodeId));
+        }
+        this.prefix = nodeId + "-";
+    }
+
+    @Override
+    public String nextOrderRef() {
+        long[] threadBlock = block.get();
+        if (threadBlock[0] == threadBlock[1]) {
+            threadBlock[0] = nextBlock.getAndIncrement() * BLOCK_SIZE;
+            threadBlock[1] = threadBlock[0] + BLOCK_SIZE;
+        }
+        return prefix + Long.toString(threadBlock[0]++, Character.MAX_RADIX);
+    }
+}
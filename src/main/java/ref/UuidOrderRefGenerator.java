@@ -0,0 +1,14 @@
+package ref;
+
+import java.util.UUID;
+
+/**
+ * Random UUID OrderRefs, kept for clients relying on the UUID format
+ */
+public class UuidOrderRefGenerator implements OrderRefGenerator {
+
+    @Override
+    public String nextOrderRef() {
+        return UUID.randomUUID().toString();
+    }
+}
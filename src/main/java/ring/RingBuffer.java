@@ -0,0 +1,169 @@
+package ring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Bounded multi producer, single consumer ring of pre-allocated entries that are reused rather than allocated.
+ * <p>
+ * A producer claims a sequence, fills the entry at that sequence in place and publishes it. The consumer handles
+ * published entries strictly in sequence order and then hands the slot back. Each slot holds the sequence it expects
+ * next: {@code n} while free for sequence n, {@code n + 1} once n is published and {@code n + capacity} once n is
+ * consumed, which orders publication to the consumer and tells a producer when a wrapped slot is free again.
+ * Producers only contend on claiming a sequence, the consumer never takes a lock or CAS.
+ *
+ * @param <E> the entry type
+ */
+public final class RingBuffer<E> {
+
+    /**
+     * Handles published entries on the consumer thread
+     */
+    public interface Handler<E> {
+
+        /**
+         * @param entry the entry, only valid until this method returns
+         * @param sequence the entry sequence
+         * @param endOfBatch true if no further entry is published yet or the drain limit is reached
+         */
+        void onEntry(E entry, long sequence, boolean endOfBatch);
+    }
+
+    private static final int SPIN_TRIES = 100;
+
+    private final Object[] entries;
+    private final AtomicLongArray slotSequences;
+    private final int mask;
+    private final AtomicLong claimSequence = new AtomicLong();
+    /**
+     * Next sequence to consume, only written by the consumer
+     */
+    private volatile long consumeSequence;
+    private volatile Thread waitingConsumer;
+
+    /**
+     * @param capacity the number of entries, a power of two
+     * @param entryFactory creates the entries once, up front
+     */
+    public RingBuffer(int capacity, Supplier<E> entryFactory) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException(String.format("Capacity=%s not allowed", capacity));
+        }
+        this.entries = new Object[capacity];
+        this.slotSequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = entryFactory.get();
+            slotSequences.set(i, i);
+        }
+        this.mask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * Claim the next sequence, waiting while the ring is full
+     */
+    public long claim() {
+        long sequence = claimSequence.getAndIncrement();
+        int index = index(sequence);
+        for (int tries = 0; slotSequences.get(index) != sequence; tries++) {
+            idle(tries);
+        }
+        return sequence;
+    }
+
+    /**
+     * @return the entry of a claimed or published sequence
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[index(sequence)];
+    }
+
+    /**
+     * Make the entry of a claimed sequence visible to the consumer
+     */
+    public void publish(long sequence) {
+        slotSequences.set(index(sequence), sequence + 1);
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Handle published entries in sequence order, consumer thread only
+     *
+     * @param limit the most entries to handle
+     * @return the number of entries handled
+     */
+    public int drain(Handler<? super E> handler, int limit) {
+        long sequence = consumeSequence;
+        int count = 0;
+        while (count < limit && isPublished(sequence)) {
+            boolean endOfBatch = count + 1 == limit || !isPublished(sequence + 1);
+            handler.onEntry(get(sequence), sequence, endOfBatch);
+            slotSequences.set(index(sequence), sequence + entries.length);
+            sequence++;
+            count++;
+            consumeSequence = sequence;
+        }
+        return count;
+    }
+
+    /**
+     * Wait until the next entry is published, spinning briefly before parking, consumer thread only.
+     * Returns early if the consumer is interrupted.
+     */
+    public void awaitPublished() {
+        long sequence = consumeSequence;
+        for (int tries = 0; tries < SPIN_TRIES; tries++) {
+            if (isPublished(sequence)) {
+                return;
+            }
+            Thread.yield();
+        }
+        waitingConsumer = Thread.currentThread();
+        try {
+            while (!isPublished(sequence) && !Thread.currentThread().isInterrupted()) {
+                LockSupport.park(this);
+            }
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    /**
+     * @return the number of sequences claimed so far
+     */
+    public long getClaimed() {
+        return claimSequence.get();
+    }
+
+    /**
+     * @return the number of sequences consumed so far
+     */
+    public long getConsumed() {
+        return consumeSequence;
+    }
+
+    private boolean isPublished(long sequence) {
+        return slotSequences.get(index(sequence)) == sequence + 1;
+    }
+
+    private int index(long sequence) {
+        return (int) sequence & mask;
+    }
+
+    private static void idle(int tries) {
+        if (tries < SPIN_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(1_000L);
+        }
+    }
+}
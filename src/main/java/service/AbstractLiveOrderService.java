@@ -1,31 +1,140 @@
 package service;
 
+import book.PriceBuckets;
 import exception.OrderNotFound;
+import feed.SummaryFeed;
+import feed.SummaryListener;
+import feed.SummarySubscription;
+import model.BookSnapshot;
 import model.BuySell;
 import model.Order;
+import model.OrderRequest;
+import model.OrderResult;
 import model.OrderSummary;
+import model.QuantityScale;
+import ref.OrderRefGenerator;
+import ref.SequenceOrderRefGenerator;
 
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.groupingBy;
 import static model.BuySell.*;
+import static validate.InputValidator.validateBucketSize;
+import static validate.InputValidator.validateDepth;
+import static validate.InputValidator.validateUserId;
 
 public abstract class AbstractLiveOrderService implements LiveOrderService {
 
     private static final Comparator<OrderSummary> BY_PRICE = Comparator.comparingInt(OrderSummary::getPrice);
 
+    /**
+     * Immutable summary of one side as of a summary version
+     */
+    private static final class CachedSummary {
+        private final long version;
+        private final List<OrderSummary> orderSummaries;
+
+        private CachedSummary(long version, List<OrderSummary> orderSummaries) {
+            this.version = version;
+            this.orderSummaries = orderSummaries;
+        }
+    }
+
+    private final OrderRefGenerator orderRefGenerator;
+    /**
+     * A read that saw no write in flight and no write started since saw a consistent book
+     */
+    private final AtomicLong writesStarted = new AtomicLong();
+    private final AtomicLong writesCompleted = new AtomicLong();
+    /**
+     * Per side, moved on every level change after the change is stored
+     */
+    private final AtomicLongArray summaryVersions = new AtomicLongArray(BuySell.values().length);
+    private final AtomicReferenceArray<CachedSummary> summaryCache =
+            new AtomicReferenceArray<>(BuySell.values().length);
+    private final SummaryFeed summaryFeed;
+
+    protected AbstractLiveOrderService() {
+        this(new SequenceOrderRefGenerator());
+    }
+
+    protected AbstractLiveOrderService(OrderRefGenerator orderRefGenerator) {
+        this(orderRefGenerator, null);
+    }
+
+    /**
+     * @param summaryExecutor delivers summary updates to subscribers, null for the service's own delivery threads
+     */
+    protected AbstractLiveOrderService(OrderRefGenerator orderRefGenerator, Executor summaryExecutor) {
+        this.orderRefGenerator = Objects.requireNonNull(orderRefGenerator, "OrderRefGenerator must not be blank");
+        this.summaryFeed = new SummaryFeed(new SummaryFeed.LevelSource() {
+            @Override
+            public double levelQuantity(BuySell buySell, int price) {
+                return QuantityScale.toQuantity(loadLevelQuantity(buySell, price));
+            }
+
+            @Override
+            public List<OrderSummary> summary(BuySell buySell) {
+                return buySell == BUY ? buySummary() : sellSummary();
+            }
+        }, summaryExecutor, SummaryFeed.DEFAULT_MAX_PENDING_LEVELS);
+    }
+
     private static OrderSummary toOrderSummary(List<Order> orders) {
-        double totalQuantity = orders.stream()
-                .mapToDouble(Order::getQuantity)
-                .sum();
-        return new OrderSummary(totalQuantity, orders.stream().findFirst().get().getPrice());
+        long totalQuantity = orders.stream()
+                .mapToLong(Order::getQuantityUnits)
+                .reduce(0, Math::addExact);
+        return OrderSummary.ofQuantityUnits(totalQuantity, orders.stream().findFirst().get().getPrice());
     }
 
     @Override
     public Order registerOrder(String userId, double quantity, int price, BuySell buySell) {
-        String uuid = UUID.randomUUID().toString();
-        return saveOrder(new Order(uuid, userId, quantity, price, buySell));
+        String orderRef = nextOrderRef();
+        Order order = new Order(orderRef, userId, quantity, price, buySell);
+        beginWrite();
+        try {
+            saveOrder(order);
+        } finally {
+            endWrite();
+        }
+        levelChanged(order);
+        return order;
+    }
+
+    @Override
+    public List<OrderResult> registerOrders(List<OrderRequest> orderRequests) {
+        OrderResult[] results = new OrderResult[orderRequests.size()];
+        List<Order> orders = new ArrayList<>(orderRequests.size());
+        int[] positions = new int[orderRequests.size()];
+        for (int i = 0; i < results.length; i++) {
+            OrderRequest orderRequest = orderRequests.get(i);
+            try {
+                String orderRef = nextOrderRef();
+                positions[orders.size()] = i;
+                orders.add(new Order(orderRef, orderRequest.getUserId(), orderRequest.getQuantity(),
+                        orderRequest.getPrice(), orderRequest.getBuySell()));
+            } catch (RuntimeException e) {
+                results[i] = OrderResult.failure(e);
+            }
+        }
+        List<Order> savedOrders;
+        beginWrite();
+        try {
+            savedOrders = saveOrders(orders);
+        } finally {
+            endWrite();
+        }
+        for (int i = 0; i < savedOrders.size(); i++) {
+            results[positions[i]] = OrderResult.success(savedOrders.get(i));
+            levelChanged(savedOrders.get(i));
+        }
+        return Arrays.asList(results);
     }
 
     @Override
@@ -40,37 +149,379 @@ public abstract class AbstractLiveOrderService implements LiveOrderService {
     @Override
     public Order cancelOrder(String orderRef) {
         Order order = getOrder(orderRef);
-        return removeOrder(order.getOrderRef());
+        Order canceledOrder;
+        beginWrite();
+        try {
+            canceledOrder = removeOrder(order.getOrderRef());
+        } finally {
+            endWrite();
+        }
+        levelChanged(canceledOrder);
+        return canceledOrder;
+    }
+
+    /**
+     * Amends are applied through {@link #replaceOrder(Order)}, an order cancelled concurrently is not found
+     */
+    @Override
+    public Order amendOrder(String orderRef, double quantity, int price) {
+        Order order = getOrder(orderRef);
+        Order amended = new Order(order.getOrderRef(), order.getUserId(), quantity, price, order.getBuySell());
+        Order previous;
+        beginWrite();
+        try {
+            previous = replaceOrder(amended);
+        } finally {
+            endWrite();
+        }
+        if (previous == null) {
+            throw new OrderNotFound(String.format("OrderRef=%s", orderRef));
+        }
+        levelChanged(previous);
+        if (previous.getPrice() != amended.getPrice()) {
+            levelChanged(amended);
+        }
+        return amended;
+    }
+
+    @Override
+    public List<OrderResult> cancelOrders(Collection<String> orderRefs) {
+        List<Order> canceledOrders;
+        beginWrite();
+        try {
+            canceledOrders = removeOrders(orderRefs);
+        } finally {
+            endWrite();
+        }
+        List<OrderResult> results = new ArrayList<>(orderRefs.size());
+        Iterator<String> orderRef = orderRefs.iterator();
+        for (Order canceledOrder : canceledOrders) {
+            String ref = orderRef.next();
+            levelChanged(canceledOrder);
+            results.add(canceledOrder != null
+                    ? OrderResult.success(canceledOrder)
+                    : OrderResult.failure(new OrderNotFound(String.format("OrderRef=%s", ref))));
+        }
+        return results;
+    }
+
+    @Override
+    public List<Order> getOrdersForUser(String userId) {
+        validateUserId(userId);
+        return loadOrdersForUser(userId);
+    }
+
+    @Override
+    public List<Order> cancelAllForUser(String userId) {
+        validateUserId(userId);
+        List<String> orderRefs = loadOrdersForUser(userId).stream()
+                .map(Order::getOrderRef)
+                .collect(Collectors.toList());
+        List<Order> canceledOrders;
+        beginWrite();
+        try {
+            canceledOrders = removeOrders(orderRefs).stream()
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+        } finally {
+            endWrite();
+        }
+        canceledOrders.forEach(this::levelChanged);
+        return canceledOrders;
+    }
+
+    /**
+     * Read both summaries optimistically until no write overlapped the read. Writers are never held back, so a
+     * snapshot taken while writes overlap every read without a break is starved and keeps retrying until they ease.
+     */
+    @Override
+    public BookSnapshot bookSnapshot() {
+        BookSnapshot bookSnapshot = tryBookSnapshot();
+        while (bookSnapshot == null) {
+            Thread.yield();
+            bookSnapshot = tryBookSnapshot();
+        }
+        return bookSnapshot;
+    }
+
+    @Override
+    public SummarySubscription subscribe(SummaryListener listener) {
+        return summaryFeed.subscribe(listener);
     }
 
     @Override
     public List<OrderSummary> buySummary() {
-        Map<Integer, List<Order>> ordersByPrice = grpOrderByPrice(BUY);
-        Set<OrderSummary> sellSummaries = ordersByPrice.values().stream()
+        return cachedSummary(BUY);
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary() {
+        return cachedSummary(SELL);
+    }
+
+    @Override
+    public List<OrderSummary> buyBucketSummary(int bucketSize) {
+        validateBucketSize(bucketSize);
+        return toBuckets(cachedSummary(BUY), bucketSize);
+    }
+
+    @Override
+    public List<OrderSummary> sellBucketSummary(int bucketSize) {
+        validateBucketSize(bucketSize);
+        return toBuckets(cachedSummary(SELL), bucketSize);
+    }
+
+    @Override
+    public long summaryVersion(BuySell buySell) {
+        return summaryVersions.get(buySell.ordinal());
+    }
+
+    @Override
+    public int orderCount(BuySell buySell) {
+        return loadOrderCount(buySell);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int depth) {
+        validateDepth(depth);
+        return topLevels(streamOrders(BUY), Comparator.reverseOrder(), depth);
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int depth) {
+        validateDepth(depth);
+        return topLevels(streamOrders(SELL), Comparator.naturalOrder(), depth);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int fromPrice, int toPrice) {
+        Map<Integer, List<Order>> ordersByPrice = grpOrderByPrice(BUY, fromPrice, toPrice);
+        Set<OrderSummary> buySummaries = ordersByPrice.values().stream()
                 .map(AbstractLiveOrderService::toOrderSummary)
                 .collect(Collectors.toCollection(() -> new TreeSet<>(BY_PRICE.reversed())));
-        return new ArrayList<>(sellSummaries);
+        return new ArrayList<>(buySummaries);
     }
 
     @Override
-    public List<OrderSummary> sellSummary() {
-        Map<Integer, List<Order>> ordersByPrice = grpOrderByPrice(SELL);
+    public List<OrderSummary> sellSummary(int fromPrice, int toPrice) {
+        Map<Integer, List<Order>> ordersByPrice = grpOrderByPrice(SELL, fromPrice, toPrice);
         Set<OrderSummary> sellSummaries = ordersByPrice.values().stream()
                 .map(AbstractLiveOrderService::toOrderSummary)
                 .collect(Collectors.toCollection(() -> new TreeSet<>(BY_PRICE)));
         return new ArrayList<>(sellSummaries);
     }
 
+    /**
+     * Read both summaries once, storage with its own way of detecting concurrent writes may override this. The
+     * summaries are loaded rather than taken from the cache, a side's version only moves after its write has ended
+     * so a cached side may still predate a write the check below already counts.
+     *
+     * @return the snapshot, null if a write overlapped the read
+     */
+    protected BookSnapshot tryBookSnapshot() {
+        long version = writesCompleted.get();
+        if (writesStarted.get() != version) {
+            return null;
+        }
+        List<OrderSummary> buySummary = loadSummary(BUY);
+        List<OrderSummary> sellSummary = loadSummary(SELL);
+        if (writesStarted.get() != version) {
+            return null;
+        }
+        return new BookSnapshot(version, buySummary, sellSummary);
+    }
+
+    /**
+     * Called before every change to the book
+     */
+    protected void beginWrite() {
+        writesStarted.incrementAndGet();
+    }
+
+    /**
+     * Called after every change to the book
+     */
+    protected void endWrite() {
+        writesCompleted.incrementAndGet();
+    }
+
+    protected String nextOrderRef() {
+        return orderRefGenerator.nextOrderRef();
+    }
+
+    /**
+     * Publish a change to the price level of a saved or removed order to summary subscribers
+     */
+    protected void levelChanged(Order order) {
+        if (order != null) {
+            levelChanged(order.getBuySell(), order.getPrice());
+        }
+    }
+
+    protected void levelChanged(BuySell buySell, int price) {
+        summaryVersions.incrementAndGet(buySell.ordinal());
+        summaryFeed.levelChanged(buySell, price);
+    }
+
+    /**
+     * Build the full summary of one side, best price first. Storage keeping price level aggregates should
+     * override this, the result is cached until the next level change of the side.
+     */
+    protected List<OrderSummary> loadSummary(BuySell buySell) {
+        Map<Integer, List<Order>> ordersByPrice = grpOrderByPrice(buySell);
+        Set<OrderSummary> orderSummaries = ordersByPrice.values().stream()
+                .map(AbstractLiveOrderService::toOrderSummary)
+                .collect(Collectors.toCollection(() -> new TreeSet<>(buySell == BUY ? BY_PRICE.reversed() : BY_PRICE)));
+        return new ArrayList<>(orderSummaries);
+    }
+
+    /**
+     * Return the cached summary while the side's version is unchanged, otherwise load and cache it. The version
+     * is read before loading and only moves after a change is stored, so a cached summary may be newer than its
+     * version but never older.
+     */
+    private List<OrderSummary> cachedSummary(BuySell buySell) {
+        long version = summaryVersion(buySell);
+        CachedSummary cached = summaryCache.get(buySell.ordinal());
+        if (cached != null && cached.version == version) {
+            return cached.orderSummaries;
+        }
+        List<OrderSummary> orderSummaries = Collections.unmodifiableList(loadSummary(buySell));
+        summaryCache.set(buySell.ordinal(), new CachedSummary(version, orderSummaries));
+        return orderSummaries;
+    }
+
+    /**
+     * Current total quantity of one price level, storage keeping price level aggregates should override this
+     *
+     * @return the level quantity in {@link QuantityScale} units, 0 if there are no orders at that price
+     */
+    protected long loadLevelQuantity(BuySell buySell, int price) {
+        return streamOrders(buySell)
+                .filter(order -> order.getPrice() == price)
+                .mapToLong(Order::getQuantityUnits)
+                .reduce(0, Math::addExact);
+    }
+
+    /**
+     * Number of orders resting on one side, storage keeping price level aggregates should override this
+     */
+    protected int loadOrderCount(BuySell buySell) {
+        return (int) streamOrders(buySell).count();
+    }
+
     protected Map<Integer, List<Order>> grpOrderByPrice(BuySell buySell) {
-        List<Order> orders = loadOrders(buySell);
-        return orders.stream().collect(groupingBy(Order::getPrice));
+        return streamOrders(buySell).collect(groupingBy(Order::getPrice));
+    }
+
+    protected Map<Integer, List<Order>> grpOrderByPrice(BuySell buySell, int fromPrice, int toPrice) {
+        return streamOrders(buySell)
+                .filter(order -> order.getPrice() >= fromPrice && order.getPrice() <= toPrice)
+                .collect(groupingBy(Order::getPrice));
+    }
+
+    /**
+     * Merge a summary into buckets in one pass, bucket prices follow level prices so each bucket's levels are
+     * adjacent in the summary
+     */
+    private static List<OrderSummary> toBuckets(List<OrderSummary> orderSummaries, int bucketSize) {
+        List<OrderSummary> buckets = new ArrayList<>();
+        int bucketPrice = 0;
+        long bucketQuantity = 0;
+        for (OrderSummary orderSummary : orderSummaries) {
+            int price = PriceBuckets.bucketPrice(orderSummary.getPrice(), bucketSize);
+            if (price != bucketPrice && bucketQuantity > 0) {
+                buckets.add(OrderSummary.ofQuantityUnits(bucketQuantity, bucketPrice));
+                bucketQuantity = 0;
+            }
+            bucketPrice = price;
+            bucketQuantity = Math.addExact(bucketQuantity, orderSummary.getQuantityUnits());
+        }
+        if (bucketQuantity > 0) {
+            buckets.add(OrderSummary.ofQuantityUnits(bucketQuantity, bucketPrice));
+        }
+        return buckets;
+    }
+
+    /**
+     * Aggregate orders into at most depth levels in a single pass, evicting the worst level
+     * as soon as more than depth levels are held so the full summary is never built
+     */
+    private static List<OrderSummary> topLevels(Stream<Order> orders, Comparator<Integer> bestFirst, int depth) {
+        TreeMap<Integer, Long> levels = new TreeMap<>(bestFirst);
+        orders.forEach(order -> {
+            Integer price = order.getPrice();
+            if (levels.size() == depth && bestFirst.compare(price, levels.lastKey()) > 0) {
+                return;
+            }
+            levels.merge(price, order.getQuantityUnits(), Math::addExact);
+            if (levels.size() > depth) {
+                levels.pollLastEntry();
+            }
+        });
+        List<OrderSummary> orderSummaries = new ArrayList<>(levels.size());
+        levels.forEach((price, quantity) -> orderSummaries.add(OrderSummary.ofQuantityUnits(quantity, price)));
+        return orderSummaries;
+    }
+
+    /**
+     * Stream the orders for a transaction type, storage able to iterate its orders directly
+     * should override this to avoid building the intermediate list
+     */
+    protected Stream<Order> streamOrders(BuySell buySell) {
+        return loadOrders(buySell).stream();
     }
 
     protected abstract List<Order> loadOrders(BuySell buySell);
 
+    protected abstract List<Order> loadOrdersForUser(String userId);
+
     protected abstract Order removeOrder(String orderRef);
 
     protected abstract Order loadOrder(String orderRef);
 
     protected abstract Order saveOrder(Order order);
+
+    /**
+     * Replace a live order with its amended version, storage should override this to update the order
+     * and its price levels in place and atomically rather than removing and saving it again
+     *
+     * @param order the amended order, with the orderRef, userId and side of the order it replaces
+     * @return the order that was replaced, null if there is no order for the orderRef
+     */
+    protected Order replaceOrder(Order order) {
+        Order previous = removeOrder(order.getOrderRef());
+        if (previous != null) {
+            saveOrder(order);
+        }
+        return previous;
+    }
+
+    /**
+     * Save a batch of validated orders, storage keeping aggregates should override this
+     * to update them once for the whole batch
+     *
+     * @return the saved orders in the same order
+     */
+    protected List<Order> saveOrders(List<Order> orders) {
+        List<Order> savedOrders = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            savedOrders.add(saveOrder(order));
+        }
+        return savedOrders;
+    }
+
+    /**
+     * Remove a batch of orders, storage keeping aggregates should override this
+     * to update them once for the whole batch
+     *
+     * @return the removed orders in orderRefs iteration order, null for an orderRef that was not found
+     */
+    protected List<Order> removeOrders(Collection<String> orderRefs) {
+        List<Order> removedOrders = new ArrayList<>(orderRefs.size());
+        for (String orderRef : orderRefs) {
+            removedOrders.add(orderRef == null ? null : removeOrder(orderRef));
+        }
+        return removedOrders;
+    }
 }
@@ -0,0 +1,183 @@
+package service;
+
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import ref.OrderRefGenerator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static validate.InputValidator.validateDepth;
+
+/**
+ * In memory LiveOrderService keeping per side price level totals up to date on every save and remove,
+ * so a summary is read straight from the sorted levels without touching the individual orders
+ */
+public class AggregatingLiveOrderService extends InMemoryLiveOrderService implements LiveOrderService {
+
+    /**
+     * Buy levels, best (highest) price first
+     */
+    private final ConcurrentNavigableMap<Integer, PriceLevel> buyLevels =
+            new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+    /**
+     * Sell levels, best (lowest) price first
+     */
+    private final ConcurrentNavigableMap<Integer, PriceLevel> sellLevels = new ConcurrentSkipListMap<>();
+
+    public AggregatingLiveOrderService() {
+    }
+
+    public AggregatingLiveOrderService(OrderRefGenerator orderRefGenerator) {
+        super(orderRefGenerator);
+    }
+
+    @Override
+    protected List<OrderSummary> loadSummary(BuySell buySell) {
+        return toOrderSummaries(buySell == BUY ? buyLevels : sellLevels);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int depth) {
+        validateDepth(depth);
+        return toOrderSummaries(buyLevels, depth);
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int depth) {
+        validateDepth(depth);
+        return toOrderSummaries(sellLevels, depth);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int fromPrice, int toPrice) {
+        if (fromPrice > toPrice) {
+            return new ArrayList<>();
+        }
+        return toOrderSummaries(buyLevels.subMap(toPrice, true, fromPrice, true));
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int fromPrice, int toPrice) {
+        if (fromPrice > toPrice) {
+            return new ArrayList<>();
+        }
+        return toOrderSummaries(sellLevels.subMap(fromPrice, true, toPrice, true));
+    }
+
+    @Override
+    protected long loadLevelQuantity(BuySell buySell, int price) {
+        PriceLevel level = levels(buySell).get(price);
+        return level == null ? 0 : level.getQuantityUnits();
+    }
+
+    @Override
+    protected int loadOrderCount(BuySell buySell) {
+        int orderCount = 0;
+        for (PriceLevel level : levels(buySell).values()) {
+            orderCount += level.getOrderCount();
+        }
+        return orderCount;
+    }
+
+    @Override
+    protected Order removeOrder(String orderRef) {
+        Order order = super.removeOrder(orderRef);
+        if (order != null) {
+            levels(order.getBuySell()).computeIfPresent(order.getPrice(),
+                    (price, level) -> PriceLevel.remove(level, order.getQuantityUnits()));
+        }
+        return order;
+    }
+
+    @Override
+    protected Order saveOrder(Order order) {
+        Order saved = super.saveOrder(order);
+        levels(order.getBuySell()).compute(order.getPrice(),
+                (price, level) -> PriceLevel.add(level, order.getQuantityUnits()));
+        return saved;
+    }
+
+    @Override
+    protected void orderReplaced(Order previous, Order order) {
+        ConcurrentNavigableMap<Integer, PriceLevel> levels = levels(order.getBuySell());
+        if (previous.getPrice() == order.getPrice()) {
+            long quantityChange = order.getQuantityUnits() - previous.getQuantityUnits();
+            levels.computeIfPresent(order.getPrice(), (price, level) -> PriceLevel.adjust(level, quantityChange));
+        } else {
+            levels.computeIfPresent(previous.getPrice(),
+                    (price, level) -> PriceLevel.remove(level, previous.getQuantityUnits()));
+            levels.compute(order.getPrice(), (price, level) -> PriceLevel.add(level, order.getQuantityUnits()));
+        }
+    }
+
+    @Override
+    protected List<Order> saveOrders(List<Order> orders) {
+        List<Order> savedOrders = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            savedOrders.add(super.saveOrder(order));
+        }
+        groupByLevel(savedOrders, BUY).forEach((price, added) -> buyLevels.compute(price,
+                (p, level) -> PriceLevel.add(level, added.getQuantityUnits(), added.getOrderCount())));
+        groupByLevel(savedOrders, SELL).forEach((price, added) -> sellLevels.compute(price,
+                (p, level) -> PriceLevel.add(level, added.getQuantityUnits(), added.getOrderCount())));
+        return savedOrders;
+    }
+
+    @Override
+    protected List<Order> removeOrders(Collection<String> orderRefs) {
+        List<Order> removedOrders = new ArrayList<>(orderRefs.size());
+        for (String orderRef : orderRefs) {
+            removedOrders.add(orderRef == null ? null : super.removeOrder(orderRef));
+        }
+        groupByLevel(removedOrders, BUY).forEach((price, removed) -> buyLevels.computeIfPresent(price,
+                (p, level) -> PriceLevel.remove(level, removed.getQuantityUnits(), removed.getOrderCount())));
+        groupByLevel(removedOrders, SELL).forEach((price, removed) -> sellLevels.computeIfPresent(price,
+                (p, level) -> PriceLevel.remove(level, removed.getQuantityUnits(), removed.getOrderCount())));
+        return removedOrders;
+    }
+
+    /**
+     * Total a batch of orders per price so each touched level is updated once
+     */
+    private static Map<Integer, PriceLevel> groupByLevel(List<Order> orders, BuySell buySell) {
+        Map<Integer, PriceLevel> levels = new HashMap<>();
+        for (Order order : orders) {
+            if (order != null && order.getBuySell() == buySell) {
+                levels.compute(order.getPrice(), (price, level) -> PriceLevel.add(level, order.getQuantityUnits()));
+            }
+        }
+        return levels;
+    }
+
+    private ConcurrentNavigableMap<Integer, PriceLevel> levels(BuySell buySell) {
+        return buySell == BUY ? buyLevels : sellLevels;
+    }
+
+    private static List<OrderSummary> toOrderSummaries(ConcurrentNavigableMap<Integer, PriceLevel> levels) {
+        List<OrderSummary> orderSummaries = new ArrayList<>();
+        levels.forEach((price, level) ->
+                orderSummaries.add(OrderSummary.ofQuantityUnits(level.getQuantityUnits(), price)));
+        return orderSummaries;
+    }
+
+    private static List<OrderSummary> toOrderSummaries(ConcurrentNavigableMap<Integer, PriceLevel> levels, int depth) {
+        List<OrderSummary> orderSummaries = new ArrayList<>(Math.min(depth, 16));
+        for (Map.Entry<Integer, PriceLevel> level : levels.entrySet()) {
+            if (orderSummaries.size() == depth) {
+                break;
+            }
+            orderSummaries.add(OrderSummary.ofQuantityUnits(level.getValue().getQuantityUnits(), level.getKey()));
+        }
+        return orderSummaries;
+    }
+}
@@ -0,0 +1,47 @@
+package service;
+
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non blocking variant of the main {@link LiveOrderService} calls, for callers that cannot park a thread on every
+ * call, such as a gateway serving many client sessions.
+ * <p>
+ * A failed call completes its future exceptionally with the exception the blocking call would throw. Invalid input
+ * may also be rejected by throwing before anything is queued.
+ */
+public interface AsyncLiveOrderService {
+
+    /**
+     * Register an Order
+     *
+     * @return completes with the registered Order with OrderRef
+     */
+    CompletableFuture<Order> registerOrderAsync(String userId, double quantity, int price, BuySell buySell);
+
+    /**
+     * Cancel an Order
+     *
+     * @return completes with the cancelled Order, or exceptionally with OrderNotFound
+     */
+    CompletableFuture<Order> cancelOrderAsync(String orderRef);
+
+    /**
+     * @return completes with the Order, or exceptionally with OrderNotFound
+     */
+    CompletableFuture<Order> getOrderAsync(String orderRef);
+
+    /**
+     * @return completes with the buy summary, best price first
+     */
+    CompletableFuture<List<OrderSummary>> buySummaryAsync();
+
+    /**
+     * @return completes with the sell summary, best price first
+     */
+    CompletableFuture<List<OrderSummary>> sellSummaryAsync();
+}
@@ -0,0 +1,459 @@
+package service;
+
+import book.PriceLadder;
+import exception.OrderNotFound;
+import model.BookSnapshot;
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import ref.OrderRefGenerator;
+import ref.SequenceOrderRefGenerator;
+import ring.RingBuffer;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static validate.InputValidator.validateDepth;
+
+/**
+ * LiveOrderService whose book is owned by a single event loop thread.
+ * <p>
+ * Every register, cancel and order lookup is published as a command into a pre-allocated {@link RingBuffer} and
+ * applied by the event loop in publication order, so the book itself needs no locks or atomics and the order of
+ * changes is deterministic. Results are returned through futures, completed once per drained batch of commands.
+ * Before completing a batch the loop publishes the levels of both sides as one immutable snapshot, which summaries
+ * and {@link #bookSnapshot()} read without involving the loop, and which already includes every completed write.
+ * <p>
+ * Callbacks attached to the returned futures with the non async {@link CompletableFuture} methods run on the
+ * event loop thread and delay every other command, so anything slow should use the async variants.
+ */
+public class EventLoopLiveOrderService extends AbstractLiveOrderService
+        implements LiveOrderService, AsyncLiveOrderService, Closeable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private enum CommandType {
+        SAVE, SAVE_ALL, REMOVE, REMOVE_ALL, REPLACE, LOAD, LOAD_SIDE, LOAD_USER, STOP
+    }
+
+    /**
+     * Reused ring buffer entry, argument depends on the command type
+     */
+    private static final class Command {
+        private CommandType type;
+        private Object argument;
+        private CompletableFuture<Object> future;
+
+        private void clear() {
+            type = null;
+            argument = null;
+            future = null;
+        }
+    }
+
+    /**
+     * Levels of both sides as of one change sequence, copies of the book ladders that are never changed once
+     * published
+     */
+    private static final class BookLevels {
+        private final long sequence;
+        private final PriceLadder buyLevels;
+        private final PriceLadder sellLevels;
+
+        private BookLevels(long sequence, PriceLadder buyLevels, PriceLadder sellLevels) {
+            this.sequence = sequence;
+            this.buyLevels = buyLevels;
+            this.sellLevels = sellLevels;
+        }
+    }
+
+    private final RingBuffer<Command> commands;
+    private final RingBuffer.Handler<Command> commandHandler = this::onCommand;
+    private final Thread eventLoop;
+    private final AtomicBoolean closing = new AtomicBoolean();
+    private volatile boolean stopped;
+    private volatile BookLevels bookLevels = new BookLevels(0, new PriceLadder(BUY), new PriceLadder(SELL));
+
+    /**
+     * Event loop state, only touched by the event loop thread
+     */
+    private final OrderBook book = new OrderBook();
+    private long changes;
+    private boolean buyChanged;
+    private boolean sellChanged;
+    private final CompletableFuture<?>[] batchFutures = new CompletableFuture<?>[MAX_BATCH_SIZE];
+    private final Object[] batchResults = new Object[MAX_BATCH_SIZE];
+    private final RuntimeException[] batchErrors = new RuntimeException[MAX_BATCH_SIZE];
+    private int batchSize;
+
+    public EventLoopLiveOrderService() {
+        this(DEFAULT_CAPACITY, new SequenceOrderRefGenerator());
+    }
+
+    /**
+     * @param capacity the number of queued commands, a power of two
+     */
+    public EventLoopLiveOrderService(int capacity, OrderRefGenerator orderRefGenerator) {
+        super(orderRefGenerator);
+        this.commands = new RingBuffer<>(capacity, Command::new);
+        this.eventLoop = new Thread(this::run, "order-event-loop");
+        eventLoop.setDaemon(true);
+        eventLoop.start();
+    }
+
+    /**
+     * Register an order without waiting for the event loop, invalid input is rejected before queuing
+     *
+     * @return completes with the registered order
+     */
+    @Override
+    public CompletableFuture<Order> registerOrderAsync(String userId, double quantity, int price, BuySell buySell) {
+        Order order = new Order(nextOrderRef(), userId, quantity, price, buySell);
+        return submit(CommandType.SAVE, order).thenApply(saved -> {
+            levelChanged(order);
+            return order;
+        });
+    }
+
+    /**
+     * Cancel an order without waiting for the event loop
+     *
+     * @return completes with the cancelled order, or exceptionally with OrderNotFound
+     */
+    @Override
+    public CompletableFuture<Order> cancelOrderAsync(String orderRef) {
+        return submit(CommandType.REMOVE, orderRef).thenApply(removed -> {
+            if (removed == null) {
+                throw new OrderNotFound(String.format("OrderRef=%s", orderRef));
+            }
+            Order order = (Order) removed;
+            levelChanged(order);
+            return order;
+        });
+    }
+
+    /**
+     * Look up an order in command order, so it sees every write submitted before it
+     */
+    @Override
+    public CompletableFuture<Order> getOrderAsync(String orderRef) {
+        return submit(CommandType.LOAD, orderRef).thenApply(loaded -> {
+            if (loaded == null) {
+                throw new OrderNotFound(String.format("OrderRef=%s", orderRef));
+            }
+            return (Order) loaded;
+        });
+    }
+
+    /**
+     * Read from the published levels, already complete
+     */
+    @Override
+    public CompletableFuture<List<OrderSummary>> buySummaryAsync() {
+        return CompletableFuture.completedFuture(buySummary());
+    }
+
+    @Override
+    public CompletableFuture<List<OrderSummary>> sellSummaryAsync() {
+        return CompletableFuture.completedFuture(sellSummary());
+    }
+
+    @Override
+    public Order registerOrder(String userId, double quantity, int price, BuySell buySell) {
+        return await(registerOrderAsync(userId, quantity, price, buySell));
+    }
+
+    @Override
+    public Order cancelOrder(String orderRef) {
+        return await(cancelOrderAsync(orderRef));
+    }
+
+    @Override
+    protected List<OrderSummary> loadSummary(BuySell buySell) {
+        BookLevels book = bookLevels;
+        return (buySell == BUY ? book.buyLevels : book.sellLevels).toOrderSummaries();
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int depth) {
+        validateDepth(depth);
+        return bookLevels.buyLevels.toOrderSummaries(depth);
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int depth) {
+        validateDepth(depth);
+        return bookLevels.sellLevels.toOrderSummaries(depth);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int fromPrice, int toPrice) {
+        return bookLevels.buyLevels.toOrderSummaries(fromPrice, toPrice);
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int fromPrice, int toPrice) {
+        return bookLevels.sellLevels.toOrderSummaries(fromPrice, toPrice);
+    }
+
+    @Override
+    public BookSnapshot bookSnapshot() {
+        BookLevels book = bookLevels;
+        return new BookSnapshot(book.sequence,
+                book.buyLevels.toOrderSummaries(), book.sellLevels.toOrderSummaries());
+    }
+
+    /**
+     * Stop the event loop once the commands queued before this call are applied,
+     * later commands complete exceptionally with IllegalStateException
+     */
+    @Override
+    public void close() {
+        if (closing.compareAndSet(false, true)) {
+            submit(CommandType.STOP, null).join();
+        }
+        try {
+            eventLoop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The event loop orders every write, nothing to track
+     */
+    @Override
+    protected void beginWrite() {
+    }
+
+    @Override
+    protected void endWrite() {
+    }
+
+    @Override
+    protected long loadLevelQuantity(BuySell buySell, int price) {
+        BookLevels book = bookLevels;
+        return (buySell == BUY ? book.buyLevels : book.sellLevels).quantity(price);
+    }
+
+    @Override
+    protected int loadOrderCount(BuySell buySell) {
+        BookLevels book = bookLevels;
+        return (buySell == BUY ? book.buyLevels : book.sellLevels).orderCount();
+    }
+
+    @Override
+    protected List<Order> loadOrders(BuySell buySell) {
+        return await(submit(CommandType.LOAD_SIDE, buySell));
+    }
+
+    @Override
+    protected List<Order> loadOrdersForUser(String userId) {
+        return await(submit(CommandType.LOAD_USER, userId));
+    }
+
+    @Override
+    protected Order removeOrder(String orderRef) {
+        return await(submit(CommandType.REMOVE, orderRef));
+    }
+
+    @Override
+    protected Order loadOrder(String orderRef) {
+        return await(submit(CommandType.LOAD, orderRef));
+    }
+
+    @Override
+    protected Order saveOrder(Order order) {
+        return await(submit(CommandType.SAVE, order));
+    }
+
+    @Override
+    protected Order replaceOrder(Order order) {
+        return await(submit(CommandType.REPLACE, order));
+    }
+
+    @Override
+    protected List<Order> saveOrders(List<Order> orders) {
+        return await(submit(CommandType.SAVE_ALL, orders));
+    }
+
+    @Override
+    protected List<Order> removeOrders(Collection<String> orderRefs) {
+        return await(submit(CommandType.REMOVE_ALL, orderRefs));
+    }
+
+    private CompletableFuture<Object> submit(CommandType type, Object argument) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (stopped) {
+            future.completeExceptionally(closed());
+            return future;
+        }
+        long sequence = commands.claim();
+        Command command = commands.get(sequence);
+        command.type = type;
+        command.argument = argument;
+        command.future = future;
+        commands.publish(sequence);
+        if (stopped) {
+            // the event loop may have stopped before it reached this command
+            future.completeExceptionally(closed());
+        }
+        return future;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T await(CompletableFuture<?> future) {
+        try {
+            return (T) future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("Event loop closed");
+    }
+
+    private void run() {
+        while (!stopped) {
+            if (commands.drain(commandHandler, MAX_BATCH_SIZE) == 0) {
+                commands.awaitPublished();
+            }
+        }
+        // fail the commands claimed before producers could see the loop had stopped
+        while (commands.getConsumed() < commands.getClaimed()) {
+            if (commands.drain(commandHandler, MAX_BATCH_SIZE) == 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void onCommand(Command command, long sequence, boolean endOfBatch) {
+        Object result = null;
+        RuntimeException error = null;
+        if (stopped) {
+            error = closed();
+        } else if (command.type == CommandType.STOP) {
+            stopped = true;
+        } else {
+            try {
+                result = apply(command.type, command.argument);
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+        batchFutures[batchSize] = command.future;
+        batchResults[batchSize] = result;
+        batchErrors[batchSize] = error;
+        batchSize++;
+        command.clear();
+        if (endOfBatch) {
+            completeBatch();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object apply(CommandType type, Object argument) {
+        switch (type) {
+            case SAVE:
+                return save((Order) argument);
+            case SAVE_ALL:
+                List<Order> orders = (List<Order>) argument;
+                for (Order order : orders) {
+                    save(order);
+                }
+                return new ArrayList<>(orders);
+            case REMOVE:
+                return remove((String) argument);
+            case REMOVE_ALL:
+                Collection<String> orderRefs = (Collection<String>) argument;
+                List<Order> removedOrders = new ArrayList<>(orderRefs.size());
+                for (String orderRef : orderRefs) {
+                    removedOrders.add(orderRef == null ? null : remove(orderRef));
+                }
+                return removedOrders;
+            case REPLACE:
+                Order amended = (Order) argument;
+                Order previous = book.replace(amended);
+                if (previous != null) {
+                    sideChanged(amended.getBuySell());
+                }
+                return previous;
+            case LOAD:
+                return book.get((String) argument);
+            case LOAD_SIDE:
+                List<Order> sideOrders = new ArrayList<>();
+                book.orders((BuySell) argument, sideOrders);
+                return sideOrders;
+            case LOAD_USER:
+                List<Order> userOrders = new ArrayList<>();
+                book.ordersForUser((String) argument, userOrders);
+                return userOrders;
+            default:
+                throw new IllegalStateException(String.format("Command=%s not known", type));
+        }
+    }
+
+    private Order save(Order order) {
+        book.save(order);
+        sideChanged(order.getBuySell());
+        return order;
+    }
+
+    private Order remove(String orderRef) {
+        Order order = book.remove(orderRef);
+        if (order != null) {
+            sideChanged(order.getBuySell());
+        }
+        return order;
+    }
+
+    private void sideChanged(BuySell buySell) {
+        changes++;
+        if (buySell == BUY) {
+            buyChanged = true;
+        } else {
+            sellChanged = true;
+        }
+    }
+
+    /**
+     * Publish the changed levels, then complete the batch so callers read their own writes
+     */
+    @SuppressWarnings("unchecked")
+    private void completeBatch() {
+        if (buyChanged || sellChanged) {
+            BookLevels published = bookLevels;
+            bookLevels = new BookLevels(changes,
+                    buyChanged ? book.ladder(BUY).copy() : published.buyLevels,
+                    sellChanged ? book.ladder(SELL).copy() : published.sellLevels);
+            buyChanged = false;
+            sellChanged = false;
+        }
+        for (int i = 0; i < batchSize; i++) {
+            CompletableFuture<Object> future = (CompletableFuture<Object>) batchFutures[i];
+            if (batchErrors[i] != null) {
+                future.completeExceptionally(batchErrors[i]);
+            } else {
+                future.complete(batchResults[i]);
+            }
+        }
+        Arrays.fill(batchFutures, 0, batchSize, null);
+        Arrays.fill(batchResults, 0, batchSize, null);
+        Arrays.fill(batchErrors, 0, batchSize, null);
+        batchSize = 0;
+    }
+}
@@ -0,0 +1,325 @@
+package service;
+
+import feed.SummaryListener;
+import feed.SummarySubscription;
+import model.BookSnapshot;
+import model.BuySell;
+import model.Order;
+import model.OrderRequest;
+import model.OrderResult;
+import model.OrderSummary;
+import timer.TimerWheel;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LiveOrderService decorator cancelling orders when they expire, good-till-time orders at their own expiry and
+ * every other order a session time-to-live after it was registered.
+ * <p>
+ * Expiries are kept in a {@link TimerWheel}, so registering and cancelling an order only adds or removes a timer.
+ * Expired orders are cancelled through {@link LiveOrderService#cancelOrders(Collection)} in batches of
+ * {@value #EXPIRY_BATCH_SIZE}, which updates the summaries once per level and batch. Each batch is taken off the
+ * wheel on its own, and both the wheel and the wrapped service are free between batches, so expiring a whole
+ * session at once does not hold up registering orders.
+ * <p>
+ * Orders taken off the book other than through this service, such as orders filled by a matching service, keep
+ * their timer until it expires and the cancel finds nothing.
+ * <p>
+ * A failed background expiry is retried on the next run, the failures are counted by {@link #expiryFailures()} and
+ * the latest is kept by {@link #lastExpiryFailure()}.
+ */
+public class ExpiringLiveOrderService implements LiveOrderService, Closeable {
+
+    public static final long DEFAULT_TICK_MILLIS = 10;
+    public static final int EXPIRY_BATCH_SIZE = 1024;
+
+    private final LiveOrderService liveOrderService;
+    private final long sessionTtlMillis;
+    private final TimerWheel<String> expiries;
+    private final ScheduledExecutorService expiryScheduler;
+    private final AtomicLong expiryFailures = new AtomicLong();
+    private volatile RuntimeException lastExpiryFailure;
+
+    /**
+     * @param sessionTtlMillis time-to-live of orders registered without an expiry, 0 to keep them until cancelled
+     */
+    public ExpiringLiveOrderService(LiveOrderService liveOrderService, long sessionTtlMillis) {
+        this(liveOrderService, sessionTtlMillis, DEFAULT_TICK_MILLIS);
+    }
+
+    /**
+     * @param sessionTtlMillis time-to-live of orders registered without an expiry, 0 to keep them until cancelled
+     * @param expiryIntervalMillis interval between background expiries, which is also the expiry resolution,
+     *                             0 to only expire on {@link #expireOrders(long)} at the default resolution
+     */
+    public ExpiringLiveOrderService(LiveOrderService liveOrderService, long sessionTtlMillis,
+                                    long expiryIntervalMillis) {
+        this.liveOrderService = Objects.requireNonNull(liveOrderService, "LiveOrderService must not be blank");
+        if (sessionTtlMillis < 0) {
+            throw new IllegalArgumentException(String.format("SessionTtlMillis=%s not allowed", sessionTtlMillis));
+        }
+        if (expiryIntervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    String.format("ExpiryIntervalMillis=%s not allowed", expiryIntervalMillis));
+        }
+        this.sessionTtlMillis = sessionTtlMillis;
+        this.expiries = new TimerWheel<>(expiryIntervalMillis > 0 ? expiryIntervalMillis : DEFAULT_TICK_MILLIS,
+                System.currentTimeMillis());
+        if (expiryIntervalMillis > 0) {
+            expiryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            expiryScheduler.scheduleWithFixedDelay(this::expireOrders,
+                    expiryIntervalMillis, expiryIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            expiryScheduler = null;
+        }
+    }
+
+    /**
+     * Register a good-till-time order, cancelled when expireAtMillis has passed
+     *
+     * @param expireAtMillis expiry time in epoch millis, a time already passed expires the order on the next expiry
+     */
+    public Order registerOrder(String userId, double quantity, int price, BuySell buySell, long expireAtMillis) {
+        Order order = liveOrderService.registerOrder(userId, quantity, price, buySell);
+        schedule(order.getOrderRef(), expireAtMillis);
+        return order;
+    }
+
+    /**
+     * Cancel every order whose expiry has passed by nowMillis. If a cancel fails its batch is scheduled again, due
+     * at nowMillis, so those orders expire on the next run.
+     *
+     * @return the number of orders cancelled
+     */
+    public int expireOrders(long nowMillis) {
+        List<String> batch = new ArrayList<>(EXPIRY_BATCH_SIZE);
+        int cancelled = 0;
+        do {
+            batch.clear();
+            synchronized (expiries) {
+                expiries.advance(nowMillis, batch, EXPIRY_BATCH_SIZE);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            List<OrderResult> orderResults;
+            try {
+                orderResults = liveOrderService.cancelOrders(batch);
+            } catch (RuntimeException e) {
+                synchronized (expiries) {
+                    for (String orderRef : batch) {
+                        expiries.schedule(orderRef, nowMillis);
+                    }
+                }
+                throw e;
+            }
+            for (OrderResult orderResult : orderResults) {
+                if (orderResult.isSuccess()) {
+                    cancelled++;
+                }
+            }
+        } while (batch.size() == EXPIRY_BATCH_SIZE);
+        return cancelled;
+    }
+
+    /**
+     * @return the number of background expiries that failed
+     */
+    public long expiryFailures() {
+        return expiryFailures.get();
+    }
+
+    /**
+     * @return the failure of the latest background expiry that failed, null if none has
+     */
+    public RuntimeException lastExpiryFailure() {
+        return lastExpiryFailure;
+    }
+
+    /**
+     * @return the number of orders waiting to expire
+     */
+    public int pendingExpiries() {
+        synchronized (expiries) {
+            return expiries.size();
+        }
+    }
+
+    /**
+     * Stop expiring in the background, the wrapped service is left open
+     */
+    @Override
+    public void close() {
+        if (expiryScheduler != null) {
+            expiryScheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public Order registerOrder(String userId, double quantity, int price, BuySell buySell) {
+        Order order = liveOrderService.registerOrder(userId, quantity, price, buySell);
+        if (sessionTtlMillis > 0) {
+            schedule(order.getOrderRef(), System.currentTimeMillis() + sessionTtlMillis);
+        }
+        return order;
+    }
+
+    @Override
+    public List<OrderResult> registerOrders(List<OrderRequest> orderRequests) {
+        List<OrderResult> orderResults = liveOrderService.registerOrders(orderRequests);
+        if (sessionTtlMillis > 0) {
+            long expireAtMillis = System.currentTimeMillis() + sessionTtlMillis;
+            synchronized (expiries) {
+                for (OrderResult orderResult : orderResults) {
+                    if (orderResult.isSuccess()) {
+                        expiries.schedule(orderResult.getOrder().getOrderRef(), expireAtMillis);
+                    }
+                }
+            }
+        }
+        return orderResults;
+    }
+
+    @Override
+    public Order getOrder(String orderRef) {
+        return liveOrderService.getOrder(orderRef);
+    }
+
+    @Override
+    public Order cancelOrder(String orderRef) {
+        Order order = liveOrderService.cancelOrder(orderRef);
+        unschedule(orderRef);
+        return order;
+    }
+
+    /**
+     * An amended order keeps its expiry
+     */
+    @Override
+    public Order amendOrder(String orderRef, double quantity, int price) {
+        return liveOrderService.amendOrder(orderRef, quantity, price);
+    }
+
+    @Override
+    public List<OrderResult> cancelOrders(Collection<String> orderRefs) {
+        List<OrderResult> orderResults = liveOrderService.cancelOrders(orderRefs);
+        synchronized (expiries) {
+            for (OrderResult orderResult : orderResults) {
+                if (orderResult.isSuccess()) {
+                    expiries.cancel(orderResult.getOrder().getOrderRef());
+                }
+            }
+        }
+        return orderResults;
+    }
+
+    @Override
+    public List<Order> getOrdersForUser(String userId) {
+        return liveOrderService.getOrdersForUser(userId);
+    }
+
+    @Override
+    public List<Order> cancelAllForUser(String userId) {
+        List<Order> orders = liveOrderService.cancelAllForUser(userId);
+        synchronized (expiries) {
+            for (Order order : orders) {
+                expiries.cancel(order.getOrderRef());
+            }
+        }
+        return orders;
+    }
+
+    @Override
+    public List<OrderSummary> buySummary() {
+        return liveOrderService.buySummary();
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary() {
+        return liveOrderService.sellSummary();
+    }
+
+    @Override
+    public List<OrderSummary> buyBucketSummary(int bucketSize) {
+        return liveOrderService.buyBucketSummary(bucketSize);
+    }
+
+    @Override
+    public List<OrderSummary> sellBucketSummary(int bucketSize) {
+        return liveOrderService.sellBucketSummary(bucketSize);
+    }
+
+    @Override
+    public long summaryVersion(BuySell buySell) {
+        return liveOrderService.summaryVersion(buySell);
+    }
+
+    @Override
+    public int orderCount(BuySell buySell) {
+        return liveOrderService.orderCount(buySell);
+    }
+
+    @Override
+    public BookSnapshot bookSnapshot() {
+        return liveOrderService.bookSnapshot();
+    }
+
+    @Override
+    public SummarySubscription subscribe(SummaryListener listener) {
+        return liveOrderService.subscribe(listener);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int depth) {
+        return liveOrderService.buySummary(depth);
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int depth) {
+        return liveOrderService.sellSummary(depth);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int fromPrice, int toPrice) {
+        return liveOrderService.buySummary(fromPrice, toPrice);
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int fromPrice, int toPrice) {
+        return liveOrderService.sellSummary(fromPrice, toPrice);
+    }
+
+    private void expireOrders() {
+        try {
+            expireOrders(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            // keep expiring on the next run, a failure must not cancel the schedule
+            lastExpiryFailure = e;
+            expiryFailures.incrementAndGet();
+        }
+    }
+
+    private void schedule(String orderRef, long expireAtMillis) {
+        synchronized (expiries) {
+            expiries.schedule(orderRef, expireAtMillis);
+        }
+    }
+
+    private void unschedule(String orderRef) {
+        synchronized (expiries) {
+            expiries.cancel(orderRef);
+        }
+    }
+}
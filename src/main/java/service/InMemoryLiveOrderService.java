@@ -4,27 +4,74 @@ import exception.OrderNotFound;
 import model.BuySell;
 import model.Order;
 import model.OrderSummary;
+import ref.OrderRefGenerator;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class InMemoryLiveOrderService extends AbstractLiveOrderService implements LiveOrderService {
 
     private ConcurrentMap<String, Order> orders = new ConcurrentHashMap<>();
+    /**
+     * OrderRefs by userId, a user's ref set is only mutated inside compute so it is
+     * dropped atomically once the user's last order is removed
+     */
+    private ConcurrentMap<String, Set<String>> orderRefsByUser = new ConcurrentHashMap<>();
+
+    public InMemoryLiveOrderService() {
+    }
+
+    public InMemoryLiveOrderService(OrderRefGenerator orderRefGenerator) {
+        super(orderRefGenerator);
+    }
+
+    /**
+     * @param summaryExecutor delivers summary updates to subscribers, null for the service's own delivery threads
+     */
+    public InMemoryLiveOrderService(OrderRefGenerator orderRefGenerator, Executor summaryExecutor) {
+        super(orderRefGenerator, summaryExecutor);
+    }
 
     @Override
     protected List<Order> loadOrders(BuySell buySell) {
+        return streamOrders(buySell).collect(Collectors.toList());
+    }
+
+    @Override
+    protected Stream<Order> streamOrders(BuySell buySell) {
         return orders.values().stream()
-                .filter(order -> buySell == order.getBuySell())
+                .filter(order -> buySell == order.getBuySell());
+    }
+
+    @Override
+    protected List<Order> loadOrdersForUser(String userId) {
+        Set<String> orderRefs = orderRefsByUser.get(userId);
+        if (orderRefs == null) {
+            return new ArrayList<>();
+        }
+        return orderRefs.stream()
+                .map(orders::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
     @Override
     protected Order removeOrder(String orderRef) {
-        return orders.remove(orderRef);
+        Order order = orders.remove(orderRef);
+        if (order != null) {
+            orderRefsByUser.computeIfPresent(order.getUserId(), (userId, orderRefs) -> {
+                orderRefs.remove(orderRef);
+                return orderRefs.isEmpty() ? null : orderRefs;
+            });
+        }
+        return order;
     }
 
     @Override
@@ -32,9 +79,36 @@ public class InMemoryLiveOrderService extends AbstractLiveOrderService implement
         return orders.get(orderRef);
     }
 
+    /**
+     * The userId of an order never changes, so only the order itself is replaced, in the same step as
+     * {@link #orderReplaced(Order, Order)}
+     */
+    @Override
+    protected Order replaceOrder(Order order) {
+        Order[] previous = new Order[1];
+        orders.computeIfPresent(order.getOrderRef(), (orderRef, stored) -> {
+            orderReplaced(stored, order);
+            previous[0] = stored;
+            return order;
+        });
+        return previous[0];
+    }
+
+    /**
+     * Called while the order's entry is locked, so aggregates kept by subclasses move with the order and a
+     * concurrent remove sees either both changes or neither
+     */
+    protected void orderReplaced(Order previous, Order order) {
+    }
+
     @Override
     protected Order saveOrder(Order order) {
         orders.put(order.getOrderRef(), order);
+        orderRefsByUser.compute(order.getUserId(), (userId, orderRefs) -> {
+            Set<String> userOrderRefs = orderRefs == null ? ConcurrentHashMap.newKeySet() : orderRefs;
+            userOrderRefs.add(order.getOrderRef());
+            return userOrderRefs;
+        });
         return order;
     }
 }
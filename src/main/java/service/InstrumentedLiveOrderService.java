@@ -0,0 +1,291 @@
+package service;
+
+import feed.SummaryListener;
+import feed.SummarySubscription;
+import metrics.Operation;
+import metrics.OrderServiceMetrics;
+import model.BookSnapshot;
+import model.BuySell;
+import model.Order;
+import model.OrderRequest;
+import model.OrderResult;
+import model.OrderSummary;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * LiveOrderService decorator recording {@link OrderServiceMetrics} for every call to the service it wraps.
+ * <p>
+ * Besides the call metrics it adds gauges for the resting orders and price levels of each side, read from the
+ * wrapped service's {@link LiveOrderService#orderCount(BuySell)} and summaries, so they also follow orders
+ * recovered, expired or filled without a call through this service.
+ */
+public class InstrumentedLiveOrderService implements LiveOrderService {
+
+    private final LiveOrderService liveOrderService;
+    private final OrderServiceMetrics metrics;
+
+    public InstrumentedLiveOrderService(LiveOrderService liveOrderService) {
+        this(liveOrderService, new OrderServiceMetrics());
+    }
+
+    public InstrumentedLiveOrderService(LiveOrderService liveOrderService, OrderServiceMetrics metrics) {
+        this.liveOrderService = Objects.requireNonNull(liveOrderService, "LiveOrderService must not be blank");
+        this.metrics = Objects.requireNonNull(metrics, "Metrics must not be blank");
+        metrics.gauge("orders.buy", () -> liveOrderService.orderCount(BUY));
+        metrics.gauge("orders.sell", () -> liveOrderService.orderCount(SELL));
+        metrics.gauge("levels.buy", () -> liveOrderService.buySummary().size());
+        metrics.gauge("levels.sell", () -> liveOrderService.sellSummary().size());
+    }
+
+    public OrderServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Order registerOrder(String userId, double quantity, int price, BuySell buySell) {
+        long start = System.nanoTime();
+        try {
+            Order order = liveOrderService.registerOrder(userId, quantity, price, buySell);
+            metrics.record(Operation.REGISTER, start);
+            return order;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.REGISTER, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OrderResult> registerOrders(List<OrderRequest> orderRequests) {
+        long start = System.nanoTime();
+        try {
+            List<OrderResult> orderResults = liveOrderService.registerOrders(orderRequests);
+            metrics.record(Operation.REGISTER_BATCH, start);
+            return orderResults;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.REGISTER_BATCH, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Order getOrder(String orderRef) {
+        long start = System.nanoTime();
+        try {
+            Order order = liveOrderService.getOrder(orderRef);
+            metrics.record(Operation.GET, start);
+            return order;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.GET, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Order cancelOrder(String orderRef) {
+        long start = System.nanoTime();
+        try {
+            Order order = liveOrderService.cancelOrder(orderRef);
+            metrics.record(Operation.CANCEL, start);
+            return order;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.CANCEL, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Order amendOrder(String orderRef, double quantity, int price) {
+        long start = System.nanoTime();
+        try {
+            Order order = liveOrderService.amendOrder(orderRef, quantity, price);
+            metrics.record(Operation.AMEND, start);
+            return order;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.AMEND, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OrderResult> cancelOrders(Collection<String> orderRefs) {
+        long start = System.nanoTime();
+        try {
+            List<OrderResult> orderResults = liveOrderService.cancelOrders(orderRefs);
+            metrics.record(Operation.CANCEL_BATCH, start);
+            return orderResults;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.CANCEL_BATCH, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Order> getOrdersForUser(String userId) {
+        long start = System.nanoTime();
+        try {
+            List<Order> orders = liveOrderService.getOrdersForUser(userId);
+            metrics.record(Operation.ORDERS_FOR_USER, start);
+            return orders;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.ORDERS_FOR_USER, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Order> cancelAllForUser(String userId) {
+        long start = System.nanoTime();
+        try {
+            List<Order> orders = liveOrderService.cancelAllForUser(userId);
+            metrics.record(Operation.CANCEL_ALL_FOR_USER, start);
+            return orders;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.CANCEL_ALL_FOR_USER, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OrderSummary> buySummary() {
+        long start = System.nanoTime();
+        try {
+            List<OrderSummary> orderSummaries = liveOrderService.buySummary();
+            metrics.record(Operation.SUMMARY, start);
+            return orderSummaries;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.SUMMARY, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary() {
+        long start = System.nanoTime();
+        try {
+            List<OrderSummary> orderSummaries = liveOrderService.sellSummary();
+            metrics.record(Operation.SUMMARY, start);
+            return orderSummaries;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.SUMMARY, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OrderSummary> buyBucketSummary(int bucketSize) {
+        long start = System.nanoTime();
+        try {
+            List<OrderSummary> orderSummaries = liveOrderService.buyBucketSummary(bucketSize);
+            metrics.record(Operation.SUMMARY, start);
+            return orderSummaries;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.SUMMARY, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellBucketSummary(int bucketSize) {
+        long start = System.nanoTime();
+        try {
+            List<OrderSummary> orderSummaries = liveOrderService.sellBucketSummary(bucketSize);
+            metrics.record(Operation.SUMMARY, start);
+            return orderSummaries;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.SUMMARY, e, start);
+            throw e;
+        }
+    }
+
+    /**
+     * Not timed, a version read is a single volatile load
+     */
+    @Override
+    public long summaryVersion(BuySell buySell) {
+        return liveOrderService.summaryVersion(buySell);
+    }
+
+    @Override
+    public int orderCount(BuySell buySell) {
+        return liveOrderService.orderCount(buySell);
+    }
+
+    @Override
+    public BookSnapshot bookSnapshot() {
+        long start = System.nanoTime();
+        try {
+            BookSnapshot bookSnapshot = liveOrderService.bookSnapshot();
+            metrics.record(Operation.BOOK_SNAPSHOT, start);
+            return bookSnapshot;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.BOOK_SNAPSHOT, e, start);
+            throw e;
+        }
+    }
+
+    /**
+     * Not timed, updates are delivered asynchronously
+     */
+    @Override
+    public SummarySubscription subscribe(SummaryListener listener) {
+        return liveOrderService.subscribe(listener);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int depth) {
+        long start = System.nanoTime();
+        try {
+            List<OrderSummary> orderSummaries = liveOrderService.buySummary(depth);
+            metrics.record(Operation.SUMMARY, start);
+            return orderSummaries;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.SUMMARY, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int depth) {
+        long start = System.nanoTime();
+        try {
+            List<OrderSummary> orderSummaries = liveOrderService.sellSummary(depth);
+            metrics.record(Operation.SUMMARY, start);
+            return orderSummaries;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.SUMMARY, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int fromPrice, int toPrice) {
+        long start = System.nanoTime();
+        try {
+            List<OrderSummary> orderSummaries = liveOrderService.buySummary(fromPrice, toPrice);
+            metrics.record(Operation.SUMMARY, start);
+            return orderSummaries;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.SUMMARY, e, start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int fromPrice, int toPrice) {
+        long start = System.nanoTime();
+        try {
+            List<OrderSummary> orderSummaries = liveOrderService.sellSummary(fromPrice, toPrice);
+            metrics.record(Operation.SUMMARY, start);
+            return orderSummaries;
+        } catch (RuntimeException e) {
+            metrics.recordError(Operation.SUMMARY, e, start);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package service;
+
+import journal.FsyncPolicy;
+import journal.JournalListener;
+import journal.OrderJournal;
+import model.Order;
+import ref.OrderRefGenerator;
+import ref.SequenceOrderRefGenerator;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Durable LiveOrderService writing every register, cancel and amend to an {@link OrderJournal} before applying it.
+ * On construction the journal is replayed to rebuild the book and its price levels.
+ */
+public class JournaledLiveOrderService extends AggregatingLiveOrderService implements LiveOrderService, Closeable {
+
+    private static final int REPLAY_BATCH_SIZE = 4096;
+
+    private final OrderJournal journal;
+    /**
+     * Held from journal append to book update of an amend, so amends of one order are applied in journal order
+     */
+    private final OrderRefLocks amendLocks = new OrderRefLocks();
+
+    public JournaledLiveOrderService(Path journalFile, FsyncPolicy fsyncPolicy) {
+        this(new OrderJournal(journalFile, fsyncPolicy), new SequenceOrderRefGenerator());
+    }
+
+    public JournaledLiveOrderService(OrderJournal journal, OrderRefGenerator orderRefGenerator) {
+        super(orderRefGenerator);
+        this.journal = journal;
+        List<Order> restoredOrders = new ArrayList<>(REPLAY_BATCH_SIZE);
+        journal.replay(new JournalListener() {
+            @Override
+            public void onRegister(Order order) {
+                restoredOrders.add(order);
+                if (restoredOrders.size() == REPLAY_BATCH_SIZE) {
+                    restoreOrders(restoredOrders);
+                }
+            }
+
+            @Override
+            public void onCancel(String orderRef) {
+                restoreOrders(restoredOrders);
+                restoreCancel(orderRef);
+            }
+
+            @Override
+            public void onAmend(String orderRef, double quantity, int price) {
+                restoreOrders(restoredOrders);
+                restoreAmend(orderRef, quantity, price);
+            }
+        });
+        restoreOrders(restoredOrders);
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    @Override
+    protected Order removeOrder(String orderRef) {
+        if (loadOrder(orderRef) == null) {
+            return null;
+        }
+        journal.appendCancel(orderRef);
+        return super.removeOrder(orderRef);
+    }
+
+    @Override
+    protected Order saveOrder(Order order) {
+        journal.appendRegister(order);
+        return super.saveOrder(order);
+    }
+
+    @Override
+    protected Order replaceOrder(Order order) {
+        synchronized (amendLocks.lockFor(order.getOrderRef())) {
+            if (loadOrder(order.getOrderRef()) == null) {
+                return null;
+            }
+            journal.appendAmend(order.getOrderRef(), order.getQuantity(), order.getPrice());
+            return super.replaceOrder(order);
+        }
+    }
+
+    @Override
+    protected List<Order> saveOrders(List<Order> orders) {
+        journal.appendRegisters(orders);
+        return super.saveOrders(orders);
+    }
+
+    @Override
+    protected List<Order> removeOrders(Collection<String> orderRefs) {
+        List<String> knownOrderRefs = new ArrayList<>(orderRefs.size());
+        for (String orderRef : orderRefs) {
+            if (orderRef != null && loadOrder(orderRef) != null) {
+                knownOrderRefs.add(orderRef);
+            }
+        }
+        journal.appendCancels(knownOrderRefs);
+        return super.removeOrders(orderRefs);
+    }
+
+    /**
+     * Apply replayed registrations a batch at a time so each price level is updated once per batch
+     */
+    private void restoreOrders(List<Order> orders) {
+        if (!orders.isEmpty()) {
+            super.saveOrders(orders);
+            orders.clear();
+        }
+    }
+
+    private void restoreCancel(String orderRef) {
+        super.removeOrder(orderRef);
+    }
+
+    private void restoreAmend(String orderRef, double quantity, int price) {
+        Order order = loadOrder(orderRef);
+        if (order != null) {
+            super.replaceOrder(new Order(orderRef, order.getUserId(), quantity, price, order.getBuySell()));
+        }
+    }
+}
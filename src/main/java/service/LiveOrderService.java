@@ -1,9 +1,15 @@
 package service;
 
+import feed.SummaryListener;
+import feed.SummarySubscription;
+import model.BookSnapshot;
 import model.BuySell;
 import model.Order;
+import model.OrderRequest;
+import model.OrderResult;
 import model.OrderSummary;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -26,6 +32,16 @@ public interface LiveOrderService {
      */
     Order registerOrder(String userId, double quantity, int price, BuySell buySell);
 
+    /**
+     * Register a batch of Orders, every request is validated before any order is saved and
+     * an invalid request fails on its own without aborting the rest of the batch
+     *
+     * @param orderRequests the orders to register
+     * @return one result per request in request order, holding the registered Order or the
+     * exception.IllegalUserId, exception.IllegalQuantity or exception.IllegalPrice the request failed with
+     */
+    List<OrderResult> registerOrders(List<OrderRequest> orderRequests);
+
     /**
      * Load an order from repo given an orderRef
      *
@@ -46,6 +62,46 @@ public interface LiveOrderService {
      */
     Order cancelOrder(String orderRef);
 
+    /**
+     * Change the quantity and price of a live order in place, keeping its orderRef
+     *
+     * @param orderRef the reference of the order to amend
+     * @param quantity the new quantity, must be greater than zero
+     * @param price the new price, must be greater than zero
+     * @return the amended order
+     * @throws exception.OrderNotFound if there is no live order for orderRef
+     */
+    Order amendOrder(String orderRef, double quantity, int price);
+
+    /**
+     * Cancel a batch of registered Orders, an unknown orderRef fails on its own
+     * without aborting the rest of the batch
+     *
+     * @param orderRefs Order ids provided when the orders were registered
+     * @return one result per orderRef in iteration order, holding the canceled Order or exception.OrderNotFound
+     */
+    List<OrderResult> cancelOrders(Collection<String> orderRefs);
+
+    /**
+     * Load all the registered orders of a user
+     *
+     * @param userId the userId that registered the orders
+     * @return the user's registered orders, empty if the user has none
+     *
+     * @throws exception.IllegalUserId if the userId is null or has illegal characters
+     */
+    List<Order> getOrdersForUser(String userId);
+
+    /**
+     * Cancel all the registered orders of a user
+     *
+     * @param userId the userId that registered the orders
+     * @return the canceled orders, empty if the user has none
+     *
+     * @throws exception.IllegalUserId if the userId is null or has illegal characters
+     */
+    List<Order> cancelAllForUser(String userId);
+
     /**
      * Return aggregated Buy order summary
      *
@@ -59,4 +115,98 @@ public interface LiveOrderService {
      * @return The list of Sell order summary
      */
     List<OrderSummary> sellSummary();
+
+    /**
+     * Return aggregated Buy order summary in price buckets, each bucket holding the prices above a multiple of
+     * bucketSize up to the next multiple and labelled with that highest price
+     *
+     * @param bucketSize the price width of a bucket, must be positive
+     * @return The list of Buy bucket summary, highest bucket first
+     *
+     * @throws exception.IllegalBucketSize if the bucketSize is 0 or negative
+     */
+    List<OrderSummary> buyBucketSummary(int bucketSize);
+
+    /**
+     * Return aggregated Sell order summary in price buckets, each bucket holding the prices above a multiple of
+     * bucketSize up to the next multiple and labelled with that highest price
+     *
+     * @param bucketSize the price width of a bucket, must be positive
+     * @return The list of Sell bucket summary, lowest bucket first
+     *
+     * @throws exception.IllegalBucketSize if the bucketSize is 0 or negative
+     */
+    List<OrderSummary> sellBucketSummary(int bucketSize);
+
+    /**
+     * Return a version of the summary of one side that changes whenever a price level of the side may have
+     * changed, so an unchanged version means a summary read earlier is still current
+     *
+     * @param buySell the order transaction buy or sell
+     * @return The summary version of the side
+     */
+    long summaryVersion(BuySell buySell);
+
+    /**
+     * @param buySell the order transaction buy or sell
+     * @return the number of orders resting on the side
+     */
+    int orderCount(BuySell buySell);
+
+    /**
+     * Return the Buy and Sell order summaries as of one point in time, so the two sides always agree
+     * even while orders are registered and cancelled concurrently
+     *
+     * @return both summaries with a sequence number that increases with every change to the book
+     */
+    BookSnapshot bookSnapshot();
+
+    /**
+     * Subscribe to incremental changes of the Buy and Sell order summaries instead of polling them.
+     * The listener first receives an ADDED update for every existing level, then an update whenever
+     * a level is added, changes quantity or is removed. Updates are delivered asynchronously and
+     * several changes to one level may be conflated into a single update.
+     *
+     * @param listener receives the level updates
+     * @return the subscription, cancel it to stop receiving updates
+     */
+    SummarySubscription subscribe(SummaryListener listener);
+
+    /**
+     * Return the best levels of the aggregated Buy order summary
+     *
+     * @param depth the maximum number of price levels to return
+     * @return at most depth Buy order summaries, highest price first
+     *
+     * @throws exception.IllegalDepth if the depth is 0 or negative
+     */
+    List<OrderSummary> buySummary(int depth);
+
+    /**
+     * Return the best levels of the aggregated Sell order summary
+     *
+     * @param depth the maximum number of price levels to return
+     * @return at most depth Sell order summaries, lowest price first
+     *
+     * @throws exception.IllegalDepth if the depth is 0 or negative
+     */
+    List<OrderSummary> sellSummary(int depth);
+
+    /**
+     * Return the aggregated Buy order summary for a price band
+     *
+     * @param fromPrice the lowest price to include
+     * @param toPrice the highest price to include
+     * @return the Buy order summaries priced from fromPrice to toPrice inclusive, highest price first
+     */
+    List<OrderSummary> buySummary(int fromPrice, int toPrice);
+
+    /**
+     * Return the aggregated Sell order summary for a price band
+     *
+     * @param fromPrice the lowest price to include
+     * @param toPrice the highest price to include
+     * @return the Sell order summaries priced from fromPrice to toPrice inclusive, lowest price first
+     */
+    List<OrderSummary> sellSummary(int fromPrice, int toPrice);
 }
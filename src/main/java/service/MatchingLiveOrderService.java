@@ -0,0 +1,188 @@
+package service;
+
+import matching.MatchingBook;
+import matching.TradeListener;
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import model.Trade;
+import ref.OrderRefGenerator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static validate.InputValidator.validateDepth;
+
+/**
+ * LiveOrderService that matches orders instead of only recording them.
+ * <p>
+ * A registered order first trades against the resting orders of the opposite side whose price it crosses, in
+ * price-time priority and at the resting order's price, and only what is left of it rests on the book. Resting
+ * orders are partially filled in place, so {@link #getOrder(String)} and the summaries show the unfilled quantity,
+ * and an order that was completely filled is no longer live. Registering still returns the order as submitted.
+ * Amending an order to a lower quantity at the same price keeps its time priority, any other amendment requeues
+ * it at the back of its new level and may trade.
+ * <p>
+ * Matching is serial, every change to the book is made under one lock.
+ */
+public class MatchingLiveOrderService extends AbstractLiveOrderService implements LiveOrderService {
+
+    private final List<TradeListener> tradeListeners = new CopyOnWriteArrayList<>();
+    private final MatchingBook book = new MatchingBook(this::onTrade);
+
+    public MatchingLiveOrderService() {
+    }
+
+    public MatchingLiveOrderService(OrderRefGenerator orderRefGenerator) {
+        super(orderRefGenerator);
+    }
+
+    /**
+     * Receive every trade, in trade order, while the book is locked
+     */
+    public void addTradeListener(TradeListener tradeListener) {
+        tradeListeners.add(Objects.requireNonNull(tradeListener, "TradeListener must not be blank"));
+    }
+
+    public void removeTradeListener(TradeListener tradeListener) {
+        tradeListeners.remove(tradeListener);
+    }
+
+    @Override
+    protected List<OrderSummary> loadSummary(BuySell buySell) {
+        synchronized (book) {
+            return book.ladder(buySell).toOrderSummaries();
+        }
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int depth) {
+        validateDepth(depth);
+        synchronized (book) {
+            return book.ladder(BUY).toOrderSummaries(depth);
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int depth) {
+        validateDepth(depth);
+        synchronized (book) {
+            return book.ladder(SELL).toOrderSummaries(depth);
+        }
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int fromPrice, int toPrice) {
+        synchronized (book) {
+            return book.ladder(BUY).toOrderSummaries(fromPrice, toPrice);
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int fromPrice, int toPrice) {
+        synchronized (book) {
+            return book.ladder(SELL).toOrderSummaries(fromPrice, toPrice);
+        }
+    }
+
+    @Override
+    protected long loadLevelQuantity(BuySell buySell, int price) {
+        synchronized (book) {
+            return book.ladder(buySell).quantity(price);
+        }
+    }
+
+    @Override
+    protected int loadOrderCount(BuySell buySell) {
+        synchronized (book) {
+            return book.ladder(buySell).orderCount();
+        }
+    }
+
+    @Override
+    protected List<Order> loadOrders(BuySell buySell) {
+        List<Order> orders = new ArrayList<>();
+        synchronized (book) {
+            book.orders(buySell, orders);
+        }
+        return orders;
+    }
+
+    @Override
+    protected List<Order> loadOrdersForUser(String userId) {
+        List<Order> orders = new ArrayList<>();
+        synchronized (book) {
+            book.ordersForUser(userId, orders);
+        }
+        return orders;
+    }
+
+    @Override
+    protected Order removeOrder(String orderRef) {
+        synchronized (book) {
+            return book.cancel(orderRef);
+        }
+    }
+
+    @Override
+    protected Order loadOrder(String orderRef) {
+        synchronized (book) {
+            return book.get(orderRef);
+        }
+    }
+
+    @Override
+    protected Order saveOrder(Order order) {
+        synchronized (book) {
+            book.submit(order);
+        }
+        return order;
+    }
+
+    @Override
+    protected Order replaceOrder(Order order) {
+        synchronized (book) {
+            return book.amend(order);
+        }
+    }
+
+    @Override
+    protected List<Order> saveOrders(List<Order> orders) {
+        synchronized (book) {
+            for (Order order : orders) {
+                book.submit(order);
+            }
+        }
+        return new ArrayList<>(orders);
+    }
+
+    @Override
+    protected List<Order> removeOrders(Collection<String> orderRefs) {
+        List<Order> removedOrders = new ArrayList<>(orderRefs.size());
+        synchronized (book) {
+            for (String orderRef : orderRefs) {
+                removedOrders.add(orderRef == null ? null : book.cancel(orderRef));
+            }
+        }
+        return removedOrders;
+    }
+
+    /**
+     * A fill changes the level of the resting order as well as the incoming one
+     */
+    private void onTrade(Trade trade) {
+        levelChanged(trade.getAggressor() == BUY ? SELL : BUY, trade.getPrice());
+        for (TradeListener tradeListener : tradeListeners) {
+            try {
+                tradeListener.onTrade(trade);
+            } catch (RuntimeException e) {
+                // a failing listener must not keep the trade from the others
+            }
+        }
+    }
+}
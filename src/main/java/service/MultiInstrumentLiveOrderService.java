@@ -0,0 +1,214 @@
+package service;
+
+import exception.IllegalInstrument;
+import exception.OrderNotFound;
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import ref.OrderRefGenerator;
+import ref.SequenceOrderRefGenerator;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import static validate.InputValidator.validateInstrument;
+import static validate.InputValidator.validateUserId;
+
+/**
+ * Order books for many instruments in one service, each instrument partitioned into its own LiveOrderService.
+ * <p>
+ * Orders are registered against an instrument and every order call goes to that instrument's book only: activity
+ * on one instrument never locks, scans or aggregates another. The instrument of each order registered here is
+ * indexed by OrderRef, so an order can be read, cancelled or amended by its OrderRef alone and
+ * {@link #instrumentOf(String)} reports its instrument.
+ * <p>
+ * Books are made by a factory. The default book is a {@link PriceLadderLiveOrderService}, whose summaries read
+ * aggregated levels rather than the orders, holding only its own orders and levels: the OrderRefGenerator, so
+ * OrderRefs are unique across instruments, and the threads delivering summary updates to subscribers are shared by
+ * every book.
+ * <p>
+ * Instruments must be listed before use, an unknown instrument is an {@link IllegalInstrument}. Only the per user
+ * calls visit every book. Orders registered or removed through a {@link #book(String)} directly bypass the index:
+ * they are only reachable through their book, and an index entry whose order has gone is dropped when a call by
+ * OrderRef finds it missing.
+ */
+public class MultiInstrumentLiveOrderService {
+
+    private final Map<String, LiveOrderService> books = new ConcurrentHashMap<>();
+    private final Map<String, String> instrumentsByOrderRef = new ConcurrentHashMap<>();
+    private final Function<String, LiveOrderService> bookFactory;
+
+    public MultiInstrumentLiveOrderService(Collection<String> instruments) {
+        this(instruments, new SequenceOrderRefGenerator());
+    }
+
+    public MultiInstrumentLiveOrderService(Collection<String> instruments, OrderRefGenerator orderRefGenerator) {
+        this(instruments, priceLadderBooks(Objects.requireNonNull(orderRefGenerator,
+                "OrderRefGenerator must not be blank")));
+    }
+
+    /**
+     * @param bookFactory makes the book of an instrument, books must not share OrderRefs
+     */
+    public MultiInstrumentLiveOrderService(Collection<String> instruments,
+                                           Function<String, LiveOrderService> bookFactory) {
+        this.bookFactory = Objects.requireNonNull(bookFactory, "BookFactory must not be blank");
+        for (String instrument : instruments) {
+            addInstrument(instrument);
+        }
+    }
+
+    /**
+     * Start trading an instrument, an instrument already listed keeps its book
+     */
+    public void addInstrument(String instrument) {
+        validateInstrument(instrument);
+        books.computeIfAbsent(instrument, bookFactory);
+    }
+
+    /**
+     * @return the listed instruments, in name order
+     */
+    public SortedSet<String> instruments() {
+        return new TreeSet<>(books.keySet());
+    }
+
+    /**
+     * @return the book of one instrument, for every LiveOrderService call on it
+     */
+    public LiveOrderService book(String instrument) {
+        validateInstrument(instrument);
+        LiveOrderService book = books.get(instrument);
+        if (book == null) {
+            throw new IllegalInstrument(String.format("Instrument=%s not allowed", instrument));
+        }
+        return book;
+    }
+
+    public Order registerOrder(String instrument, String userId, double quantity, int price, BuySell buySell) {
+        Order order = book(instrument).registerOrder(userId, quantity, price, buySell);
+        instrumentsByOrderRef.put(order.getOrderRef(), instrument);
+        return order;
+    }
+
+    /**
+     * @return the instrument an order was registered against
+     * @throws OrderNotFound if no live order registered here has orderRef
+     */
+    public String instrumentOf(String orderRef) {
+        String instrument = orderRef == null ? null : instrumentsByOrderRef.get(orderRef);
+        if (instrument == null) {
+            throw new OrderNotFound(String.format("OrderRef=%s", orderRef));
+        }
+        return instrument;
+    }
+
+    public Order getOrder(String orderRef) {
+        String instrument = instrumentOf(orderRef);
+        try {
+            return book(instrument).getOrder(orderRef);
+        } catch (OrderNotFound e) {
+            instrumentsByOrderRef.remove(orderRef, instrument);
+            throw e;
+        }
+    }
+
+    public Order getOrder(String instrument, String orderRef) {
+        return book(instrument).getOrder(orderRef);
+    }
+
+    public Order cancelOrder(String orderRef) {
+        return cancelOrder(instrumentOf(orderRef), orderRef);
+    }
+
+    public Order cancelOrder(String instrument, String orderRef) {
+        Order cancelled;
+        try {
+            cancelled = book(instrument).cancelOrder(orderRef);
+        } catch (OrderNotFound e) {
+            if (orderRef != null) {
+                instrumentsByOrderRef.remove(orderRef, instrument);
+            }
+            throw e;
+        }
+        instrumentsByOrderRef.remove(orderRef, instrument);
+        return cancelled;
+    }
+
+    public Order amendOrder(String orderRef, double quantity, int price) {
+        String instrument = instrumentOf(orderRef);
+        try {
+            return book(instrument).amendOrder(orderRef, quantity, price);
+        } catch (OrderNotFound e) {
+            instrumentsByOrderRef.remove(orderRef, instrument);
+            throw e;
+        }
+    }
+
+    public Order amendOrder(String instrument, String orderRef, double quantity, int price) {
+        return book(instrument).amendOrder(orderRef, quantity, price);
+    }
+
+    public List<OrderSummary> buySummary(String instrument) {
+        return book(instrument).buySummary();
+    }
+
+    public List<OrderSummary> sellSummary(String instrument) {
+        return book(instrument).sellSummary();
+    }
+
+    /**
+     * @return the live orders of one user by instrument, in instrument name order, without instruments where the
+     * user has none
+     */
+    public Map<String, List<Order>> getOrdersForUser(String userId) {
+        validateUserId(userId);
+        Map<String, List<Order>> ordersByInstrument = new TreeMap<>();
+        books.forEach((instrument, book) -> {
+            List<Order> orders = book.getOrdersForUser(userId);
+            if (!orders.isEmpty()) {
+                ordersByInstrument.put(instrument, orders);
+            }
+        });
+        return ordersByInstrument;
+    }
+
+    /**
+     * Cancel every order of one user on every instrument, one book at a time
+     *
+     * @return the cancelled orders by instrument, in instrument name order, without instruments where the user had
+     * none
+     */
+    public Map<String, List<Order>> cancelAllForUser(String userId) {
+        validateUserId(userId);
+        Map<String, List<Order>> cancelledByInstrument = new TreeMap<>();
+        books.forEach((instrument, book) -> {
+            List<Order> cancelledOrders = book.cancelAllForUser(userId);
+            for (Order order : cancelledOrders) {
+                instrumentsByOrderRef.remove(order.getOrderRef(), instrument);
+            }
+            if (!cancelledOrders.isEmpty()) {
+                cancelledByInstrument.put(instrument, cancelledOrders);
+            }
+        });
+        return cancelledByInstrument;
+    }
+
+    private static Function<String, LiveOrderService> priceLadderBooks(OrderRefGenerator orderRefGenerator) {
+        Executor summaryExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "summary-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        return instrument -> new PriceLadderLiveOrderService(orderRefGenerator, summaryExecutor);
+    }
+}
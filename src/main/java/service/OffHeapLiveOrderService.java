@@ -0,0 +1,207 @@
+package service;
+
+import book.OffHeapOrderStore;
+import book.PriceLadder;
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import ref.OrderRefGenerator;
+import ref.SequenceOrderRefGenerator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static validate.InputValidator.validateDepth;
+
+/**
+ * LiveOrderService keeping its orders in an {@link OffHeapOrderStore}, for books too large to hold as objects.
+ * <p>
+ * A resting order costs no heap objects, so the garbage collector does not trace the book and its pauses do not
+ * grow with it. Orders are materialized when read, which makes reads allocate where the on heap services share
+ * their stored orders. Each side is aggregated into a {@link PriceLadder}, so summaries never touch the orders.
+ * <p>
+ * Every change is made under one lock. OrderRefs must fit the store's slots, the default sequence and UUID
+ * generators always do.
+ */
+public class OffHeapLiveOrderService extends AbstractLiveOrderService implements LiveOrderService {
+
+    private final OffHeapOrderStore store;
+    private final PriceLadder buyLadder = new PriceLadder(BUY);
+    private final PriceLadder sellLadder = new PriceLadder(SELL);
+
+    public OffHeapLiveOrderService() {
+        this(OffHeapOrderStore.DEFAULT_MAX_ORDER_REF_LENGTH, new SequenceOrderRefGenerator());
+    }
+
+    /**
+     * @param maxOrderRefLength the longest orderRef the generator makes, in UTF-8 bytes
+     */
+    public OffHeapLiveOrderService(int maxOrderRefLength, OrderRefGenerator orderRefGenerator) {
+        super(orderRefGenerator);
+        this.store = new OffHeapOrderStore(maxOrderRefLength);
+    }
+
+    /**
+     * @return the direct memory held by the store, in bytes
+     */
+    public long offHeapBytes() {
+        synchronized (store) {
+            return store.offHeapBytes();
+        }
+    }
+
+    @Override
+    protected List<OrderSummary> loadSummary(BuySell buySell) {
+        synchronized (store) {
+            return ladder(buySell).toOrderSummaries();
+        }
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int depth) {
+        validateDepth(depth);
+        synchronized (store) {
+            return buyLadder.toOrderSummaries(depth);
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int depth) {
+        validateDepth(depth);
+        synchronized (store) {
+            return sellLadder.toOrderSummaries(depth);
+        }
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int fromPrice, int toPrice) {
+        synchronized (store) {
+            return buyLadder.toOrderSummaries(fromPrice, toPrice);
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int fromPrice, int toPrice) {
+        synchronized (store) {
+            return sellLadder.toOrderSummaries(fromPrice, toPrice);
+        }
+    }
+
+    @Override
+    protected long loadLevelQuantity(BuySell buySell, int price) {
+        synchronized (store) {
+            return ladder(buySell).quantity(price);
+        }
+    }
+
+    @Override
+    protected int loadOrderCount(BuySell buySell) {
+        synchronized (store) {
+            return ladder(buySell).orderCount();
+        }
+    }
+
+    @Override
+    protected List<Order> loadOrders(BuySell buySell) {
+        List<Order> orders = new ArrayList<>();
+        synchronized (store) {
+            store.orders(buySell, orders);
+        }
+        return orders;
+    }
+
+    @Override
+    protected List<Order> loadOrdersForUser(String userId) {
+        List<Order> orders = new ArrayList<>();
+        synchronized (store) {
+            store.ordersForUser(userId, orders);
+        }
+        return orders;
+    }
+
+    @Override
+    protected Order removeOrder(String orderRef) {
+        synchronized (store) {
+            return remove(orderRef);
+        }
+    }
+
+    @Override
+    protected Order loadOrder(String orderRef) {
+        synchronized (store) {
+            return store.get(orderRef);
+        }
+    }
+
+    @Override
+    protected Order saveOrder(Order order) {
+        synchronized (store) {
+            save(order);
+        }
+        return order;
+    }
+
+    @Override
+    protected Order replaceOrder(Order order) {
+        synchronized (store) {
+            Order previous = store.replace(order);
+            if (previous != null) {
+                PriceLadder ladder = ladder(order.getBuySell());
+                if (previous.getPrice() == order.getPrice()) {
+                    ladder.adjust(order.getPrice(), order.getQuantityUnits() - previous.getQuantityUnits());
+                } else {
+                    ladder.remove(previous.getPrice(), previous.getQuantityUnits());
+                    ladder.add(order.getPrice(), order.getQuantityUnits());
+                }
+            }
+            return previous;
+        }
+    }
+
+    @Override
+    protected List<Order> saveOrders(List<Order> orders) {
+        synchronized (store) {
+            for (Order order : orders) {
+                save(order);
+            }
+        }
+        return new ArrayList<>(orders);
+    }
+
+    @Override
+    protected List<Order> removeOrders(Collection<String> orderRefs) {
+        List<Order> removedOrders = new ArrayList<>(orderRefs.size());
+        synchronized (store) {
+            for (String orderRef : orderRefs) {
+                removedOrders.add(orderRef == null ? null : remove(orderRef));
+            }
+        }
+        return removedOrders;
+    }
+
+    /**
+     * Caller must hold the store lock
+     */
+    private void save(Order order) {
+        store.put(order);
+        ladder(order.getBuySell()).add(order.getPrice(), order.getQuantityUnits());
+    }
+
+    /**
+     * Caller must hold the store lock
+     */
+    private Order remove(String orderRef) {
+        Order order = store.remove(orderRef);
+        if (order != null) {
+            ladder(order.getBuySell()).remove(order.getPrice(), order.getQuantityUnits());
+        }
+        return order;
+    }
+
+    private PriceLadder ladder(BuySell buySell) {
+        return buySell == BUY ? buyLadder : sellLadder;
+    }
+}
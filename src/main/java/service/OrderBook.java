@@ -0,0 +1,110 @@
+package service;
+
+import book.PriceLadder;
+import model.BuySell;
+import model.Order;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * Orders indexed by orderRef and by userId with a {@link PriceLadder} per side, not thread safe.
+ * Owners either guard it with a lock or confine it to a single thread.
+ */
+final class OrderBook {
+
+    private final Map<String, Order> orders = new HashMap<>();
+    private final Map<String, Set<String>> orderRefsByUser = new HashMap<>();
+    private final PriceLadder buyLadder = new PriceLadder(BUY);
+    private final PriceLadder sellLadder = new PriceLadder(SELL);
+    /**
+     * Number of changes so far, readable without the owner's lock
+     */
+    private volatile long version;
+
+    long getVersion() {
+        return version;
+    }
+
+    PriceLadder ladder(BuySell buySell) {
+        return buySell == BUY ? buyLadder : sellLadder;
+    }
+
+    Order get(String orderRef) {
+        return orders.get(orderRef);
+    }
+
+    void save(Order order) {
+        orders.put(order.getOrderRef(), order);
+        orderRefsByUser.computeIfAbsent(order.getUserId(), userId -> new HashSet<>()).add(order.getOrderRef());
+        ladder(order.getBuySell()).add(order.getPrice(), order.getQuantityUnits());
+        version++;
+    }
+
+    /**
+     * @return the removed order, null if there is no order for orderRef
+     */
+    Order remove(String orderRef) {
+        Order order = orders.remove(orderRef);
+        if (order != null) {
+            ladder(order.getBuySell()).remove(order.getPrice(), order.getQuantityUnits());
+            Set<String> orderRefs = orderRefsByUser.get(order.getUserId());
+            orderRefs.remove(orderRef);
+            if (orderRefs.isEmpty()) {
+                orderRefsByUser.remove(order.getUserId());
+            }
+            version++;
+        }
+        return order;
+    }
+
+    /**
+     * Replace an order with its amended version, moving its quantity to the new price level if the price changed
+     *
+     * @return the replaced order, null if there is no order for its orderRef
+     */
+    Order replace(Order order) {
+        Order previous = orders.get(order.getOrderRef());
+        if (previous != null) {
+            orders.put(order.getOrderRef(), order);
+            PriceLadder ladder = ladder(order.getBuySell());
+            if (previous.getPrice() == order.getPrice()) {
+                ladder.adjust(order.getPrice(), order.getQuantityUnits() - previous.getQuantityUnits());
+            } else {
+                ladder.remove(previous.getPrice(), previous.getQuantityUnits());
+                ladder.add(order.getPrice(), order.getQuantityUnits());
+            }
+            version++;
+        }
+        return previous;
+    }
+
+    /**
+     * Add the orders of one side to out
+     */
+    void orders(BuySell buySell, List<Order> out) {
+        for (Order order : orders.values()) {
+            if (order.getBuySell() == buySell) {
+                out.add(order);
+            }
+        }
+    }
+
+    /**
+     * Add the orders of one user to out
+     */
+    void ordersForUser(String userId, List<Order> out) {
+        Set<String> orderRefs = orderRefsByUser.get(userId);
+        if (orderRefs != null) {
+            for (String orderRef : orderRefs) {
+                out.add(orders.get(orderRef));
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package service;
+
+/**
+ * Fixed set of monitors striped by orderRef, to serialize the changes to one order without a lock per order
+ */
+final class OrderRefLocks {
+
+    private static final int STRIPES = 64;
+
+    private final Object[] locks = new Object[STRIPES];
+
+    OrderRefLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * @return the monitor guarding orderRef, shared with the orderRefs of the same stripe
+     */
+    Object lockFor(String orderRef) {
+        int hash = orderRef.hashCode();
+        return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,280 @@
+package service;
+
+import model.BuySell;
+import model.Order;
+import model.OrderRequest;
+import model.OrderResult;
+import model.OrderSummary;
+import ring.RingBuffer;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static validate.InputValidator.validatePrice;
+import static validate.InputValidator.validateQuantity;
+import static validate.InputValidator.validateUserId;
+
+/**
+ * AsyncLiveOrderService pipelining the calls of many callers into another LiveOrderService.
+ * <p>
+ * Calls are published into a pre-allocated {@link RingBuffer} and return at once. A single committer thread applies
+ * them in publication order, turning every run of consecutive registers in a drained batch into one
+ * {@link LiveOrderService#registerOrders(List)} and every run of cancels into one
+ * {@link LiveOrderService#cancelOrders(java.util.Collection)}. Over a {@link JournaledLiveOrderService} that is one
+ * journal write and one fsync per run, so the callers waiting on a slow disk share each commit instead of queuing
+ * for one each.
+ * <p>
+ * Callers only block while the ring is full, and then park rather than hold a monitor, so virtual threads waiting
+ * on the pipeline do not pin their carriers. Callbacks attached with the non async {@link CompletableFuture}
+ * methods run on the committer thread and delay every other call.
+ */
+public class PipelinedLiveOrderService implements AsyncLiveOrderService, Closeable {
+
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    private enum RequestType {
+        REGISTER, CANCEL, GET, BUY_SUMMARY, SELL_SUMMARY, STOP
+    }
+
+    /**
+     * Reused ring buffer entry, argument depends on the request type
+     */
+    private static final class Request {
+        private RequestType type;
+        private Object argument;
+        private CompletableFuture<Object> future;
+
+        private void clear() {
+            type = null;
+            argument = null;
+            future = null;
+        }
+    }
+
+    private final LiveOrderService liveOrderService;
+    private final RingBuffer<Request> requests;
+    private final RingBuffer.Handler<Request> requestHandler = this::onRequest;
+    private final Thread committer;
+    private final AtomicBoolean closing = new AtomicBoolean();
+    private volatile boolean stopped;
+
+    /**
+     * Committer state, only touched by the committer thread
+     */
+    private final RequestType[] batchTypes = new RequestType[MAX_BATCH_SIZE];
+    private final Object[] batchArguments = new Object[MAX_BATCH_SIZE];
+    private final CompletableFuture<?>[] batchFutures = new CompletableFuture<?>[MAX_BATCH_SIZE];
+    private int batchSize;
+
+    public PipelinedLiveOrderService(LiveOrderService liveOrderService) {
+        this(liveOrderService, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of queued calls, a power of two
+     */
+    public PipelinedLiveOrderService(LiveOrderService liveOrderService, int capacity) {
+        this.liveOrderService = Objects.requireNonNull(liveOrderService, "LiveOrderService must not be blank");
+        this.requests = new RingBuffer<>(capacity, Request::new);
+        this.committer = new Thread(this::run, "order-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Invalid input is rejected before queuing, OrderRefs are assigned in commit order by the wrapped service's
+     * {@link ref.OrderRefGenerator}
+     */
+    @Override
+    public CompletableFuture<Order> registerOrderAsync(String userId, double quantity, int price, BuySell buySell) {
+        Objects.requireNonNull(buySell, "BuySell must not be blank");
+        validateUserId(userId);
+        validateQuantity(quantity);
+        validatePrice(price);
+        return submit(RequestType.REGISTER, new OrderRequest(userId, quantity, price, buySell));
+    }
+
+    @Override
+    public CompletableFuture<Order> cancelOrderAsync(String orderRef) {
+        return submit(RequestType.CANCEL, orderRef);
+    }
+
+    @Override
+    public CompletableFuture<Order> getOrderAsync(String orderRef) {
+        return submit(RequestType.GET, orderRef);
+    }
+
+    @Override
+    public CompletableFuture<List<OrderSummary>> buySummaryAsync() {
+        return submit(RequestType.BUY_SUMMARY, null);
+    }
+
+    @Override
+    public CompletableFuture<List<OrderSummary>> sellSummaryAsync() {
+        return submit(RequestType.SELL_SUMMARY, null);
+    }
+
+    /**
+     * Stop the committer once the calls queued before this call are applied, later calls complete exceptionally
+     * with IllegalStateException. The wrapped service is left open.
+     */
+    @Override
+    public void close() {
+        if (closing.compareAndSet(false, true)) {
+            submit(RequestType.STOP, null).join();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> submit(RequestType type, Object argument) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (stopped) {
+            future.completeExceptionally(closed());
+            return (CompletableFuture<T>) (CompletableFuture<?>) future;
+        }
+        long sequence = requests.claim();
+        Request request = requests.get(sequence);
+        request.type = type;
+        request.argument = argument;
+        request.future = future;
+        requests.publish(sequence);
+        if (stopped) {
+            // the committer may have stopped before it reached this request
+            future.completeExceptionally(closed());
+        }
+        return (CompletableFuture<T>) (CompletableFuture<?>) future;
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("Pipeline closed");
+    }
+
+    private void run() {
+        while (!stopped) {
+            if (requests.drain(requestHandler, MAX_BATCH_SIZE) == 0) {
+                requests.awaitPublished();
+            }
+        }
+        // fail the requests claimed before producers could see the committer had stopped
+        while (requests.getConsumed() < requests.getClaimed()) {
+            if (requests.drain(requestHandler, MAX_BATCH_SIZE) == 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void onRequest(Request request, long sequence, boolean endOfBatch) {
+        if (stopped) {
+            request.future.completeExceptionally(closed());
+        } else {
+            if (request.type == RequestType.STOP) {
+                stopped = true;
+            }
+            batchTypes[batchSize] = request.type;
+            batchArguments[batchSize] = request.argument;
+            batchFutures[batchSize] = request.future;
+            batchSize++;
+        }
+        request.clear();
+        if (endOfBatch) {
+            commitBatch();
+        }
+    }
+
+    /**
+     * Apply the batch in order, each run of registers or cancels as one call
+     */
+    private void commitBatch() {
+        int start = 0;
+        while (start < batchSize) {
+            RequestType type = batchTypes[start];
+            int end = start + 1;
+            while (end < batchSize && batchTypes[end] == type) {
+                end++;
+            }
+            if (type == RequestType.REGISTER || type == RequestType.CANCEL) {
+                commitRun(type, start, end);
+            } else {
+                for (int i = start; i < end; i++) {
+                    apply(type, i);
+                }
+            }
+            start = end;
+        }
+        Arrays.fill(batchTypes, 0, batchSize, null);
+        Arrays.fill(batchArguments, 0, batchSize, null);
+        Arrays.fill(batchFutures, 0, batchSize, null);
+        batchSize = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void commitRun(RequestType type, int start, int end) {
+        List<OrderResult> orderResults;
+        try {
+            if (type == RequestType.REGISTER) {
+                List<OrderRequest> orderRequests = new ArrayList<>(end - start);
+                for (int i = start; i < end; i++) {
+                    orderRequests.add((OrderRequest) batchArguments[i]);
+                }
+                orderResults = liveOrderService.registerOrders(orderRequests);
+            } else {
+                List<String> orderRefs = new ArrayList<>(end - start);
+                for (int i = start; i < end; i++) {
+                    orderRefs.add((String) batchArguments[i]);
+                }
+                orderResults = liveOrderService.cancelOrders(orderRefs);
+            }
+        } catch (RuntimeException e) {
+            for (int i = start; i < end; i++) {
+                batchFutures[i].completeExceptionally(e);
+            }
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            OrderResult orderResult = orderResults.get(i - start);
+            CompletableFuture<Order> future = (CompletableFuture<Order>) batchFutures[i];
+            if (orderResult.isSuccess()) {
+                future.complete(orderResult.getOrder());
+            } else {
+                future.completeExceptionally(orderResult.getError());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void apply(RequestType type, int i) {
+        CompletableFuture<Object> future = (CompletableFuture<Object>) batchFutures[i];
+        try {
+            switch (type) {
+                case GET:
+                    future.complete(liveOrderService.getOrder((String) batchArguments[i]));
+                    break;
+                case BUY_SUMMARY:
+                    future.complete(liveOrderService.buySummary());
+                    break;
+                case SELL_SUMMARY:
+                    future.complete(liveOrderService.sellSummary());
+                    break;
+                case STOP:
+                    future.complete(null);
+                    break;
+                default:
+                    throw new IllegalStateException(String.format("Request=%s not known", type));
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package service;
+
+import book.PriceBuckets;
+import book.PriceLadder;
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import ref.OrderRefGenerator;
+import ref.SequenceOrderRefGenerator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static validate.InputValidator.validateBucketSize;
+import static validate.InputValidator.validateDepth;
+
+/**
+ * In memory LiveOrderService aggregating each side into a primitive {@link PriceLadder}.
+ * The best levels can be copied into caller supplied buffers with {@link #buyLevels(int[], long[])}
+ * and {@link #sellLevels(int[], long[])} without creating any OrderSummary objects.
+ * Bucket summaries at the bucket sizes given on construction are kept in {@link PriceBuckets} with the levels.
+ */
+public class PriceLadderLiveOrderService extends InMemoryLiveOrderService implements LiveOrderService {
+
+    private final PriceLadder buyLadder = new PriceLadder(BUY);
+    private final PriceLadder sellLadder = new PriceLadder(SELL);
+    /**
+     * Guarded by the ladder of the same side
+     */
+    private final PriceBuckets buyBuckets;
+    private final PriceBuckets sellBuckets;
+
+    public PriceLadderLiveOrderService() {
+        this(new SequenceOrderRefGenerator());
+    }
+
+    public PriceLadderLiveOrderService(OrderRefGenerator orderRefGenerator) {
+        this(orderRefGenerator, new int[0]);
+    }
+
+    /**
+     * @param bucketSizes the bucket sizes whose bucket summaries are maintained with the levels, other sizes are
+     *                    aggregated from the levels when asked for
+     */
+    public PriceLadderLiveOrderService(OrderRefGenerator orderRefGenerator, int... bucketSizes) {
+        this(orderRefGenerator, null, bucketSizes);
+    }
+
+    /**
+     * @param summaryExecutor delivers summary updates to subscribers, null for the service's own delivery threads,
+     *                        so many services can share one pool
+     * @param bucketSizes the bucket sizes whose bucket summaries are maintained with the levels
+     */
+    public PriceLadderLiveOrderService(OrderRefGenerator orderRefGenerator, Executor summaryExecutor,
+                                       int... bucketSizes) {
+        super(orderRefGenerator, summaryExecutor);
+        this.buyBuckets = new PriceBuckets(BUY, bucketSizes);
+        this.sellBuckets = new PriceBuckets(SELL, bucketSizes);
+    }
+
+    /**
+     * Copy the best Buy levels, highest price first
+     *
+     * @param prices receives the level prices
+     * @param quantities receives the level quantities in {@link model.QuantityScale} units
+     * @return the number of levels copied
+     */
+    public int buyLevels(int[] prices, long[] quantities) {
+        synchronized (buyLadder) {
+            return buyLadder.topLevels(prices, quantities);
+        }
+    }
+
+    /**
+     * Copy the best Sell levels, lowest price first
+     *
+     * @param prices receives the level prices
+     * @param quantities receives the level quantities in {@link model.QuantityScale} units
+     * @return the number of levels copied
+     */
+    public int sellLevels(int[] prices, long[] quantities) {
+        synchronized (sellLadder) {
+            return sellLadder.topLevels(prices, quantities);
+        }
+    }
+
+    @Override
+    protected List<OrderSummary> loadSummary(BuySell buySell) {
+        return toOrderSummaries(buySell == BUY ? buyLadder : sellLadder);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int depth) {
+        validateDepth(depth);
+        synchronized (buyLadder) {
+            return buyLadder.toOrderSummaries(depth);
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int depth) {
+        validateDepth(depth);
+        synchronized (sellLadder) {
+            return sellLadder.toOrderSummaries(depth);
+        }
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int fromPrice, int toPrice) {
+        synchronized (buyLadder) {
+            return buyLadder.toOrderSummaries(fromPrice, toPrice);
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int fromPrice, int toPrice) {
+        synchronized (sellLadder) {
+            return sellLadder.toOrderSummaries(fromPrice, toPrice);
+        }
+    }
+
+    @Override
+    public List<OrderSummary> buyBucketSummary(int bucketSize) {
+        validateBucketSize(bucketSize);
+        PriceLadder buckets = buyBuckets.ladder(bucketSize);
+        if (buckets == null) {
+            return super.buyBucketSummary(bucketSize);
+        }
+        synchronized (buyLadder) {
+            return buckets.toOrderSummaries();
+        }
+    }
+
+    @Override
+    public List<OrderSummary> sellBucketSummary(int bucketSize) {
+        validateBucketSize(bucketSize);
+        PriceLadder buckets = sellBuckets.ladder(bucketSize);
+        if (buckets == null) {
+            return super.sellBucketSummary(bucketSize);
+        }
+        synchronized (sellLadder) {
+            return buckets.toOrderSummaries();
+        }
+    }
+
+    @Override
+    protected long loadLevelQuantity(BuySell buySell, int price) {
+        PriceLadder ladder = ladder(buySell);
+        synchronized (ladder) {
+            return ladder.quantity(price);
+        }
+    }
+
+    @Override
+    protected int loadOrderCount(BuySell buySell) {
+        PriceLadder ladder = ladder(buySell);
+        synchronized (ladder) {
+            return ladder.orderCount();
+        }
+    }
+
+    @Override
+    protected Order removeOrder(String orderRef) {
+        Order order = super.removeOrder(orderRef);
+        if (order != null) {
+            PriceLadder ladder = ladder(order.getBuySell());
+            synchronized (ladder) {
+                removeLevel(order);
+            }
+        }
+        return order;
+    }
+
+    @Override
+    protected Order saveOrder(Order order) {
+        Order saved = super.saveOrder(order);
+        PriceLadder ladder = ladder(order.getBuySell());
+        synchronized (ladder) {
+            addLevel(order);
+        }
+        return saved;
+    }
+
+    @Override
+    protected void orderReplaced(Order previous, Order order) {
+        PriceLadder ladder = ladder(order.getBuySell());
+        synchronized (ladder) {
+            if (previous.getPrice() == order.getPrice()) {
+                long quantityChange = order.getQuantityUnits() - previous.getQuantityUnits();
+                ladder.adjust(order.getPrice(), quantityChange);
+                buckets(order.getBuySell()).adjust(order.getPrice(), quantityChange);
+            } else {
+                removeLevel(previous);
+                addLevel(order);
+            }
+        }
+    }
+
+    @Override
+    protected List<Order> saveOrders(List<Order> orders) {
+        List<Order> savedOrders = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            savedOrders.add(super.saveOrder(order));
+        }
+        synchronized (buyLadder) {
+            synchronized (sellLadder) {
+                for (Order order : savedOrders) {
+                    addLevel(order);
+                }
+            }
+        }
+        return savedOrders;
+    }
+
+    @Override
+    protected List<Order> removeOrders(Collection<String> orderRefs) {
+        List<Order> removedOrders = new ArrayList<>(orderRefs.size());
+        for (String orderRef : orderRefs) {
+            removedOrders.add(orderRef == null ? null : super.removeOrder(orderRef));
+        }
+        synchronized (buyLadder) {
+            synchronized (sellLadder) {
+                for (Order order : removedOrders) {
+                    if (order != null) {
+                        removeLevel(order);
+                    }
+                }
+            }
+        }
+        return removedOrders;
+    }
+
+    private PriceLadder ladder(BuySell buySell) {
+        return buySell == BUY ? buyLadder : sellLadder;
+    }
+
+    private PriceBuckets buckets(BuySell buySell) {
+        return buySell == BUY ? buyBuckets : sellBuckets;
+    }
+
+    /**
+     * Add an order to its level and buckets, caller must hold the ladder lock of its side
+     */
+    private void addLevel(Order order) {
+        ladder(order.getBuySell()).add(order.getPrice(), order.getQuantityUnits());
+        buckets(order.getBuySell()).add(order.getPrice(), order.getQuantityUnits());
+    }
+
+    /**
+     * Remove an order from its level and buckets, caller must hold the ladder lock of its side
+     */
+    private void removeLevel(Order order) {
+        ladder(order.getBuySell()).remove(order.getPrice(), order.getQuantityUnits());
+        buckets(order.getBuySell()).remove(order.getPrice(), order.getQuantityUnits());
+    }
+
+    private static List<OrderSummary> toOrderSummaries(PriceLadder ladder) {
+        synchronized (ladder) {
+            return ladder.toOrderSummaries();
+        }
+    }
+}
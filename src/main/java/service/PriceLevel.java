@@ -0,0 +1,57 @@
+package service;
+
+/**
+ * Immutable aggregate of the resting orders at one price
+ */
+final class PriceLevel {
+    /**
+     * Total quantity resting at the price, in {@link model.QuantityScale} units
+     */
+    private final long quantity;
+    /**
+     * Number of resting orders at the price, the level is removed when it drops to zero
+     */
+    private final int orderCount;
+
+    private PriceLevel(long quantity, int orderCount) {
+        this.quantity = quantity;
+        this.orderCount = orderCount;
+    }
+
+    static PriceLevel add(PriceLevel level, long quantity) {
+        return add(level, quantity, 1);
+    }
+
+    static PriceLevel add(PriceLevel level, long quantity, int orderCount) {
+        if (level == null) {
+            return new PriceLevel(quantity, orderCount);
+        }
+        return new PriceLevel(Math.addExact(level.quantity, quantity), level.orderCount + orderCount);
+    }
+
+    static PriceLevel remove(PriceLevel level, long quantity) {
+        return remove(level, quantity, 1);
+    }
+
+    static PriceLevel remove(PriceLevel level, long quantity, int orderCount) {
+        if (level == null || level.orderCount <= orderCount) {
+            return null;
+        }
+        return new PriceLevel(level.quantity - quantity, level.orderCount - orderCount);
+    }
+
+    static PriceLevel adjust(PriceLevel level, long quantityChange) {
+        if (level == null) {
+            return null;
+        }
+        return new PriceLevel(Math.addExact(level.quantity, quantityChange), level.orderCount);
+    }
+
+    long getQuantityUnits() {
+        return quantity;
+    }
+
+    int getOrderCount() {
+        return orderCount;
+    }
+}
@@ -0,0 +1,323 @@
+package service;
+
+import book.PriceLadder;
+import model.BookSnapshot;
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import ref.OrderRefGenerator;
+import ref.SequenceOrderRefGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static validate.InputValidator.validateDepth;
+
+/**
+ * In memory LiveOrderService partitioned into lock striped shards so writers on different shards never contend.
+ * <p>
+ * Orders are assigned to a shard by the hash of their orderRef. Each shard is an {@link OrderBook} of its orders,
+ * its user index and a {@link PriceLadder} per side, guarded by the shard lock, so a register or cancel takes
+ * exactly one lock.
+ * Summaries lock one shard at a time and merge the shard levels at read time; they are exact for a quiescent book
+ * but, unlike a single book, not an atomic view across shards while writes are in flight. {@link #bookSnapshot()}
+ * is, it validates the merged read against the shard versions instead of counting writes globally, so writers
+ * still share no state. A batch is applied to one shard at a time and a snapshot may see part of it.
+ */
+public class ShardedLiveOrderService extends AbstractLiveOrderService implements LiveOrderService {
+
+    /**
+     * Default shard count, four shards per available processor
+     */
+    public static final int DEFAULT_SHARD_COUNT = Runtime.getRuntime().availableProcessors() * 4;
+
+    private static final int MAX_SHARD_COUNT = 1 << 16;
+
+    private final OrderBook[] shards;
+    private final int shardMask;
+
+    public ShardedLiveOrderService() {
+        this(DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * @param shardCount the number of shards, rounded up to a power of two
+     */
+    public ShardedLiveOrderService(int shardCount) {
+        this(shardCount, new SequenceOrderRefGenerator());
+    }
+
+    public ShardedLiveOrderService(int shardCount, OrderRefGenerator orderRefGenerator) {
+        super(orderRefGenerator);
+        if (shardCount <= 0 || shardCount > MAX_SHARD_COUNT) {
+            throw new IllegalArgumentException(String.format("ShardCount=%s not allowed", shardCount));
+        }
+        int powerOfTwo = Integer.highestOneBit(shardCount - 1) << 1;
+        this.shards = new OrderBook[shardCount == 1 ? 1 : powerOfTwo];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new OrderBook();
+        }
+        this.shardMask = shards.length - 1;
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    protected List<OrderSummary> loadSummary(BuySell buySell) {
+        return mergeLevels(buySell, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int depth) {
+        validateDepth(depth);
+        return mergeLevels(BUY, Integer.MIN_VALUE, Integer.MAX_VALUE, depth);
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int depth) {
+        validateDepth(depth);
+        return mergeLevels(SELL, Integer.MIN_VALUE, Integer.MAX_VALUE, depth);
+    }
+
+    @Override
+    public List<OrderSummary> buySummary(int fromPrice, int toPrice) {
+        return mergeLevels(BUY, fromPrice, toPrice, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<OrderSummary> sellSummary(int fromPrice, int toPrice) {
+        return mergeLevels(SELL, fromPrice, toPrice, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes are tracked by the shard versions
+     */
+    @Override
+    protected void beginWrite() {
+    }
+
+    @Override
+    protected void endWrite() {
+    }
+
+    /**
+     * The merged read is consistent if no shard version changed while it ran,
+     * the sum of the shard versions increases with every change. Summaries are merged afresh, not taken from the
+     * cache, which only catches up with a shard after its write.
+     */
+    @Override
+    protected BookSnapshot tryBookSnapshot() {
+        long[] versions = new long[shards.length];
+        long sequence = 0;
+        for (int i = 0; i < shards.length; i++) {
+            versions[i] = shards[i].getVersion();
+            sequence += versions[i];
+        }
+        List<OrderSummary> buySummary = loadSummary(BUY);
+        List<OrderSummary> sellSummary = loadSummary(SELL);
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[i].getVersion() != versions[i]) {
+                return null;
+            }
+        }
+        return new BookSnapshot(sequence, buySummary, sellSummary);
+    }
+
+    @Override
+    protected long loadLevelQuantity(BuySell buySell, int price) {
+        long quantity = 0;
+        for (OrderBook shard : shards) {
+            synchronized (shard) {
+                quantity = Math.addExact(quantity, shard.ladder(buySell).quantity(price));
+            }
+        }
+        return quantity;
+    }
+
+    @Override
+    protected int loadOrderCount(BuySell buySell) {
+        int orderCount = 0;
+        for (OrderBook shard : shards) {
+            synchronized (shard) {
+                orderCount += shard.ladder(buySell).orderCount();
+            }
+        }
+        return orderCount;
+    }
+
+    @Override
+    protected List<Order> loadOrders(BuySell buySell) {
+        List<Order> orders = new ArrayList<>();
+        for (OrderBook shard : shards) {
+            synchronized (shard) {
+                shard.orders(buySell, orders);
+            }
+        }
+        return orders;
+    }
+
+    @Override
+    protected List<Order> loadOrdersForUser(String userId) {
+        List<Order> orders = new ArrayList<>();
+        for (OrderBook shard : shards) {
+            synchronized (shard) {
+                shard.ordersForUser(userId, orders);
+            }
+        }
+        return orders;
+    }
+
+    @Override
+    protected Order loadOrder(String orderRef) {
+        OrderBook shard = shard(orderRef);
+        synchronized (shard) {
+            return shard.get(orderRef);
+        }
+    }
+
+    @Override
+    protected Order saveOrder(Order order) {
+        OrderBook shard = shard(order.getOrderRef());
+        synchronized (shard) {
+            shard.save(order);
+        }
+        return order;
+    }
+
+    @Override
+    protected Order removeOrder(String orderRef) {
+        OrderBook shard = shard(orderRef);
+        synchronized (shard) {
+            return shard.remove(orderRef);
+        }
+    }
+
+    @Override
+    protected Order replaceOrder(Order order) {
+        OrderBook shard = shard(order.getOrderRef());
+        synchronized (shard) {
+            return shard.replace(order);
+        }
+    }
+
+    /**
+     * Save a batch taking each shard lock once for all the orders of that shard
+     */
+    @Override
+    protected List<Order> saveOrders(List<Order> orders) {
+        int[] shardStarts = new int[shards.length + 1];
+        int[] positions = groupByShard(orders.size(), i -> orders.get(i).getOrderRef(), shardStarts);
+        for (int s = 0; s < shards.length; s++) {
+            if (shardStarts[s] < shardStarts[s + 1]) {
+                OrderBook shard = shards[s];
+                synchronized (shard) {
+                    for (int i = shardStarts[s]; i < shardStarts[s + 1]; i++) {
+                        shard.save(orders.get(positions[i]));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(orders);
+    }
+
+    /**
+     * Remove a batch taking each shard lock once for all the orderRefs of that shard
+     */
+    @Override
+    protected List<Order> removeOrders(Collection<String> orderRefs) {
+        String[] refs = orderRefs.toArray(new String[0]);
+        Order[] removedOrders = new Order[refs.length];
+        int[] shardStarts = new int[shards.length + 1];
+        int[] positions = groupByShard(refs.length, i -> refs[i], shardStarts);
+        for (int s = 0; s < shards.length; s++) {
+            if (shardStarts[s] < shardStarts[s + 1]) {
+                OrderBook shard = shards[s];
+                synchronized (shard) {
+                    for (int i = shardStarts[s]; i < shardStarts[s + 1]; i++) {
+                        removedOrders[positions[i]] = shard.remove(refs[positions[i]]);
+                    }
+                }
+            }
+        }
+        return Arrays.asList(removedOrders);
+    }
+
+    private OrderBook shard(String orderRef) {
+        return shards[shardIndex(orderRef)];
+    }
+
+    private int shardIndex(String orderRef) {
+        int hash = orderRef.hashCode();
+        return (hash ^ (hash >>> 16)) & shardMask;
+    }
+
+    private interface RefAt {
+        String orderRef(int index);
+    }
+
+    /**
+     * Counting sort of batch positions by shard, null orderRefs are left out
+     *
+     * @param shardStarts receives the start of each shard's positions, with the end of the last one at the end
+     * @return the batch positions grouped by shard
+     */
+    private int[] groupByShard(int size, RefAt refAt, int[] shardStarts) {
+        int[] shardIndexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            String orderRef = refAt.orderRef(i);
+            shardIndexes[i] = orderRef == null ? -1 : shardIndex(orderRef);
+            if (orderRef != null) {
+                shardStarts[shardIndexes[i] + 1]++;
+            }
+        }
+        for (int s = 0; s < shards.length; s++) {
+            shardStarts[s + 1] += shardStarts[s];
+        }
+        int[] next = Arrays.copyOf(shardStarts, shards.length);
+        int[] positions = new int[shardStarts[shards.length]];
+        for (int i = 0; i < size; i++) {
+            if (shardIndexes[i] >= 0) {
+                positions[next[shardIndexes[i]]++] = i;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Merge the shard levels priced from fromPrice to toPrice inclusive, best first and at most depth of them.
+     * A shard can only contribute to the merged top depth levels with its own top depth levels.
+     */
+    private List<OrderSummary> mergeLevels(BuySell buySell, int fromPrice, int toPrice, int depth) {
+        TreeMap<Integer, Long> levels = new TreeMap<>(buySell == BUY ? Collections.reverseOrder() : null);
+        for (OrderBook shard : shards) {
+            synchronized (shard) {
+                PriceLadder ladder = shard.ladder(buySell);
+                int firstLevel = ladder.firstLevel(fromPrice, toPrice);
+                int endLevel = ladder.endLevel(fromPrice, toPrice);
+                if (endLevel - firstLevel > depth) {
+                    endLevel = firstLevel + depth;
+                }
+                for (int level = firstLevel; level < endLevel; level++) {
+                    levels.merge(ladder.getPrice(level), ladder.getQuantity(level), Math::addExact);
+                }
+            }
+        }
+        List<OrderSummary> orderSummaries = new ArrayList<>(Math.min(levels.size(), depth));
+        for (Map.Entry<Integer, Long> level : levels.entrySet()) {
+            if (orderSummaries.size() == depth) {
+                break;
+            }
+            orderSummaries.add(OrderSummary.ofQuantityUnits(level.getValue(), level.getKey()));
+        }
+        return orderSummaries;
+    }
+}
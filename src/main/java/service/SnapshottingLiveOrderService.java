@@ -0,0 +1,350 @@
+package service;
+
+import journal.FsyncPolicy;
+import journal.JournalListener;
+import journal.OrderJournal;
+import journal.OrderSnapshot;
+import model.Order;
+import ref.OrderRefGenerator;
+import ref.SequenceOrderRefGenerator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+
+/**
+ * Durable LiveOrderService keeping a directory of numbered snapshot and journal files so recovery only
+ * replays the changes since the latest snapshot.
+ * <p>
+ * Generation n consists of {@code snapshot-n.snap}, the book as of the start of the generation, and
+ * {@code journal-n.log}, the changes made during it. Taking a snapshot briefly blocks writers to switch to the
+ * next generation's journal, then writes the snapshot from the live book while writers carry on. Once the
+ * snapshot is durable the files of older generations are deleted.
+ * <p>
+ * A failed background snapshot leaves the current generation in place and is retried on the next run, the failures
+ * are counted by {@link #snapshotFailures()} and the latest is kept by {@link #lastSnapshotFailure()}.
+ */
+public class SnapshottingLiveOrderService extends AggregatingLiveOrderService implements LiveOrderService, Closeable {
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final int REPLAY_BATCH_SIZE = 4096;
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final ScheduledExecutorService snapshotScheduler;
+    /**
+     * Writers hold the read lock from journal append to book update, the write lock is only taken
+     * to switch journals so every change is either in the old journal and the book, or in the new journal
+     */
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final Lock snapshotLock = new ReentrantLock();
+    /**
+     * Held from journal append to book update of an amend, so amends of one order are applied in journal order
+     */
+    private final OrderRefLocks amendLocks = new OrderRefLocks();
+    private final AtomicLong snapshotFailures = new AtomicLong();
+    private volatile RuntimeException lastSnapshotFailure;
+    private volatile OrderJournal journal;
+    private long generation;
+
+    /**
+     * @param directory holds the snapshot and journal files
+     * @param fsyncPolicy the journal fsync policy
+     * @param snapshotIntervalMillis interval between background snapshots, 0 to only snapshot on {@link #snapshot()}
+     */
+    public SnapshottingLiveOrderService(Path directory, FsyncPolicy fsyncPolicy, long snapshotIntervalMillis) {
+        this(directory, fsyncPolicy, snapshotIntervalMillis, new SequenceOrderRefGenerator());
+    }
+
+    public SnapshottingLiveOrderService(Path directory, FsyncPolicy fsyncPolicy, long snapshotIntervalMillis,
+                                        OrderRefGenerator orderRefGenerator) {
+        super(orderRefGenerator);
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        recover();
+        if (snapshotIntervalMillis > 0) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "order-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotInBackground,
+                    snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            snapshotScheduler = null;
+        }
+    }
+
+    /**
+     * Snapshot the live book and start a new generation, deleting the files of older generations
+     */
+    public void snapshot() {
+        snapshotLock.lock();
+        try {
+            long snapshotGeneration;
+            OrderJournal previousJournal;
+            journalLock.writeLock().lock();
+            try {
+                snapshotGeneration = generation + 1;
+                previousJournal = journal;
+                journal = new OrderJournal(journalFile(snapshotGeneration), fsyncPolicy);
+                generation = snapshotGeneration;
+            } finally {
+                journalLock.writeLock().unlock();
+            }
+            previousJournal.close();
+
+            List<Order> orders = Stream.concat(streamOrders(BUY), streamOrders(SELL))
+                    .collect(Collectors.toList());
+            OrderSnapshot.write(snapshotFile(snapshotGeneration), orders);
+            deleteGenerationsBefore(snapshotGeneration);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of background snapshots that failed
+     */
+    public long snapshotFailures() {
+        return snapshotFailures.get();
+    }
+
+    /**
+     * @return the failure of the latest background snapshot that failed, null if none has
+     */
+    public RuntimeException lastSnapshotFailure() {
+        return lastSnapshotFailure;
+    }
+
+    @Override
+    public void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdownNow();
+        }
+        snapshotLock.lock();
+        try {
+            journal.close();
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @Override
+    protected Order removeOrder(String orderRef) {
+        journalLock.readLock().lock();
+        try {
+            if (loadOrder(orderRef) == null) {
+                return null;
+            }
+            journal.appendCancel(orderRef);
+            return super.removeOrder(orderRef);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected Order saveOrder(Order order) {
+        journalLock.readLock().lock();
+        try {
+            journal.appendRegister(order);
+            return super.saveOrder(order);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected Order replaceOrder(Order order) {
+        journalLock.readLock().lock();
+        try {
+            synchronized (amendLocks.lockFor(order.getOrderRef())) {
+                if (loadOrder(order.getOrderRef()) == null) {
+                    return null;
+                }
+                journal.appendAmend(order.getOrderRef(), order.getQuantity(), order.getPrice());
+                return super.replaceOrder(order);
+            }
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected List<Order> saveOrders(List<Order> orders) {
+        journalLock.readLock().lock();
+        try {
+            journal.appendRegisters(orders);
+            return super.saveOrders(orders);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    protected List<Order> removeOrders(Collection<String> orderRefs) {
+        journalLock.readLock().lock();
+        try {
+            List<String> knownOrderRefs = new ArrayList<>(orderRefs.size());
+            for (String orderRef : orderRefs) {
+                if (orderRef != null && loadOrder(orderRef) != null) {
+                    knownOrderRefs.add(orderRef);
+                }
+            }
+            journal.appendCancels(knownOrderRefs);
+            return super.removeOrders(orderRefs);
+        } finally {
+            journalLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Load the latest snapshot then replay the journals from its generation on, keeping the last journal open
+     * for appends. A change made while the snapshot was being written can be both in the snapshot and in the
+     * journal, so replayed registrations of orders already in the book are skipped.
+     */
+    private void recover() {
+        try {
+            Files.createDirectories(directory);
+            TreeSet<Long> snapshots = generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            TreeSet<Long> journals = generations(JOURNAL_PREFIX, JOURNAL_SUFFIX);
+            long snapshotGeneration = snapshots.isEmpty() ? 0 : snapshots.last();
+            if (snapshotGeneration > 0) {
+                super.saveOrders(OrderSnapshot.read(snapshotFile(snapshotGeneration)));
+            }
+            deleteGenerationsBefore(snapshotGeneration);
+
+            generation = Math.max(snapshotGeneration, journals.isEmpty() ? 0 : journals.last());
+            for (long journalGeneration : journals.tailSet(snapshotGeneration, true)) {
+                OrderJournal replayedJournal = new OrderJournal(journalFile(journalGeneration), fsyncPolicy);
+                replay(replayedJournal);
+                if (journalGeneration == generation) {
+                    journal = replayedJournal;
+                } else {
+                    replayedJournal.close();
+                }
+            }
+            if (journal == null) {
+                journal = new OrderJournal(journalFile(generation), fsyncPolicy);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Directory=%s could not be recovered", directory), e);
+        }
+    }
+
+    private void replay(OrderJournal replayedJournal) {
+        List<Order> restoredOrders = new ArrayList<>(REPLAY_BATCH_SIZE);
+        replayedJournal.replay(new JournalListener() {
+            @Override
+            public void onRegister(Order order) {
+                if (loadOrder(order.getOrderRef()) == null) {
+                    restoredOrders.add(order);
+                    if (restoredOrders.size() == REPLAY_BATCH_SIZE) {
+                        restoreOrders(restoredOrders);
+                    }
+                }
+            }
+
+            @Override
+            public void onCancel(String orderRef) {
+                restoreOrders(restoredOrders);
+                restoreCancel(orderRef);
+            }
+
+            @Override
+            public void onAmend(String orderRef, double quantity, int price) {
+                restoreOrders(restoredOrders);
+                restoreAmend(orderRef, quantity, price);
+            }
+        });
+        restoreOrders(restoredOrders);
+    }
+
+    private void restoreOrders(List<Order> orders) {
+        if (!orders.isEmpty()) {
+            super.saveOrders(orders);
+            orders.clear();
+        }
+    }
+
+    private void restoreCancel(String orderRef) {
+        super.removeOrder(orderRef);
+    }
+
+    private void restoreAmend(String orderRef, double quantity, int price) {
+        Order order = loadOrder(orderRef);
+        if (order != null) {
+            super.replaceOrder(new Order(orderRef, order.getUserId(), quantity, price, order.getBuySell()));
+        }
+    }
+
+    private void snapshotInBackground() {
+        try {
+            snapshot();
+        } catch (RuntimeException e) {
+            // keep snapshotting on the next run, a failure must not cancel the schedule
+            lastSnapshotFailure = e;
+            snapshotFailures.incrementAndGet();
+        }
+    }
+
+    private void deleteGenerationsBefore(long keptGeneration) {
+        try {
+            for (long old : generations(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headSet(keptGeneration)) {
+                Files.deleteIfExists(snapshotFile(old));
+            }
+            for (long old : generations(JOURNAL_PREFIX, JOURNAL_SUFFIX).headSet(keptGeneration)) {
+                Files.deleteIfExists(journalFile(old));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Directory=%s could not be cleaned", directory), e);
+        }
+    }
+
+    private TreeSet<Long> generations(String prefix, String suffix) throws IOException {
+        TreeSet<Long> generations = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        return generations;
+    }
+
+    private Path snapshotFile(long snapshotGeneration) {
+        return directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX);
+    }
+
+    private Path journalFile(long journalGeneration) {
+        return directory.resolve(JOURNAL_PREFIX + journalGeneration + JOURNAL_SUFFIX);
+    }
+}
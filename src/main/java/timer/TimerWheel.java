@@ -0,0 +1,251 @@
+package timer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timer wheel expiring keys at a deadline, with O(1) scheduling and cancelling however many keys are
+ * pending.
+ * <p>
+ * Time advances in ticks of tickMillis. Level 0 has a slot per tick for the next 256 ticks, and each level above
+ * has a slot per full turn of the level below, so four levels cover 2^32 ticks and later deadlines wait in an
+ * overflow list. A key sits in the lowest level whose turn contains its deadline. When a level's slot comes round
+ * its keys cascade to the levels below, so every key is moved at most once per level before it expires, and
+ * expiring a slot costs only the keys in it.
+ * <p>
+ * Not thread safe, callers must guard access.
+ *
+ * @param <K> the key type, keys are unique within the wheel
+ */
+public final class TimerWheel<K> {
+
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    /**
+     * Index of the overflow list in heads, it has a single slot
+     */
+    private static final int OVERFLOW = LEVELS;
+
+    private static final class Entry<K> {
+        private final K key;
+        private final long tick;
+        private int level;
+        private int slot;
+        private Entry<K> previous;
+        private Entry<K> next;
+
+        private Entry(K key, long tick) {
+            this.key = key;
+            this.tick = tick;
+        }
+    }
+
+    private final long tickMillis;
+    @SuppressWarnings("unchecked")
+    private final Entry<K>[][] heads = new Entry[LEVELS + 1][SLOTS];
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    /**
+     * The next tick to expire, every earlier tick has been expired
+     */
+    private long currentTick;
+
+    /**
+     * @param tickMillis resolution of the deadlines, keys expire up to one tick late
+     * @param startMillis the time the wheel starts from, earlier deadlines expire on the first advance
+     */
+    public TimerWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException(String.format("TickMillis=%s not allowed", tickMillis));
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule a key to expire at a deadline, replacing any deadline it already has
+     */
+    public void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        long deadlineTick = deadlineMillis / tickMillis + (deadlineMillis % tickMillis > 0 ? 1 : 0);
+        Entry<K> entry = new Entry<>(key, Math.max(deadlineTick, currentTick));
+        entries.put(key, entry);
+        place(entry);
+    }
+
+    /**
+     * @return true if the key was pending
+     */
+    public boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    /**
+     * Expire every key with a deadline up to nowMillis. Empty slots are skipped, so the cost depends on the keys
+     * moved and expired rather than on the time passed.
+     *
+     * @param expired receives the expired keys, in deadline order by tick
+     * @return the number of keys expired
+     */
+    public int advance(long nowMillis, List<K> expired) {
+        return advance(nowMillis, expired, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Expire at most limit keys with a deadline up to nowMillis, the keys still due stay pending and expire on the
+     * next advance.
+     *
+     * @param expired receives the expired keys, in deadline order by tick
+     * @return the number of keys expired
+     */
+    public int advance(long nowMillis, List<K> expired, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException(String.format("Limit=%s not allowed", limit));
+        }
+        long targetTick = nowMillis / tickMillis;
+        int count = 0;
+        while (currentTick <= targetTick && !entries.isEmpty()) {
+            long nextTick = nextTick();
+            if (nextTick > targetTick) {
+                break;
+            }
+            if (nextTick != currentTick) {
+                moveTo(nextTick);
+            }
+            int slot = (int) (currentTick & SLOT_MASK);
+            for (Entry<K> entry = heads[0][slot]; entry != null; entry = heads[0][slot]) {
+                if (count == limit) {
+                    // stay on this tick, its remaining keys expire first on the next advance
+                    return count;
+                }
+                unlink(entry);
+                entries.remove(entry.key);
+                expired.add(entry.key);
+                count++;
+            }
+            moveTo(currentTick + 1);
+        }
+        if (currentTick <= targetTick) {
+            moveTo(targetTick + 1);
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of pending keys
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * @return the first tick from the current one at which a slot expires or cascades
+     */
+    private long nextTick() {
+        for (int slot = (int) (currentTick & SLOT_MASK); slot < SLOTS; slot++) {
+            if (heads[0][slot] != null) {
+                return (currentTick & ~(long) SLOT_MASK) | slot;
+            }
+        }
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            for (int slot = (int) ((currentTick >>> shift) & SLOT_MASK) + 1; slot < SLOTS; slot++) {
+                if (heads[level][slot] != null) {
+                    return ((currentTick >>> (shift + SLOT_BITS)) << (shift + SLOT_BITS)) | ((long) slot << shift);
+                }
+            }
+        }
+        return ((currentTick >>> (SLOT_BITS * LEVELS)) + 1) << (SLOT_BITS * LEVELS);
+    }
+
+    /**
+     * Set the current tick, cascading the slots that start there. Every slot skipped on the way must be empty.
+     */
+    private void moveTo(long tick) {
+        currentTick = tick;
+        if ((currentTick & SLOT_MASK) == 0) {
+            cascade();
+        }
+    }
+
+    /**
+     * Move the keys of every level whose slot starts at the current tick down to the levels below, highest first
+     * so keys cascading several levels land in slots that are cascaded next
+     */
+    private void cascade() {
+        int highest = 1;
+        while (highest < LEVELS && (currentTick & ((1L << (SLOT_BITS * (highest + 1))) - 1)) == 0) {
+            highest++;
+        }
+        if (highest == LEVELS) {
+            replace(OVERFLOW, 0);
+            highest = LEVELS - 1;
+        }
+        for (int level = highest; level >= 1; level--) {
+            replace(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+        }
+    }
+
+    private void replace(int level, int slot) {
+        Entry<K> entry = heads[level][slot];
+        heads[level][slot] = null;
+        while (entry != null) {
+            Entry<K> next = entry.next;
+            entry.previous = null;
+            entry.next = null;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    /**
+     * Put an entry in the lowest level whose current turn contains its tick
+     */
+    private void place(Entry<K> entry) {
+        int level = 0;
+        while (level < LEVELS && !sameTurn(entry.tick, level)) {
+            level++;
+        }
+        int slot = level == OVERFLOW ? 0 : (int) ((entry.tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        entry.level = level;
+        entry.slot = slot;
+        Entry<K> head = heads[level][slot];
+        entry.next = head;
+        if (head != null) {
+            head.previous = entry;
+        }
+        heads[level][slot] = entry;
+    }
+
+    /**
+     * @return true if the tick falls in the current turn of the level, so it has a slot there
+     */
+    private boolean sameTurn(long tick, int level) {
+        int turnBits = SLOT_BITS * (level + 1);
+        return turnBits >= Long.SIZE || (tick >>> turnBits) == (currentTick >>> turnBits);
+    }
+
+    private void unlink(Entry<K> entry) {
+        if (entry.previous == null) {
+            heads[entry.level][entry.slot] = entry.next;
+        } else {
+            entry.previous.next = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+    }
+}
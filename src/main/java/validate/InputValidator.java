@@ -1,8 +1,12 @@
 package validate;
 
+import exception.IllegalBucketSize;
+import exception.IllegalDepth;
+import exception.IllegalInstrument;
 import exception.IllegalPrice;
 import exception.IllegalQuantity;
 import exception.IllegalUserId;
+import model.QuantityScale;
 
 public final class InputValidator {
 
@@ -12,18 +16,60 @@ public final class InputValidator {
         }
     }
 
+    /**
+     * The quantity must be at least half a {@link QuantityScale} unit so it does not round to 0
+     */
     public static void validateQuantity(double quantity) {
-        if (quantity <= 0) {
+        if (!(quantity > 0) || !validUnits(QuantityScale.toUnits(quantity))) {
             throw new IllegalQuantity(String.format("Quantity=%s not allowed", quantity));
         }
     }
 
+    public static void validateQuantityUnits(long quantityUnits) {
+        if (!validUnits(quantityUnits)) {
+            throw new IllegalQuantity(
+                    String.format("Quantity=%s not allowed", QuantityScale.toQuantity(quantityUnits)));
+        }
+    }
+
     public static void validateUserId(String userId) {
         if (userId == null || userId.isEmpty() || userId.startsWith(" ") || userId.endsWith(" ")) {
             throw new IllegalUserId(String.format("UserId=%s not allowed", userId));
         }
     }
 
+    public static void validateInstrument(String instrument) {
+        if (instrument == null || instrument.isEmpty() || instrument.startsWith(" ") || instrument.endsWith(" ")) {
+            throw new IllegalInstrument(String.format("Instrument=%s not allowed", instrument));
+        }
+    }
+
+    public static void validateDepth(int depth) {
+        if (depth <= 0) {
+            throw new IllegalDepth(String.format("Depth=%s not allowed", depth));
+        }
+    }
+
+    public static void validateBucketSize(int bucketSize) {
+        if (bucketSize <= 0) {
+            throw new IllegalBucketSize(String.format("BucketSize=%s not allowed", bucketSize));
+        }
+    }
+
+    /**
+     * An aggregate of orders may exceed the limit of a single order, it only has to be positive
+     */
+    public static void validateTotalQuantityUnits(long quantityUnits) {
+        if (quantityUnits <= 0) {
+            throw new IllegalQuantity(
+                    String.format("Quantity=%s not allowed", QuantityScale.toQuantity(quantityUnits)));
+        }
+    }
+
+    private static boolean validUnits(long quantityUnits) {
+        return quantityUnits > 0 && quantityUnits <= QuantityScale.MAX_UNITS;
+    }
+
     private InputValidator() {
     }
 }
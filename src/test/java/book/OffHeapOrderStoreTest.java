@@ -0,0 +1,109 @@
+package book;
+
+import model.Order;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OffHeapOrderStoreTest {
+
+    private final OffHeapOrderStore store = new OffHeapOrderStore();
+
+    @Test
+    public void put_get() {
+        Order order = new Order(UUID.randomUUID().toString(), "user1", 3.5, 306, SELL);
+        store.put(order);
+
+        assertThat(store.get(order.getOrderRef()), is(order));
+        assertThat(store.get(order.getOrderRef()).getUserId(), is("user1"));
+        assertThat(store.get(order.getOrderRef()).getBuySell(), is(SELL));
+        assertThat(store.get("unknown"), is(nullValue()));
+        assertThat(store.size(), is(1));
+    }
+
+    @Test
+    public void remove_reusesSlot() {
+        for (int i = 0; i < 1000; i++) {
+            store.put(new Order("ref" + i, "user" + (i % 7), 1.0, 300 + i, i % 2 == 0 ? BUY : SELL));
+        }
+        long offHeapBytes = store.offHeapBytes();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(store.remove("ref" + i).getPrice(), is(300 + i));
+            store.put(new Order("new" + i, "user" + (i % 7), 2.0, 300 + i, BUY));
+        }
+
+        assertThat(store.size(), is(1000));
+        assertThat(store.offHeapBytes(), is(offHeapBytes));
+        assertThat(store.remove("ref0"), is(nullValue()));
+        assertThat(store.get("new999").getQuantity(), is(2.0));
+    }
+
+    @Test
+    public void put_growsIndexAndChunks() {
+        int count = 200_000;
+        for (int i = 0; i < count; i++) {
+            store.put(new Order(Integer.toString(i, Character.MAX_RADIX), "user1", 1.0, 300, BUY));
+        }
+
+        assertThat(store.size(), is(count));
+        for (int i = 0; i < count; i += 997) {
+            assertThat(store.get(Integer.toString(i, Character.MAX_RADIX)).getPrice(), is(300));
+        }
+    }
+
+    @Test
+    public void replace_keepsUserAndSide() {
+        store.put(new Order("ref1", "user1", 3.5, 306, BUY));
+        Order previous = store.replace(new Order("ref1", "user1", 1.0, 310, BUY));
+
+        assertThat(previous.getQuantity(), is(3.5));
+        assertThat(store.get("ref1").getQuantity(), is(1.0));
+        assertThat(store.get("ref1").getPrice(), is(310));
+        assertThat(store.replace(new Order("ref2", "user1", 1.0, 310, BUY)), is(nullValue()));
+    }
+
+    @Test
+    public void ordersForUser() {
+        Order order1 = new Order("ref1", "user1", 3.5, 306, BUY);
+        Order order2 = new Order("ref2", "user2", 1.5, 307, SELL);
+        Order order3 = new Order("ref3", "user1", 2.0, 309, SELL);
+        store.put(order1);
+        store.put(order2);
+        store.put(order3);
+
+        List<Order> orders = new ArrayList<>();
+        store.ordersForUser("user1", orders);
+        assertThat(orders.size(), is(2));
+        assertThat(orders, hasItem(order1));
+        assertThat(orders, hasItem(order3));
+
+        store.remove("ref2");
+        orders.clear();
+        store.ordersForUser("user2", orders);
+        assertThat(orders.size(), is(0));
+
+        orders.clear();
+        store.orders(SELL, orders);
+        assertThat(orders.size(), is(1));
+        assertThat(orders.get(0), is(order3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void put_orderRefTooLong() {
+        new OffHeapOrderStore(8).put(new Order("123456789", "user1", 1.0, 300, BUY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxOrderRefLength_zero() {
+        new OffHeapOrderStore(0);
+    }
+}
@@ -0,0 +1,56 @@
+package book;
+
+import exception.IllegalBucketSize;
+import org.junit.Test;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PriceBucketsTest {
+
+    @Test
+    public void bucketPrice_labelledAtBucketCeiling() {
+        assertThat(PriceBuckets.bucketPrice(1, 10), is(10));
+        assertThat(PriceBuckets.bucketPrice(10, 10), is(10));
+        assertThat(PriceBuckets.bucketPrice(11, 10), is(20));
+        assertThat(PriceBuckets.bucketPrice(306, 1), is(306));
+        assertThat(PriceBuckets.bucketPrice(Integer.MAX_VALUE, 100), is(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void addRemoveAdjust() {
+        PriceBuckets buckets = new PriceBuckets(BUY, 10, 100, 10);
+        buckets.add(301, 3500);
+        buckets.add(309, 1500);
+        buckets.add(311, 2000);
+
+        PriceLadder tens = buckets.ladder(10);
+        assertThat(tens.size(), is(2));
+        assertThat(tens.getPrice(0), is(320));
+        assertThat(tens.getPrice(1), is(310));
+        assertThat(tens.getQuantity(1), is(5000L));
+        assertThat(tens.getOrderCount(1), is(2));
+        assertThat(buckets.ladder(100).getQuantity(0), is(7000L));
+
+        buckets.adjust(309, -500);
+        buckets.remove(301, 3500);
+        assertThat(tens.getQuantity(1), is(1000L));
+        assertThat(tens.getOrderCount(1), is(1));
+        buckets.remove(309, 1000);
+        assertThat(tens.size(), is(1));
+        assertThat(buckets.ladder(100).getQuantity(0), is(2000L));
+    }
+
+    @Test
+    public void ladder_unknownBucketSize() {
+        assertThat(new PriceBuckets(SELL, 10).ladder(5), is(nullValue()));
+    }
+
+    @Test(expected = IllegalBucketSize.class)
+    public void create_zeroBucketSize() {
+        new PriceBuckets(SELL, 10, 0);
+    }
+}
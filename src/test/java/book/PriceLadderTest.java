@@ -0,0 +1,211 @@
+package book;
+
+import model.OrderSummary;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PriceLadderTest {
+
+    @Test
+    public void add_buy_bestPriceFirst() {
+        PriceLadder ladder = new PriceLadder(BUY);
+        ladder.add(306, 3500L);
+        ladder.add(310, 1200L);
+        ladder.add(306, 2000L);
+        ladder.add(307, 1500L);
+
+        assertThat(ladder.size(), is(3));
+        assertThat(ladder.getPrice(0), is(310));
+        assertThat(ladder.getPrice(1), is(307));
+        assertThat(ladder.getPrice(2), is(306));
+        assertThat(ladder.getQuantity(2), is(5500L));
+        assertThat(ladder.getOrderCount(2), is(2));
+    }
+
+    @Test
+    public void add_sell_bestPriceFirst() {
+        PriceLadder ladder = new PriceLadder(SELL);
+        ladder.add(310, 1200L);
+        ladder.add(306, 3500L);
+        ladder.add(307, 1500L);
+
+        assertThat(ladder.getPrice(0), is(306));
+        assertThat(ladder.getPrice(1), is(307));
+        assertThat(ladder.getPrice(2), is(310));
+    }
+
+    @Test
+    public void add_sell_extremePrices() {
+        PriceLadder ladder = new PriceLadder(SELL);
+        ladder.add(Integer.MAX_VALUE, 1000L);
+        ladder.add(Integer.MIN_VALUE, 2000L);
+        ladder.add(0, 3000L);
+
+        assertThat(ladder.getPrice(0), is(Integer.MIN_VALUE));
+        assertThat(ladder.getPrice(1), is(0));
+        assertThat(ladder.getPrice(2), is(Integer.MAX_VALUE));
+        assertThat(ladder.levelFrom(1), is(2));
+    }
+
+    @Test
+    public void remove_bestLevelKeepsOrder() {
+        PriceLadder ladder = new PriceLadder(SELL);
+        ladder.add(306, 3500L);
+        ladder.add(307, 1500L);
+        ladder.add(310, 1200L);
+
+        ladder.remove(306, 3500L);
+
+        assertThat(ladder.size(), is(2));
+        assertThat(ladder.getPrice(0), is(307));
+        assertThat(ladder.getQuantity(0), is(1500L));
+        assertThat(ladder.getPrice(1), is(310));
+    }
+
+    @Test
+    public void add_growsBeyondInitialCapacity() {
+        PriceLadder ladder = new PriceLadder(SELL);
+        for (int price = 1000; price > 0; price--) {
+            ladder.add(price, 1000L);
+        }
+
+        assertThat(ladder.size(), is(1000));
+        assertThat(ladder.getPrice(0), is(1));
+        assertThat(ladder.getPrice(999), is(1000));
+    }
+
+    @Test
+    public void remove_lastOrderDropsLevel() {
+        PriceLadder ladder = new PriceLadder(BUY);
+        ladder.add(306, 3500L);
+        ladder.add(306, 2000L);
+        ladder.add(307, 1500L);
+
+        ladder.remove(306, 3500L);
+        assertThat(ladder.quantity(306), is(2000L));
+        assertThat(ladder.size(), is(2));
+
+        ladder.remove(306, 2000L);
+        assertThat(ladder.quantity(306), is(0L));
+        assertThat(ladder.size(), is(1));
+        assertThat(ladder.getPrice(0), is(307));
+        assertThat(ladder.orderCount(), is(1));
+    }
+
+    @Test
+    public void adjust_keepsOrders() {
+        PriceLadder ladder = new PriceLadder(SELL);
+        ladder.add(306, 3500L);
+        ladder.add(306, 2000L);
+        ladder.adjust(306, -1500L);
+
+        assertThat(ladder.getQuantity(0), is(4000L));
+        assertThat(ladder.getOrderCount(0), is(2));
+    }
+
+    @Test
+    public void remove_unknownPrice() {
+        PriceLadder ladder = new PriceLadder(BUY);
+        ladder.add(306, 3500L);
+
+        ladder.remove(300, 1000L);
+        assertThat(ladder.size(), is(1));
+    }
+
+    @Test
+    public void topLevels_limitedByBuffer() {
+        PriceLadder ladder = new PriceLadder(BUY);
+        ladder.add(306, 3500L);
+        ladder.add(307, 1500L);
+        ladder.add(310, 1200L);
+
+        int[] prices = new int[2];
+        long[] quantities = new long[2];
+        assertThat(ladder.topLevels(prices, quantities), is(2));
+        assertThat(prices[0], is(310));
+        assertThat(quantities[0], is(1200L));
+        assertThat(prices[1], is(307));
+        assertThat(quantities[1], is(1500L));
+    }
+
+    @Test
+    public void levelFrom_buy() {
+        PriceLadder ladder = new PriceLadder(BUY);
+        ladder.add(306, 3500L);
+        ladder.add(307, 1500L);
+        ladder.add(310, 1200L);
+
+        assertThat(ladder.levelFrom(400), is(0));
+        assertThat(ladder.levelFrom(310), is(0));
+        assertThat(ladder.levelFrom(308), is(1));
+        assertThat(ladder.levelFrom(306), is(2));
+        assertThat(ladder.levelFrom(305), is(3));
+    }
+
+    @Test
+    public void levelFrom_sell() {
+        PriceLadder ladder = new PriceLadder(SELL);
+        ladder.add(306, 3500L);
+        ladder.add(307, 1500L);
+        ladder.add(310, 1200L);
+
+        assertThat(ladder.levelFrom(300), is(0));
+        assertThat(ladder.levelFrom(307), is(1));
+        assertThat(ladder.levelFrom(308), is(2));
+        assertThat(ladder.levelFrom(311), is(3));
+    }
+
+    @Test
+    public void toOrderSummaries_buyPriceBand() {
+        PriceLadder ladder = new PriceLadder(BUY);
+        ladder.add(306, 3500L);
+        ladder.add(307, 1500L);
+        ladder.add(310, 1200L);
+
+        assertThat(ladder.toOrderSummaries(307, 400), is(Arrays.asList(
+                OrderSummary.ofQuantityUnits(1200L, 310), OrderSummary.ofQuantityUnits(1500L, 307))));
+        assertThat(ladder.toOrderSummaries(Integer.MIN_VALUE, 306),
+                is(Collections.singletonList(OrderSummary.ofQuantityUnits(3500L, 306))));
+        assertThat(ladder.toOrderSummaries(308, 309).isEmpty(), is(true));
+        assertThat(ladder.toOrderSummaries(2), is(Arrays.asList(
+                OrderSummary.ofQuantityUnits(1200L, 310), OrderSummary.ofQuantityUnits(1500L, 307))));
+    }
+
+    @Test
+    public void toOrderSummaries_sellPriceBand() {
+        PriceLadder ladder = new PriceLadder(SELL);
+        ladder.add(306, 3500L);
+        ladder.add(307, 1500L);
+        ladder.add(310, 1200L);
+
+        assertThat(ladder.toOrderSummaries(307, Integer.MAX_VALUE), is(Arrays.asList(
+                OrderSummary.ofQuantityUnits(1500L, 307), OrderSummary.ofQuantityUnits(1200L, 310))));
+        assertThat(ladder.toOrderSummaries(310, 306).isEmpty(), is(true));
+        assertThat(ladder.toOrderSummaries(5).size(), is(3));
+    }
+
+    @Test
+    public void copy_isIndependent() {
+        PriceLadder ladder = new PriceLadder(BUY);
+        ladder.add(306, 3500L);
+        PriceLadder copy = ladder.copy();
+        ladder.add(310, 1200L);
+        copy.add(305, 1000L);
+
+        assertThat(copy.toOrderSummaries(), is(Arrays.asList(
+                OrderSummary.ofQuantityUnits(3500L, 306), OrderSummary.ofQuantityUnits(1000L, 305))));
+        assertThat(ladder.size(), is(2));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void getPrice_outOfRange() {
+        new PriceLadder(SELL).getPrice(0);
+    }
+}
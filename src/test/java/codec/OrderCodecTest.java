@@ -0,0 +1,179 @@
+package codec;
+
+import model.Order;
+import model.OrderRequest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static model.QuantityScale.toUnits;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OrderCodecTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(256).order(ByteOrder.LITTLE_ENDIAN);
+
+    @Test
+    public void registerOrder_roundTrip() {
+        int frameLength = RegisterOrderCodec.encode(buffer, 16, "user1", toUnits(3.5), 306, SELL);
+
+        assertThat(MessageHeader.frameLength(buffer, 16), is(frameLength));
+        assertThat(MessageHeader.templateId(buffer, 16), is(MessageHeader.REGISTER_ORDER));
+        RegisterOrderCodec codec = new RegisterOrderCodec().wrap(buffer, 16);
+        assertThat(codec.frameLength(), is(frameLength));
+        assertThat(codec.quantityUnits(), is(toUnits(3.5)));
+        assertThat(codec.price(), is(306));
+        assertThat(codec.buySell(), is(SELL));
+        assertThat(codec.userId(), is("user1"));
+        StringBuilder userId = new StringBuilder("was ");
+        codec.userId(userId);
+        assertThat(userId.toString(), is("was user1"));
+
+        OrderRequest orderRequest = codec.toOrderRequest();
+        assertThat(orderRequest.getUserId(), is("user1"));
+        assertThat(orderRequest.getQuantity(), is(3.5));
+        assertThat(orderRequest.getPrice(), is(306));
+        assertThat(orderRequest.getBuySell(), is(SELL));
+    }
+
+    @Test
+    public void cancelOrder_roundTrip() {
+        int frameLength = CancelOrderCodec.encode(buffer, 0, "ref-42");
+
+        CancelOrderCodec codec = new CancelOrderCodec().wrap(buffer, 0);
+        assertThat(codec.frameLength(), is(frameLength));
+        assertThat(codec.orderRef(), is("ref-42"));
+    }
+
+    @Test
+    public void queries_roundTrip() {
+        int offset = GetOrderCodec.encode(buffer, 0, "ref-42");
+        SummaryRequestCodec.encode(buffer, offset, SELL);
+
+        assertThat(new GetOrderCodec().wrap(buffer, 0).orderRef(), is("ref-42"));
+        assertThat(new SummaryRequestCodec().wrap(buffer, offset).buySell(), is(SELL));
+    }
+
+    @Test
+    public void error_roundTrip() {
+        int frameLength = ErrorCodec.encode(buffer, 0, "OrderNotFound", "OrderRef=ref-42");
+
+        ErrorCodec codec = new ErrorCodec().wrap(buffer, 0);
+        assertThat(frameLength, is(ErrorCodec.frameLength("OrderNotFound", "OrderRef=ref-42")));
+        assertThat(codec.errorType(), is("OrderNotFound"));
+        assertThat(codec.message(), is("OrderRef=ref-42"));
+
+        ErrorCodec.encode(buffer, 0, "NullPointerException", null);
+        assertThat(codec.message(), is(""));
+    }
+
+    @Test
+    public void error_longMessageCutShort() {
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < 0x10000; i++) {
+            message.append('x');
+        }
+        ByteBuffer large = ByteBuffer.allocate(0x10100);
+        int frameLength = ErrorCodec.encode(large, 0, "IllegalUserId", message);
+
+        assertThat(frameLength, is(ErrorCodec.frameLength("IllegalUserId", message)));
+        assertThat(new ErrorCodec().wrap(large, 0).message().length(), is(0xFFFF / 3));
+    }
+
+    @Test
+    public void order_roundTrip() {
+        Order order = new Order("ref-7", "user\u00e9\u20ac\ud83d\ude00", 12.5, 299, BUY);
+        int frameLength = OrderCodec.encode(buffer, 4, order);
+        assertThat(frameLength, is(OrderCodec.frameLength(order)));
+
+        OrderCodec codec = new OrderCodec().wrap(buffer, 4);
+        assertThat(codec.frameLength(), is(frameLength));
+        assertThat(codec.quantityUnits(), is(order.getQuantityUnits()));
+        assertThat(codec.price(), is(299));
+        assertThat(codec.buySell(), is(BUY));
+        StringBuilder orderRef = new StringBuilder();
+        codec.orderRef(orderRef);
+        assertThat(orderRef.toString(), is("ref-7"));
+        StringBuilder userId = new StringBuilder();
+        codec.userId(userId);
+        assertThat(userId.toString(), is(order.getUserId()));
+
+        Order decoded = codec.toOrder();
+        assertThat(decoded.getOrderRef(), is("ref-7"));
+        assertThat(decoded.getUserId(), is(order.getUserId()));
+        assertThat(decoded.getQuantity(), is(12.5));
+        assertThat(decoded.getPrice(), is(299));
+        assertThat(decoded.getBuySell(), is(BUY));
+    }
+
+    @Test
+    public void frames_backToBack() {
+        int offset = RegisterOrderCodec.encode(buffer, 0, "user1", 1_000_000L, 100, BUY);
+        CancelOrderCodec.encode(buffer, offset, "ref-1");
+
+        assertThat(MessageHeader.templateId(buffer, MessageHeader.frameLength(buffer, 0)),
+                is(MessageHeader.CANCEL_ORDER));
+        assertThat(new CancelOrderCodec().wrap(buffer, offset).orderRef(), is("ref-1"));
+        assertThat(new RegisterOrderCodec().wrap(buffer, 0).userId(), is("user1"));
+    }
+
+    @Test
+    public void wrap_otherMessage() {
+        CancelOrderCodec.encode(buffer, 0, "ref-1");
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("TemplateId=2 not allowed");
+        new OrderCodec().wrap(buffer, 0);
+    }
+
+    @Test
+    public void wrap_frameShorterThanFixedFields() {
+        RegisterOrderCodec.encode(buffer, 0, "user1", toUnits(3.5), 306, SELL);
+        buffer.putInt(MessageHeader.FRAME_LENGTH_OFFSET, MessageHeader.HEADER_LENGTH);
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("FrameLength=8 not allowed");
+        new RegisterOrderCodec().wrap(buffer, 0);
+    }
+
+    @Test
+    public void wrap_stringPastFrameEnd() {
+        int frameLength = OrderCodec.encode(buffer, 0, Order.ofQuantityUnits("ref-1", "user1", 10, 306, BUY));
+        buffer.putInt(MessageHeader.FRAME_LENGTH_OFFSET, frameLength - 1);
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage(String.format("FrameLength=%s too short", frameLength - 1));
+        new OrderCodec().wrap(buffer, 0);
+    }
+
+    @Test
+    public void buySell_unknownSide() {
+        SummaryRequestCodec.encode(buffer, 0, BUY);
+        buffer.put(MessageHeader.HEADER_LENGTH, (byte) 7);
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("BuySell=7 not allowed");
+        new SummaryRequestCodec().wrap(buffer, 0).buySell();
+    }
+
+    @Test
+    public void encode_stringTooLong() {
+        StringBuilder orderRef = new StringBuilder();
+        for (int i = 0; i < 0x10000; i++) {
+            orderRef.append('x');
+        }
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Value of 65536 bytes too long to encode");
+        CancelOrderCodec.encode(ByteBuffer.allocate(0x10100), 0, orderRef);
+    }
+}
@@ -0,0 +1,125 @@
+package codec;
+
+import model.OrderSummary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SummaryCodecTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final List<OrderSummary> orderSummaries = Arrays.asList(
+            OrderSummary.ofQuantityUnits(5_500_000L, 299),
+            OrderSummary.ofQuantityUnits(2_000_000L, 298),
+            OrderSummary.ofQuantityUnits(1_200_000L, 295),
+            OrderSummary.ofQuantityUnits(7_000_000L, 290),
+            OrderSummary.ofQuantityUnits(300_000L, 200));
+
+    @Test
+    public void summary_roundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        int frameLength = SummaryCodec.encode(buffer, 8, BUY, orderSummaries);
+
+        SummaryCodec codec = new SummaryCodec().wrap(buffer, 8);
+        assertThat(frameLength, is(SummaryCodec.frameLength(5)));
+        assertThat(codec.frameLength(), is(frameLength));
+        assertThat(codec.isLast(), is(true));
+        assertThat(codec.buySell(), is(BUY));
+        assertThat(codec.levelCount(), is(5));
+        assertThat(codec.price(1), is(298));
+        assertThat(codec.quantityUnits(1), is(2_000_000L));
+        List<OrderSummary> decoded = new ArrayList<>();
+        codec.orderSummaries(decoded);
+        assertThat(decoded, is(orderSummaries));
+    }
+
+    @Test
+    public void summary_empty() {
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        SummaryCodec.encode(buffer, 0, SELL, Collections.emptyList());
+
+        SummaryCodec codec = new SummaryCodec().wrap(buffer, 0);
+        assertThat(codec.buySell(), is(SELL));
+        assertThat(codec.levelCount(), is(0));
+        assertThat(codec.isLast(), is(true));
+    }
+
+    @Test
+    public void stream_fragmentsWhenBufferFull() {
+        List<ByteBuffer> frames = new ArrayList<>();
+        SummaryStreamEncoder encoder = new SummaryStreamEncoder(ByteBuffer.allocate(SummaryCodec.frameLength(2)),
+                (buffer, offset, length) -> {
+                    ByteBuffer frame = ByteBuffer.allocate(length);
+                    for (int i = 0; i < length; i++) {
+                        frame.put(i, buffer.get(offset + i));
+                    }
+                    frames.add(frame);
+                });
+
+        encoder.encode(SELL, orderSummaries);
+
+        assertThat(frames.size(), is(3));
+        SummaryCodec codec = new SummaryCodec();
+        List<OrderSummary> decoded = new ArrayList<>();
+        for (int i = 0; i < frames.size(); i++) {
+            codec.wrap(frames.get(i), 0);
+            assertThat(codec.buySell(), is(SELL));
+            assertThat(codec.isLast(), is(i == frames.size() - 1));
+            codec.orderSummaries(decoded);
+        }
+        assertThat(codec.levelCount(), is(1));
+        assertThat(decoded, is(orderSummaries));
+    }
+
+    @Test
+    public void stream_emptyLastFragment() {
+        List<Boolean> last = new ArrayList<>();
+        List<Integer> levelCounts = new ArrayList<>();
+        SummaryCodec codec = new SummaryCodec();
+        SummaryStreamEncoder encoder = new SummaryStreamEncoder(ByteBuffer.allocate(SummaryCodec.frameLength(2)),
+                (buffer, offset, length) -> {
+                    codec.wrap(buffer, offset);
+                    last.add(codec.isLast());
+                    levelCounts.add(codec.levelCount());
+                });
+
+        encoder.begin(BUY).add(1_000_000L, 100).add(2_000_000L, 99).finish();
+
+        assertThat(last, is(Arrays.asList(true)));
+        assertThat(levelCounts, is(Arrays.asList(2)));
+
+        encoder.begin(BUY).finish();
+        assertThat(levelCounts, is(Arrays.asList(2, 0)));
+    }
+
+    @Test
+    public void stream_notBegun() {
+        SummaryStreamEncoder encoder = new SummaryStreamEncoder(ByteBuffer.allocate(64), (buffer, offset, length) -> {
+        });
+
+        exception.expect(IllegalStateException.class);
+        exception.expectMessage("Summary not begun");
+        encoder.add(1_000_000L, 100);
+    }
+
+    @Test
+    public void stream_bufferTooSmall() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Capacity=20 not allowed");
+        new SummaryStreamEncoder(ByteBuffer.allocate(20), (buffer, offset, length) -> {
+        });
+    }
+}
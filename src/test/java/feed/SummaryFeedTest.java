@@ -0,0 +1,166 @@
+package feed;
+
+import model.BuySell;
+import model.LevelChange;
+import model.OrderSummary;
+import model.PriceLevelUpdate;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SummaryFeedTest {
+
+    private final Map<Integer, Double> buyLevels = new TreeMap<>();
+    private final Map<Integer, Double> sellLevels = new TreeMap<>();
+    private final Queue<Runnable> deliveries = new ArrayDeque<>();
+    private final List<PriceLevelUpdate> updates = new ArrayList<>();
+
+    private SummaryFeed summaryFeed;
+
+    @Before
+    public void setUp() {
+        summaryFeed = new SummaryFeed(new SummaryFeed.LevelSource() {
+            @Override
+            public double levelQuantity(BuySell buySell, int price) {
+                return levels(buySell).getOrDefault(price, 0.0);
+            }
+
+            @Override
+            public List<OrderSummary> summary(BuySell buySell) {
+                return levels(buySell).entrySet().stream()
+                        .map(level -> new OrderSummary(level.getValue(), level.getKey()))
+                        .collect(Collectors.toList());
+            }
+        }, deliveries::add, 2);
+    }
+
+    @Test
+    public void subscribe_sendsExistingLevels() {
+        buyLevels.put(300, 1.5);
+        sellLevels.put(310, 2.0);
+
+        summaryFeed.subscribe(updates::add);
+        runDeliveries();
+
+        assertThat(updates, is(Arrays.asList(
+                new PriceLevelUpdate(BUY, 300, 1.5, LevelChange.ADDED),
+                new PriceLevelUpdate(SELL, 310, 2.0, LevelChange.ADDED))));
+    }
+
+    @Test
+    public void priceLevelUpdate_toString() {
+        assertThat(new PriceLevelUpdate(BUY, 300, 1.5, LevelChange.ADDED).toString(),
+                is("ADDED BUY 1.5 kg for \u00a3300"));
+    }
+
+    @Test
+    public void levelChanged_conflatesPendingChanges() {
+        summaryFeed.subscribe(updates::add);
+        runDeliveries();
+
+        buyLevels.put(300, 1.5);
+        summaryFeed.levelChanged(BUY, 300);
+        buyLevels.put(300, 2.5);
+        summaryFeed.levelChanged(BUY, 300);
+        assertThat(deliveries.size(), is(1));
+        runDeliveries();
+
+        buyLevels.remove(300);
+        summaryFeed.levelChanged(BUY, 300);
+        runDeliveries();
+
+        assertThat(updates, is(Arrays.asList(
+                new PriceLevelUpdate(BUY, 300, 2.5, LevelChange.ADDED),
+                new PriceLevelUpdate(BUY, 300, 0.0, LevelChange.REMOVED))));
+    }
+
+    @Test
+    public void levelChanged_unchangedLevelNotSent() {
+        buyLevels.put(300, 1.5);
+        summaryFeed.subscribe(updates::add);
+        runDeliveries();
+
+        summaryFeed.levelChanged(BUY, 300);
+        summaryFeed.levelChanged(SELL, 305);
+        runDeliveries();
+
+        assertThat(updates.size(), is(1));
+    }
+
+    @Test
+    public void levelChanged_overflowResyncs() {
+        buyLevels.put(300, 1.5);
+        summaryFeed.subscribe(updates::add);
+        runDeliveries();
+        updates.clear();
+
+        buyLevels.remove(300);
+        sellLevels.put(310, 1.0);
+        sellLevels.put(311, 1.0);
+        sellLevels.put(312, 1.0);
+        summaryFeed.levelChanged(BUY, 300);
+        summaryFeed.levelChanged(SELL, 310);
+        summaryFeed.levelChanged(SELL, 311);
+        summaryFeed.levelChanged(SELL, 312);
+        runDeliveries();
+
+        assertThat(updates, is(Arrays.asList(
+                new PriceLevelUpdate(BUY, 300, 0.0, LevelChange.REMOVED),
+                new PriceLevelUpdate(SELL, 310, 1.0, LevelChange.ADDED),
+                new PriceLevelUpdate(SELL, 311, 1.0, LevelChange.ADDED),
+                new PriceLevelUpdate(SELL, 312, 1.0, LevelChange.ADDED))));
+    }
+
+    @Test
+    public void cancel_stopsUpdates() {
+        SummarySubscription subscription = summaryFeed.subscribe(updates::add);
+        runDeliveries();
+
+        subscription.cancel();
+        buyLevels.put(300, 1.5);
+        summaryFeed.levelChanged(BUY, 300);
+        runDeliveries();
+
+        assertThat(subscription.isCancelled(), is(true));
+        assertThat(summaryFeed.hasSubscribers(), is(false));
+        assertThat(updates.size(), is(0));
+    }
+
+    @Test
+    public void failingListener_keepsReceivingUpdates() {
+        summaryFeed.subscribe(update -> {
+            updates.add(update);
+            throw new IllegalStateException();
+        });
+        buyLevels.put(300, 1.5);
+        summaryFeed.levelChanged(BUY, 300);
+        sellLevels.put(310, 1.0);
+        summaryFeed.levelChanged(SELL, 310);
+        runDeliveries();
+
+        assertThat(updates.size(), is(2));
+    }
+
+    private Map<Integer, Double> levels(BuySell buySell) {
+        return buySell == BUY ? buyLevels : sellLevels;
+    }
+
+    private void runDeliveries() {
+        while (!deliveries.isEmpty()) {
+            deliveries.poll().run();
+        }
+    }
+}
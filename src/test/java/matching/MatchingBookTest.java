@@ -0,0 +1,98 @@
+package matching;
+
+import model.Order;
+import model.Trade;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MatchingBookTest {
+
+    private final List<Trade> trades = new ArrayList<>();
+    private final MatchingBook book = new MatchingBook(trades::add);
+
+    @Test
+    public void submit_noCross_rests() {
+        book.submit(new Order("b1", "user1", 2.0, 300, BUY));
+        Order sell = book.submit(new Order("s1", "user2", 1.0, 301, SELL));
+
+        assertThat(trades.size(), is(0));
+        assertThat(sell.getQuantity(), is(1.0));
+        assertThat(book.ladder(BUY).getPrice(0), is(300));
+        assertThat(book.ladder(SELL).getPrice(0), is(301));
+    }
+
+    @Test
+    public void submit_pricePriority_atRestingPrice() {
+        book.submit(new Order("s1", "user1", 1.0, 292, SELL));
+        book.submit(new Order("s2", "user1", 1.0, 290, SELL));
+
+        assertThat(book.submit(new Order("b1", "user2", 2.0, 300, BUY)), is(nullValue()));
+
+        assertThat(trades.size(), is(2));
+        assertThat(trades.get(0).getSellOrderRef(), is("s2"));
+        assertThat(trades.get(0).getPrice(), is(290));
+        assertThat(trades.get(1).getSellOrderRef(), is("s1"));
+        assertThat(trades.get(1).getPrice(), is(292));
+        assertThat(trades.get(1).getBuyOrderRef(), is("b1"));
+        assertThat(trades.get(1).getAggressor(), is(BUY));
+        assertThat(book.ladder(SELL).isEmpty(), is(true));
+        assertThat(book.get("b1"), is(nullValue()));
+    }
+
+    @Test
+    public void submit_timePriorityWithinLevel() {
+        book.submit(new Order("b1", "user1", 1.0, 300, BUY));
+        book.submit(new Order("b2", "user2", 1.0, 300, BUY));
+        book.submit(new Order("b3", "user3", 1.0, 300, BUY));
+
+        book.submit(new Order("s1", "user4", 2.0, 300, SELL));
+
+        assertThat(trades.get(0).getBuyOrderRef(), is("b1"));
+        assertThat(trades.get(1).getBuyOrderRef(), is("b2"));
+        assertThat(book.get("b3").getQuantity(), is(1.0));
+        assertThat(book.ladder(BUY).getOrderCount(0), is(1));
+    }
+
+    @Test
+    public void submit_partialFills() {
+        book.submit(new Order("s1", "user1", 3.0, 300, SELL));
+
+        assertThat(book.submit(new Order("b1", "user2", 1.0, 305, BUY)), is(nullValue()));
+        assertThat(book.get("s1").getQuantity(), is(2.0));
+        assertThat(book.ladder(SELL).getQuantity(0), is(2000L));
+
+        Order rest = book.submit(new Order("b2", "user2", 5.0, 300, BUY));
+        assertThat(rest.getQuantity(), is(3.0));
+        assertThat(book.get("s1"), is(nullValue()));
+        assertThat(book.ladder(BUY).getQuantity(0), is(3000L));
+        assertThat(trades.get(1).getQuantity(), is(2.0));
+        assertThat(trades.get(1).getTradeId(), is(2L));
+    }
+
+    @Test
+    public void cancel_fromMiddleOfLevel() {
+        book.submit(new Order("b1", "user1", 1.0, 300, BUY));
+        book.submit(new Order("b2", "user1", 1.0, 300, BUY));
+        book.submit(new Order("b3", "user1", 1.0, 300, BUY));
+
+        assertThat(book.cancel("b2").getOrderRef(), is("b2"));
+        assertThat(book.cancel("b2"), is(nullValue()));
+        book.submit(new Order("s1", "user2", 2.0, 300, SELL));
+
+        assertThat(trades.get(0).getBuyOrderRef(), is("b1"));
+        assertThat(trades.get(1).getBuyOrderRef(), is("b3"));
+        assertThat(book.ladder(BUY).isEmpty(), is(true));
+
+        List<Order> orders = new ArrayList<>();
+        book.ordersForUser("user1", orders);
+        assertThat(orders.size(), is(0));
+    }
+}
@@ -0,0 +1,68 @@
+package metrics;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketIndex_roundTrips() {
+        for (long value = 0; value < 100_000; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.highestValue(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.highestValue(index - 1) < value);
+        }
+        assertThat(LatencyHistogram.bucketIndex(LatencyHistogram.MAX_VALUE), is(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    @Test
+    public void snapshot_percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getCount(), is(1000L));
+        assertWithin(snapshot.getValueAtPercentile(50), 500_000);
+        assertWithin(snapshot.getValueAtPercentile(99), 990_000);
+        assertWithin(snapshot.getMax(), 1_000_000);
+        assertWithin((long) snapshot.getMean(), 500_500);
+    }
+
+    @Test
+    public void record_clampsOutOfRange() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertThat(snapshot.getValueAtPercentile(0), is(0L));
+        assertThat(snapshot.getMax(), is(LatencyHistogram.MAX_VALUE));
+    }
+
+    @Test
+    public void snapshot_empty() {
+        HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertThat(snapshot.getCount(), is(0L));
+        assertThat(snapshot.getValueAtPercentile(99), is(0L));
+        assertThat(snapshot.getMax(), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void valueAtPercentile_aboveHundred() {
+        new LatencyHistogram().snapshot().getValueAtPercentile(101);
+    }
+
+    /**
+     * Buckets are 1/16 of their value wide
+     */
+    private static void assertWithin(long actual, long expected) {
+        assertTrue(actual + " not within 1/16 of " + expected,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
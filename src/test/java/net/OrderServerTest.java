@@ -0,0 +1,336 @@
+package net;
+
+import codec.MessageHeader;
+import codec.RegisterOrderCodec;
+import codec.SummaryRequestCodec;
+import exception.IllegalPrice;
+import exception.OrderNotFound;
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import model.QuantityScale;
+import org.junit.After;
+import org.junit.Test;
+import service.AsyncLiveOrderService;
+import service.InMemoryLiveOrderService;
+import service.PipelinedLiveOrderService;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static codec.MessageHeader.HEADER_LENGTH;
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OrderServerTest {
+
+    private final InMemoryLiveOrderService liveOrderService = new InMemoryLiveOrderService();
+    private final OrderServer server = new OrderServer(liveOrderService, new InetSocketAddress("127.0.0.1", 0), 2);
+
+    @After
+    public void close() {
+        server.close();
+    }
+
+    @Test
+    public void registerGetCancel() throws InterruptedException {
+        try (OrderClient client = new OrderClient(server.getAddress())) {
+            Order order = client.registerOrderAsync("user1", 3.5, 306, SELL).join();
+
+            assertThat(order.getUserId(), is("user1"));
+            assertThat(order.getQuantity(), is(3.5));
+            assertThat(order.getPrice(), is(306));
+            assertThat(order.getBuySell(), is(SELL));
+            assertThat(liveOrderService.getOrder(order.getOrderRef()), is(order));
+            assertThat(client.getOrderAsync(order.getOrderRef()).join().getQuantity(), is(3.5));
+            assertThat(client.cancelOrderAsync(order.getOrderRef()).join(), is(order));
+            assertThat(liveOrderService.getOrdersForUser("user1"), is(Collections.<Order>emptyList()));
+        }
+    }
+
+    @Test
+    public void calls_pipelinedAndAnsweredInOrder() throws InterruptedException {
+        try (OrderClient client = new OrderClient(server.getAddress())) {
+            List<CompletableFuture<Order>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(client.registerOrderAsync("user" + i, 1.0, 300 + i % 3, BUY));
+            }
+            CompletableFuture<List<OrderSummary>> buySummary = client.buySummaryAsync();
+            CompletableFuture<Order> unknown = client.cancelOrderAsync("UnknownOrderRef");
+            CompletableFuture<Order> cancelled = client.cancelOrderAsync(futures.get(0).join().getOrderRef());
+
+            for (int i = 0; i < futures.size(); i++) {
+                assertThat(futures.get(i).join().getUserId(), is("user" + i));
+            }
+            assertThat(buySummary.join().size(), is(3));
+            assertThat(buySummary.join().get(0).getQuantity(), is(333.0));
+            assertThat(cancelled.join().getUserId(), is("user0"));
+            try {
+                unknown.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(OrderNotFound.class));
+                assertThat(e.getCause().getMessage(), is("OrderRef=UnknownOrderRef"));
+            }
+        }
+    }
+
+    @Test
+    public void summary_streamedInFragments() throws InterruptedException {
+        for (int price = 1; price <= 5000; price++) {
+            liveOrderService.registerOrder("user1", 1.5, price, SELL);
+        }
+        try (OrderClient client = new OrderClient(server.getAddress())) {
+            List<OrderSummary> sellSummary = client.sellSummaryAsync().join();
+
+            assertThat(sellSummary, is(liveOrderService.sellSummary()));
+            assertThat(client.buySummaryAsync().join(), is(Collections.<OrderSummary>emptyList()));
+        }
+    }
+
+    @Test(expected = IllegalPrice.class)
+    public void registerOrderAsync_rejectsInvalidInput() throws InterruptedException {
+        try (OrderClient client = new OrderClient(server.getAddress())) {
+            client.registerOrderAsync("user1", 2.0, -1, SELL);
+        }
+    }
+
+    @Test
+    public void connections_servedConcurrently() throws InterruptedException {
+        List<OrderClient> clients = new ArrayList<>();
+        List<CompletableFuture<Order>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                OrderClient client = new OrderClient(server.getAddress());
+                clients.add(client);
+                futures.add(client.registerOrderAsync("user" + i, 1.0, 300, BUY));
+            }
+            for (CompletableFuture<Order> future : futures) {
+                future.join();
+            }
+            assertThat(server.connectionCount(), is(200));
+            assertThat(liveOrderService.buySummary().get(0).getQuantity(), is(200.0));
+        } finally {
+            for (OrderClient client : clients) {
+                client.close();
+            }
+        }
+    }
+
+    @Test
+    public void slowCall_holdsUpOnlyLaterResponsesOnItsConnection() throws InterruptedException {
+        CompletableFuture<Void> gate = new CompletableFuture<>();
+        try (PipelinedLiveOrderService pipeline = new PipelinedLiveOrderService(liveOrderService);
+             OrderServer gatedServer = new OrderServer(new GatedService(pipeline, gate),
+                     new InetSocketAddress("127.0.0.1", 0), 1);
+             OrderClient slowClient = new OrderClient(gatedServer.getAddress());
+             OrderClient client = new OrderClient(gatedServer.getAddress())) {
+            CompletableFuture<Order> slow = slowClient.registerOrderAsync("slow", 1.0, 300, BUY);
+            CompletableFuture<Order> afterSlow = slowClient.registerOrderAsync("user1", 2.0, 300, BUY);
+
+            assertThat(client.registerOrderAsync("user2", 3.0, 300, BUY).join().getUserId(), is("user2"));
+            assertThat(slow.isDone(), is(false));
+            assertThat(afterSlow.isDone(), is(false));
+
+            gate.complete(null);
+            assertThat(slow.join().getUserId(), is("slow"));
+            assertThat(afterSlow.join().getUserId(), is("user1"));
+        }
+    }
+
+    @Test
+    public void calls_beyondPendingLimitAnswered() throws InterruptedException {
+        Order order = liveOrderService.registerOrder("user1", 1.0, 300, BUY);
+        try (OrderClient client = new OrderClient(server.getAddress())) {
+            List<CompletableFuture<Order>> futures = new ArrayList<>();
+            for (int i = 0; i < 3 * OrderServer.MAX_PENDING_RESPONSES; i++) {
+                futures.add(client.getOrderAsync(order.getOrderRef()));
+            }
+            for (CompletableFuture<Order> future : futures) {
+                assertThat(future.join(), is(order));
+            }
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void unreadResponses_stopApplyingRequests() throws IOException, InterruptedException {
+        for (int price = 1; price <= 20_000; price++) {
+            liveOrderService.registerOrder("user1", 1.5, price, SELL);
+        }
+        PipelinedLiveOrderService pipeline = new PipelinedLiveOrderService(liveOrderService);
+        GatedService countingService = new GatedService(pipeline, CompletableFuture.completedFuture(null));
+        try (OrderServer countedServer = new OrderServer(countingService, new InetSocketAddress("127.0.0.1", 0), 1);
+             SocketChannel channel = SocketChannel.open(countedServer.getAddress())) {
+            int requestCount = 4 * OrderServer.MAX_PENDING_RESPONSES;
+            ByteBuffer requests = ByteBuffer.allocate(requestCount * (HEADER_LENGTH + 1));
+            for (int i = 0; i < requestCount; i++) {
+                int frameLength = SummaryRequestCodec.encode(requests, requests.position(), SELL);
+                requests.position(requests.position() + frameLength);
+            }
+            requests.flip();
+            while (requests.hasRemaining()) {
+                channel.write(requests);
+            }
+
+            int summaryCalls;
+            do {
+                summaryCalls = countingService.summaryCalls.get();
+                Thread.sleep(200);
+            } while (countingService.summaryCalls.get() != summaryCalls);
+            assertThat(summaryCalls < 2 * OrderServer.MAX_PENDING_RESPONSES, is(true));
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void close_failsLaterCalls() throws InterruptedException {
+        OrderClient client = new OrderClient(server.getAddress());
+        client.registerOrderAsync("user1", 1.0, 300, BUY).join();
+        server.close();
+
+        try {
+            client.getOrderAsync("AnyOrderRef").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+        client.close();
+        try {
+            client.buySummaryAsync().get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getMessage(), is("Connection closed"));
+        }
+    }
+
+    @Test
+    public void malformedFrame_closesConnection() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(server.getAddress())) {
+            ByteBuffer frame = ByteBuffer.allocate(16);
+            frame.putInt(16).put((byte) 99).position(16);
+            frame.flip();
+            channel.write(frame);
+
+            ByteBuffer response = ByteBuffer.allocate(16);
+            assertThat(channel.read(response), is(-1));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void truncatedRegister_closesConnection() throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_LENGTH + 8);
+        frame.putInt(MessageHeader.FRAME_LENGTH_OFFSET, HEADER_LENGTH)
+                .put(MessageHeader.TEMPLATE_ID_OFFSET, MessageHeader.REGISTER_ORDER)
+                .limit(HEADER_LENGTH);
+        assertClosedWithoutOrders(frame);
+
+        frame.clear();
+        frame.putInt(MessageHeader.FRAME_LENGTH_OFFSET, HEADER_LENGTH + 8)
+                .putLong(HEADER_LENGTH, QuantityScale.toUnits(5.0));
+        assertClosedWithoutOrders(frame);
+    }
+
+    @Test(timeout = 10_000)
+    public void stringPastFrameEnd_closesConnection() throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        int frameLength = RegisterOrderCodec.encode(frame, 0, "victim", QuantityScale.toUnits(5.0), 306, BUY);
+        frame.putInt(MessageHeader.FRAME_LENGTH_OFFSET, frameLength - 2).limit(frameLength - 2);
+        assertClosedWithoutOrders(frame);
+    }
+
+    @Test(timeout = 10_000)
+    public void badSide_closesConnection() throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        int frameLength = RegisterOrderCodec.encode(frame, 0, "victim", QuantityScale.toUnits(5.0), 306, BUY);
+        frame.put(HEADER_LENGTH + 12, (byte) 7).limit(frameLength);
+        assertClosedWithoutOrders(frame);
+
+        frame.clear();
+        frame.limit(SummaryRequestCodec.encode(frame, 0, SELL));
+        frame.put(HEADER_LENGTH, (byte) 2);
+        assertClosedWithoutOrders(frame);
+    }
+
+    /**
+     * Register an order, then send frame, which must close the connection without reading the earlier frame's
+     * bytes left in the server's buffer
+     */
+    private void assertClosedWithoutOrders(ByteBuffer frame) throws IOException {
+        liveOrderService.cancelAllForUser("victim");
+        try (SocketChannel channel = SocketChannel.open(server.getAddress())) {
+            ByteBuffer valid = ByteBuffer.allocate(64);
+            valid.limit(RegisterOrderCodec.encode(valid, 0, "victim", QuantityScale.toUnits(5.0), 306, BUY));
+            channel.write(valid);
+            ByteBuffer response = ByteBuffer.allocate(1024);
+            while (response.position() < HEADER_LENGTH
+                    || response.position() < MessageHeader.frameLength(response, 0)) {
+                assertThat(channel.read(response) >= 0, is(true));
+            }
+
+            channel.write(frame.duplicate());
+            response.clear();
+            while (channel.read(response) >= 0) {
+                assertThat(response.hasRemaining(), is(true));
+            }
+        }
+        assertThat(liveOrderService.getOrdersForUser("victim").size(), is(1));
+    }
+
+    /**
+     * Holds back the registers of user "slow" until the gate completes and counts the summary calls
+     */
+    private static final class GatedService implements AsyncLiveOrderService {
+        private final AsyncLiveOrderService delegate;
+        private final CompletableFuture<Void> gate;
+        private final AtomicInteger summaryCalls = new AtomicInteger();
+
+        private GatedService(AsyncLiveOrderService delegate, CompletableFuture<Void> gate) {
+            this.delegate = delegate;
+            this.gate = gate;
+        }
+
+        @Override
+        public CompletableFuture<Order> registerOrderAsync(String userId, double quantity, int price,
+                                                           BuySell buySell) {
+            if (userId.equals("slow")) {
+                return gate.thenCompose(ignored -> delegate.registerOrderAsync(userId, quantity, price, buySell));
+            }
+            return delegate.registerOrderAsync(userId, quantity, price, buySell);
+        }
+
+        @Override
+        public CompletableFuture<Order> cancelOrderAsync(String orderRef) {
+            return delegate.cancelOrderAsync(orderRef);
+        }
+
+        @Override
+        public CompletableFuture<Order> getOrderAsync(String orderRef) {
+            return delegate.getOrderAsync(orderRef);
+        }
+
+        @Override
+        public CompletableFuture<List<OrderSummary>> buySummaryAsync() {
+            summaryCalls.incrementAndGet();
+            return delegate.buySummaryAsync();
+        }
+
+        @Override
+        public CompletableFuture<List<OrderSummary>> sellSummaryAsync() {
+            summaryCalls.incrementAndGet();
+            return delegate.sellSummaryAsync();
+        }
+    }
+}
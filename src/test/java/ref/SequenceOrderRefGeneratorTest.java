@@ -0,0 +1,57 @@
+package ref;
+
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SequenceOrderRefGeneratorTest {
+
+    @Test
+    public void nextOrderRef_nodePrefixAndSequence() {
+        SequenceOrderRefGenerator generator = new SequenceOrderRefGenerator("node1");
+
+        assertThat(generator.nextOrderRef(), is("node1-0"));
+        assertThat(generator.nextOrderRef(), is("node1-1"));
+        for (int i = 2; i < 36; i++) {
+            generator.nextOrderRef();
+        }
+        assertThat(generator.nextOrderRef(), is("node1-10"));
+    }
+
+    @Test
+    public void nextOrderRef_numericNodeId() {
+        SequenceOrderRefGenerator generator = new SequenceOrderRefGenerator(36L);
+
+        assertThat(generator.nextOrderRef(), is("10-0"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nextOrderRef_emptyNodeId() {
+        new SequenceOrderRefGenerator("");
+    }
+
+    @Test
+    public void nextOrderRef_uniqueAcrossThreads() throws InterruptedException {
+        SequenceOrderRefGenerator generator = new SequenceOrderRefGenerator();
+        Set<String> orderRefs = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    orderRefs.add(generator.nextOrderRef());
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+
+        assertThat(orderRefs.size(), is(40000));
+    }
+}
@@ -0,0 +1,97 @@
+package ring;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RingBufferTest {
+
+    private static final class Entry {
+        private long value;
+    }
+
+    @Test
+    public void drain_inSequenceOrder() {
+        RingBuffer<Entry> ringBuffer = new RingBuffer<>(4, Entry::new);
+        for (int i = 0; i < 3; i++) {
+            long sequence = ringBuffer.claim();
+            ringBuffer.get(sequence).value = i * 10;
+            ringBuffer.publish(sequence);
+        }
+
+        List<Long> values = new ArrayList<>();
+        List<Boolean> endOfBatches = new ArrayList<>();
+        assertThat(ringBuffer.drain((entry, sequence, endOfBatch) -> {
+            values.add(entry.value);
+            endOfBatches.add(endOfBatch);
+        }, 10), is(3));
+        assertThat(values.toString(), is("[0, 10, 20]"));
+        assertThat(endOfBatches.toString(), is("[false, false, true]"));
+        assertThat(ringBuffer.getConsumed(), is(3L));
+    }
+
+    @Test
+    public void drain_stopsAtUnpublishedSequence() {
+        RingBuffer<Entry> ringBuffer = new RingBuffer<>(4, Entry::new);
+        long first = ringBuffer.claim();
+        long second = ringBuffer.claim();
+        ringBuffer.publish(second);
+
+        assertThat(ringBuffer.drain((entry, sequence, endOfBatch) -> { }, 10), is(0));
+        ringBuffer.publish(first);
+        assertThat(ringBuffer.drain((entry, sequence, endOfBatch) -> { }, 1), is(1));
+        assertThat(ringBuffer.drain((entry, sequence, endOfBatch) -> { }, 10), is(1));
+    }
+
+    @Test
+    public void entriesReused() {
+        RingBuffer<Entry> ringBuffer = new RingBuffer<>(2, Entry::new);
+        Entry entry = ringBuffer.get(ringBuffer.claim());
+        ringBuffer.publish(0);
+        ringBuffer.drain((e, sequence, endOfBatch) -> { }, 1);
+        ringBuffer.publish(ringBuffer.claim());
+        ringBuffer.drain((e, sequence, endOfBatch) -> { }, 1);
+
+        assertThat(ringBuffer.get(ringBuffer.claim()), is(entry));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacity_notPowerOfTwo() {
+        new RingBuffer<>(3, Entry::new);
+    }
+
+    @Test
+    public void multipleProducers_wrapAround() throws InterruptedException {
+        RingBuffer<Entry> ringBuffer = new RingBuffer<>(8, Entry::new);
+        int producers = 4;
+        int perProducer = 10000;
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    long sequence = ringBuffer.claim();
+                    ringBuffer.get(sequence).value = 1;
+                    ringBuffer.publish(sequence);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        AtomicLong total = new AtomicLong();
+        while (total.get() < producers * perProducer) {
+            if (ringBuffer.drain((entry, sequence, endOfBatch) -> total.addAndGet(entry.value), 16) == 0) {
+                ringBuffer.awaitPublished();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(total.get(), is((long) producers * perProducer));
+    }
+}
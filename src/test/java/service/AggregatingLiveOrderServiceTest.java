@@ -0,0 +1,9 @@
+package service;
+
+public class AggregatingLiveOrderServiceTest extends InMemoryLiveOrderServiceTest {
+
+    @Override
+    protected LiveOrderService createOrderService() {
+        return new AggregatingLiveOrderService();
+    }
+}
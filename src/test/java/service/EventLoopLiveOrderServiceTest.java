@@ -0,0 +1,93 @@
+package service;
+
+import exception.OrderNotFound;
+import model.Order;
+import org.junit.After;
+import org.junit.Test;
+import ref.SequenceOrderRefGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class EventLoopLiveOrderServiceTest extends LiveOrderServiceTest {
+
+    @Override
+    protected LiveOrderService createOrderService() {
+        return new EventLoopLiveOrderService(64, new SequenceOrderRefGenerator());
+    }
+
+    @After
+    public void tearDown() {
+        getEventLoopLiveOrderService().close();
+    }
+
+    @Test
+    public void registerOrderAsync_summaryIncludesCompletedOrders() {
+        EventLoopLiveOrderService liveOrderService = getEventLoopLiveOrderService();
+
+        List<CompletableFuture<Order>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(liveOrderService.registerOrderAsync("user1", 1.0, 300 + i % 3, BUY));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertThat(liveOrderService.buySummary().size(), is(3));
+        assertThat(liveOrderService.buySummary().get(0).getQuantity(), is(333.0));
+        assertThat(liveOrderService.getOrdersForUser("user1").size(), is(1000));
+    }
+
+    @Test
+    public void cancelOrderAsync_unknownOrderRef() throws InterruptedException {
+        try {
+            getEventLoopLiveOrderService().cancelOrderAsync("UnknownOrderRef").get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(OrderNotFound.class));
+        }
+    }
+
+    @Test
+    public void cancelOrderAsync() {
+        EventLoopLiveOrderService liveOrderService = getEventLoopLiveOrderService();
+        Order order = liveOrderService.registerOrder("user1", 2.0, 310, SELL);
+
+        assertThat(liveOrderService.cancelOrderAsync(order.getOrderRef()).join(), is(order));
+        assertThat(liveOrderService.sellSummary().size(), is(0));
+    }
+
+    @Test
+    public void getOrderAsync_seesEarlierWrites() throws InterruptedException {
+        EventLoopLiveOrderService liveOrderService = getEventLoopLiveOrderService();
+        Order order = liveOrderService.registerOrder("user1", 2.0, 310, SELL);
+
+        assertThat(liveOrderService.getOrderAsync(order.getOrderRef()).join(), is(order));
+        assertThat(liveOrderService.sellSummaryAsync().join().size(), is(1));
+        liveOrderService.cancelOrderAsync(order.getOrderRef());
+        try {
+            liveOrderService.getOrderAsync(order.getOrderRef()).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(OrderNotFound.class));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void registerOrder_afterClose() {
+        EventLoopLiveOrderService liveOrderService = getEventLoopLiveOrderService();
+        liveOrderService.close();
+        liveOrderService.registerOrder("user1", 2.0, 310, SELL);
+    }
+
+    private EventLoopLiveOrderService getEventLoopLiveOrderService() {
+        return (EventLoopLiveOrderService) getLiveOrderService();
+    }
+}
@@ -0,0 +1,173 @@
+package service;
+
+import exception.OrderNotFound;
+import model.Order;
+import model.OrderResult;
+import model.OrderSummary;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ExpiringLiveOrderServiceTest extends LiveOrderServiceTest {
+
+    private static final long SESSION_TTL_MILLIS = 60_000;
+
+    @Override
+    protected LiveOrderService createOrderService() {
+        return new ExpiringLiveOrderService(new InMemoryLiveOrderService(), SESSION_TTL_MILLIS, 0);
+    }
+
+    @After
+    public void close() {
+        ((ExpiringLiveOrderService) getLiveOrderService()).close();
+    }
+
+    @Test
+    public void expireOrders_goodTillTime() {
+        ExpiringLiveOrderService liveOrderService = (ExpiringLiveOrderService) getLiveOrderService();
+        long now = System.currentTimeMillis();
+        Order early = liveOrderService.registerOrder("user1", 3.5, 306, BUY, now + 1000);
+        Order late = liveOrderService.registerOrder("user2", 1.5, 306, BUY, now + 5000);
+
+        assertThat(liveOrderService.expireOrders(now + 999), is(0));
+        assertThat(liveOrderService.expireOrders(now + 1000 + ExpiringLiveOrderService.DEFAULT_TICK_MILLIS), is(1));
+        assertThat(liveOrderService.getOrdersForUser("user1").isEmpty(), is(true));
+        assertThat(liveOrderService.getOrder(late.getOrderRef()), is(late));
+        assertThat(liveOrderService.buySummary(), is(Collections.singletonList(new OrderSummary(1.5, 306))));
+
+        exception.expect(OrderNotFound.class);
+        liveOrderService.getOrder(early.getOrderRef());
+    }
+
+    @Test
+    public void expireOrders_sessionTtl() {
+        ExpiringLiveOrderService liveOrderService = (ExpiringLiveOrderService) getLiveOrderService();
+        long now = System.currentTimeMillis();
+        liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        liveOrderService.registerOrder("user2", 2.0, 310, SELL, now + 2 * SESSION_TTL_MILLIS);
+
+        assertThat(liveOrderService.expireOrders(now + SESSION_TTL_MILLIS / 2), is(0));
+        assertThat(liveOrderService.expireOrders(System.currentTimeMillis() + SESSION_TTL_MILLIS + 100), is(1));
+        assertThat(liveOrderService.buySummary().isEmpty(), is(true));
+        assertThat(liveOrderService.sellSummary(), is(Collections.singletonList(new OrderSummary(2.0, 310))));
+        assertThat(liveOrderService.pendingExpiries(), is(1));
+    }
+
+    @Test
+    public void expireOrders_inBatches() {
+        ExpiringLiveOrderService liveOrderService = (ExpiringLiveOrderService) getLiveOrderService();
+        long expireAt = System.currentTimeMillis() + 1000;
+        int count = ExpiringLiveOrderService.EXPIRY_BATCH_SIZE * 3 + 7;
+        for (int i = 0; i < count; i++) {
+            liveOrderService.registerOrder("user" + i % 10, 1.0, 300 + i % 5, BUY, expireAt);
+        }
+
+        assertThat(liveOrderService.expireOrders(expireAt + 100), is(count));
+        assertThat(liveOrderService.buySummary().isEmpty(), is(true));
+        assertThat(liveOrderService.pendingExpiries(), is(0));
+    }
+
+    @Test
+    public void expireOrders_failedCancel_expiresOnNextRun() {
+        AtomicBoolean failCancel = new AtomicBoolean(true);
+        LiveOrderService failing = new InMemoryLiveOrderService() {
+            @Override
+            public List<OrderResult> cancelOrders(Collection<String> orderRefs) {
+                if (failCancel.getAndSet(false)) {
+                    throw new IllegalStateException("Cancel failed");
+                }
+                return super.cancelOrders(orderRefs);
+            }
+        };
+        try (ExpiringLiveOrderService liveOrderService = new ExpiringLiveOrderService(failing, 0, 0)) {
+            long expireAt = System.currentTimeMillis() + 1000;
+            liveOrderService.registerOrder("user1", 3.5, 306, BUY, expireAt);
+            liveOrderService.registerOrder("user2", 1.5, 307, BUY, expireAt);
+
+            try {
+                liveOrderService.expireOrders(expireAt + 100);
+            } catch (IllegalStateException e) {
+                assertThat(e.getMessage(), is("Cancel failed"));
+            }
+            assertThat(liveOrderService.pendingExpiries(), is(2));
+            assertThat(liveOrderService.expireOrders(expireAt + 200), is(2));
+            assertThat(liveOrderService.buySummary().isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void cancelOrder_removesExpiry() {
+        ExpiringLiveOrderService liveOrderService = (ExpiringLiveOrderService) getLiveOrderService();
+        Order order = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        Order other = liveOrderService.registerOrder("user1", 1.5, 307, BUY);
+        Order third = liveOrderService.registerOrder("user2", 1.5, 307, BUY);
+        assertThat(liveOrderService.pendingExpiries(), is(3));
+
+        liveOrderService.cancelOrder(order.getOrderRef());
+        liveOrderService.cancelOrders(Arrays.asList(other.getOrderRef(), "UnknownOrderRef"));
+        assertThat(liveOrderService.pendingExpiries(), is(1));
+        liveOrderService.cancelAllForUser(third.getUserId());
+        assertThat(liveOrderService.pendingExpiries(), is(0));
+    }
+
+    @Test
+    public void expireOrders_inBackground() throws InterruptedException {
+        try (ExpiringLiveOrderService liveOrderService =
+                     new ExpiringLiveOrderService(new InMemoryLiveOrderService(), 0, 5)) {
+            liveOrderService.registerOrder("user1", 3.5, 306, BUY, System.currentTimeMillis() + 20);
+            liveOrderService.registerOrder("user2", 1.5, 306, BUY);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (liveOrderService.pendingExpiries() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(liveOrderService.buySummary(), is(Collections.singletonList(new OrderSummary(1.5, 306))));
+        }
+    }
+
+    @Test
+    public void expireOrders_backgroundFailureRecorded() throws InterruptedException {
+        AtomicBoolean failCancel = new AtomicBoolean(true);
+        LiveOrderService failing = new InMemoryLiveOrderService() {
+            @Override
+            public List<OrderResult> cancelOrders(Collection<String> orderRefs) {
+                if (failCancel.getAndSet(false)) {
+                    throw new IllegalStateException("Cancel failed");
+                }
+                return super.cancelOrders(orderRefs);
+            }
+        };
+        try (ExpiringLiveOrderService liveOrderService = new ExpiringLiveOrderService(failing, 0, 5)) {
+            assertThat(liveOrderService.lastExpiryFailure(), is(nullValue()));
+            liveOrderService.registerOrder("user1", 3.5, 306, BUY, System.currentTimeMillis());
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!liveOrderService.buySummary().isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(liveOrderService.expiryFailures(), is(1L));
+            assertThat(liveOrderService.lastExpiryFailure().getMessage(), is("Cancel failed"));
+            assertThat(liveOrderService.buySummary().isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void create_negativeSessionTtl() {
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage(containsString("SessionTtlMillis=-1"));
+
+        new ExpiringLiveOrderService(new InMemoryLiveOrderService(), -1);
+    }
+}
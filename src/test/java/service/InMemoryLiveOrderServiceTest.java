@@ -1,10 +1,15 @@
 package service;
 
+import model.BookSnapshot;
+import model.BuySell;
 import model.Order;
 import org.junit.Before;
 import org.junit.Test;
+import ref.UuidOrderRefGenerator;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import static model.BuySell.BUY;
 import static model.BuySell.SELL;
@@ -90,7 +95,39 @@ public class InMemoryLiveOrderServiceTest extends LiveOrderServiceTest {
         assertThat(orders, hasItem(order5));
     }
 
+    @Test
+    public void registerOrder_uuidOrderRef() {
+        LiveOrderService liveOrderService = new InMemoryLiveOrderService(new UuidOrderRefGenerator());
+
+        Order order = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        assertThat(UUID.fromString(order.getOrderRef()).toString(), is(order.getOrderRef()));
+        assertThat(liveOrderService.getOrder(order.getOrderRef()), is(order));
+    }
+
     protected InMemoryLiveOrderService getInMemoryLiveOrderService() {
         return (InMemoryLiveOrderService)getLiveOrderService();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void bookSnapshot_seesWriteBeforeItsSummaryVersionMoves() {
+        List<BookSnapshot> snapshots = new ArrayList<>();
+        InMemoryLiveOrderService service = new InMemoryLiveOrderService() {
+            @Override
+            protected void levelChanged(BuySell buySell, int price) {
+                // the write has ended but the side's cached summary is not yet invalidated
+                snapshots.add(bookSnapshot());
+                super.levelChanged(buySell, price);
+            }
+        };
+        service.sellSummary();
+        service.buySummary();
+
+        service.registerOrder("user1", 2.0, 300, BUY);
+        service.registerOrder("user2", 2.0, 310, SELL);
+
+        assertThat(snapshots.get(0).getBuySummary().size(), is(1));
+        assertThat(snapshots.get(0).getSellSummary().size(), is(0));
+        assertThat(snapshots.get(1).getBuySummary().size(), is(1));
+        assertThat(snapshots.get(1).getSellSummary().get(0).getQuantity(), is(2.0));
+    }
+}
@@ -0,0 +1,88 @@
+package service;
+
+import exception.IllegalPrice;
+import exception.OrderNotFound;
+import metrics.MetricsReporter;
+import metrics.MetricsSnapshot;
+import metrics.Operation;
+import metrics.OperationSnapshot;
+import model.Order;
+import org.junit.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+public class InstrumentedLiveOrderServiceTest extends LiveOrderServiceTest {
+
+    @Override
+    protected LiveOrderService createOrderService() {
+        return new InstrumentedLiveOrderService(new InMemoryLiveOrderService());
+    }
+
+    @Test
+    public void orderGauges_readWrappedService() {
+        InMemoryLiveOrderService wrapped = new InMemoryLiveOrderService();
+        wrapped.registerOrder("user1", 3.5, 306, BUY);
+        Order order = wrapped.registerOrder("user2", 1.5, 310, SELL);
+        InstrumentedLiveOrderService liveOrderService = new InstrumentedLiveOrderService(wrapped);
+        assertThat(liveOrderService.getMetrics().snapshot().getGauge("orders.buy"), is(1L));
+        assertThat(liveOrderService.getMetrics().snapshot().getGauge("orders.sell"), is(1L));
+
+        wrapped.cancelOrder(order.getOrderRef());
+        assertThat(liveOrderService.getMetrics().snapshot().getGauge("orders.sell"), is(0L));
+    }
+
+    @Test
+    public void metrics_countCallsAndErrors() {
+        InstrumentedLiveOrderService liveOrderService = (InstrumentedLiveOrderService) getLiveOrderService();
+        Order order = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        liveOrderService.registerOrder("user2", 1.5, 307, BUY);
+        liveOrderService.registerOrder("user3", 2.0, 310, SELL);
+        liveOrderService.cancelOrder(order.getOrderRef());
+        liveOrderService.buySummary();
+        try {
+            liveOrderService.cancelOrder("UnknownOrderRef");
+        } catch (OrderNotFound e) {
+            // counted
+        }
+        try {
+            liveOrderService.registerOrder("user1", 1.0, -1, BUY);
+        } catch (IllegalPrice e) {
+            // counted
+        }
+
+        MetricsSnapshot snapshot = liveOrderService.getMetrics().snapshot();
+        OperationSnapshot register = snapshot.getOperation(Operation.REGISTER);
+        assertThat(register.getCalls(), is(4L));
+        assertThat(register.getErrors("IllegalPrice"), is(1L));
+        assertThat(register.getLatency().getCount(), is(4L));
+        assertThat(snapshot.getOperation(Operation.CANCEL).getCalls(), is(2L));
+        assertThat(snapshot.getOperation(Operation.CANCEL).getErrors("OrderNotFound"), is(1L));
+        assertThat(snapshot.getOperation(Operation.SUMMARY).getCalls(), is(1L));
+        assertThat(snapshot.getOperation(Operation.AMEND).getCalls(), is(0L));
+        assertThat(snapshot.getGauge("orders.buy"), is(1L));
+        assertThat(snapshot.getGauge("orders.sell"), is(1L));
+        assertThat(snapshot.getGauge("levels.buy"), is(1L));
+        assertThat(snapshot.getGauge("levels.sell"), is(1L));
+    }
+
+    @Test
+    public void metricsReporter_exports() throws InterruptedException {
+        InstrumentedLiveOrderService liveOrderService = (InstrumentedLiveOrderService) getLiveOrderService();
+        liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        BlockingQueue<MetricsSnapshot> exported = new ArrayBlockingQueue<>(100);
+
+        try (MetricsReporter reporter = new MetricsReporter(liveOrderService.getMetrics(), exported::offer, 10)) {
+            MetricsSnapshot snapshot = exported.poll(5, TimeUnit.SECONDS);
+            assertThat(snapshot, notNullValue());
+            assertThat(snapshot.getOperation(Operation.REGISTER).getCalls(), is(1L));
+        }
+    }
+}
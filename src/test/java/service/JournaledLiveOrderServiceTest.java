@@ -0,0 +1,174 @@
+package service;
+
+import exception.OrderNotFound;
+import journal.FsyncPolicy;
+import model.Order;
+import model.OrderSummary;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class JournaledLiveOrderServiceTest extends InMemoryLiveOrderServiceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path journalFile;
+
+    @Override
+    protected LiveOrderService createOrderService() {
+        try {
+            journalFile = folder.newFolder().toPath().resolve("orders.journal");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new JournaledLiveOrderService(journalFile, FsyncPolicy.GROUP_COMMIT);
+    }
+
+    @After
+    public void tearDown() {
+        ((JournaledLiveOrderService) getLiveOrderService()).close();
+    }
+
+    @Test
+    public void restart_everyEvent() {
+        assertRecovered(FsyncPolicy.EVERY_EVENT);
+    }
+
+    @Test
+    public void restart_groupCommit() {
+        assertRecovered(FsyncPolicy.GROUP_COMMIT);
+    }
+
+    @Test
+    public void restart_periodic() {
+        assertRecovered(FsyncPolicy.PERIODIC);
+    }
+
+    @Test
+    public void restart_amendedOrders() {
+        Order order1;
+        Order order2;
+        try (JournaledLiveOrderService liveOrderService = newService(FsyncPolicy.EVERY_EVENT)) {
+            order1 = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+            order2 = liveOrderService.registerOrder("user2", 2.0, 306, BUY);
+            liveOrderService.amendOrder(order1.getOrderRef(), 1.5, 306);
+            liveOrderService.amendOrder(order2.getOrderRef(), 2.0, 308);
+        }
+
+        try (JournaledLiveOrderService liveOrderService = newService(FsyncPolicy.EVERY_EVENT)) {
+            assertThat(liveOrderService.getOrder(order1.getOrderRef()).getQuantity(), is(1.5));
+            assertThat(liveOrderService.getOrder(order2.getOrderRef()).getPrice(), is(308));
+            List<OrderSummary> buySummary = liveOrderService.buySummary();
+            assertThat(buySummary.size(), is(2));
+            assertThat(buySummary.get(0).getQuantity(), is(2.0));
+            assertThat(buySummary.get(1).getQuantity(), is(1.5));
+        }
+    }
+
+    @Test
+    public void restart_tornTail() throws IOException {
+        Order order;
+        try (JournaledLiveOrderService liveOrderService = newService(FsyncPolicy.EVERY_EVENT)) {
+            order = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        }
+        long size = Files.size(journalFile);
+        Files.write(journalFile, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (JournaledLiveOrderService liveOrderService = newService(FsyncPolicy.EVERY_EVENT)) {
+            assertThat(Files.size(journalFile), is(size));
+            assertThat(liveOrderService.getOrder(order.getOrderRef()), is(order));
+            liveOrderService.registerOrder("user2", 1.5, 307, BUY);
+        }
+        try (JournaledLiveOrderService liveOrderService = newService(FsyncPolicy.EVERY_EVENT)) {
+            assertThat(liveOrderService.buySummary().size(), is(2));
+        }
+    }
+
+    private void assertRecovered(FsyncPolicy fsyncPolicy) {
+        Order order1;
+        Order order2;
+        List<OrderSummary> buySummary;
+        List<OrderSummary> sellSummary;
+        try (JournaledLiveOrderService liveOrderService = newService(fsyncPolicy)) {
+            order1 = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+            order2 = liveOrderService.registerOrder("user2", 2.0, 306, BUY);
+            Order order3 = liveOrderService.registerOrder("user3", 1.5, 309, SELL);
+            liveOrderService.cancelOrder(order3.getOrderRef());
+            liveOrderService.registerOrder("user1", 1.2, 310, SELL);
+            liveOrderService.cancelAllForUser("user2");
+            buySummary = liveOrderService.buySummary();
+            sellSummary = liveOrderService.sellSummary();
+        }
+
+        try (JournaledLiveOrderService liveOrderService = newService(fsyncPolicy)) {
+            assertThat(liveOrderService.buySummary(), is(buySummary));
+            assertThat(liveOrderService.sellSummary(), is(sellSummary));
+            Order recovered = liveOrderService.getOrder(order1.getOrderRef());
+            assertThat(recovered.getUserId(), is("user1"));
+            assertThat(recovered.getQuantity(), is(3.5));
+            assertThat(recovered.getPrice(), is(306));
+            assertThat(recovered.getBuySell(), is(BUY));
+            assertThat(liveOrderService.getOrdersForUser("user2").size(), is(0));
+            assertThat(liveOrderService.getOrdersForUser("user1").size(), is(2));
+            exception.expect(OrderNotFound.class);
+            liveOrderService.getOrder(order2.getOrderRef());
+        }
+    }
+
+    @Test
+    public void restart_concurrentAmends() throws InterruptedException {
+        List<Order> amended = new ArrayList<>();
+        List<OrderSummary> buySummary;
+        try (JournaledLiveOrderService liveOrderService = newService(FsyncPolicy.GROUP_COMMIT)) {
+            List<String> orderRefs = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                orderRefs.add(liveOrderService.registerOrder("user1", 1.0, 300, BUY).getOrderRef());
+            }
+            Thread[] amenders = new Thread[2];
+            for (int t = 0; t < amenders.length; t++) {
+                int price = 301 + 100 * t;
+                amenders[t] = new Thread(() -> {
+                    for (String orderRef : orderRefs) {
+                        liveOrderService.amendOrder(orderRef, 2.0, price);
+                    }
+                });
+                amenders[t].start();
+            }
+            for (Thread amender : amenders) {
+                amender.join();
+            }
+            for (String orderRef : orderRefs) {
+                amended.add(liveOrderService.getOrder(orderRef));
+            }
+            buySummary = liveOrderService.buySummary();
+        }
+
+        try (JournaledLiveOrderService liveOrderService = newService(FsyncPolicy.GROUP_COMMIT)) {
+            for (Order order : amended) {
+                Order recovered = liveOrderService.getOrder(order.getOrderRef());
+                assertThat(recovered.getQuantity(), is(order.getQuantity()));
+                assertThat(recovered.getPrice(), is(order.getPrice()));
+            }
+            assertThat(liveOrderService.buySummary(), is(buySummary));
+        }
+    }
+
+    private JournaledLiveOrderService newService(FsyncPolicy fsyncPolicy) {
+        return new JournaledLiveOrderService(journalFile, fsyncPolicy);
+    }
+}
@@ -1,23 +1,36 @@
 package service;
 
+import exception.IllegalBucketSize;
+import exception.IllegalDepth;
 import exception.IllegalPrice;
 import exception.IllegalQuantity;
 import exception.IllegalUserId;
 import exception.OrderNotFound;
+import feed.SummarySubscription;
+import model.BookSnapshot;
+import model.LevelChange;
 import model.Order;
+import model.OrderRequest;
+import model.OrderResult;
 import model.OrderSummary;
+import model.QuantityScale;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 
 import static java.lang.Double.compare;
 import static model.BuySell.BUY;
 import static model.BuySell.SELL;
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.assertThat;
@@ -96,6 +109,56 @@ public abstract class LiveOrderServiceTest {
         assertThat(registeredOrder.getBuySell(), is(BUY));
     }
 
+    @Test
+    public void registerOrders() {
+        List<OrderResult> results = liveOrderService.registerOrders(Arrays.asList(
+                new OrderRequest("user1", 3.5, 306, BUY),
+                new OrderRequest("user2", 1.0, -306, BUY),
+                new OrderRequest("user3", 2.0, 306, BUY),
+                new OrderRequest("user4", 1.5, 309, SELL)));
+        assertThat(results.size(), is(4));
+
+        assertThat(results.get(0).isSuccess(), is(true));
+        assertThat(results.get(0).getOrder().getUserId(), is("user1"));
+        assertThat(results.get(1).isSuccess(), is(false));
+        assertThat(results.get(1).getError() instanceof IllegalPrice, is(true));
+        assertThat(results.get(1).getError().getMessage(), containsString("Price=-306"));
+        assertThat(results.get(2).isSuccess(), is(true));
+        assertThat(results.get(3).isSuccess(), is(true));
+
+        Order registeredOrder = liveOrderService.getOrder(results.get(2).getOrder().getOrderRef());
+        assertThat(registeredOrder.getUserId(), is("user3"));
+
+        List<OrderSummary> buySummaries = liveOrderService.buySummary();
+        assertThat(buySummaries.size(), is(1));
+        assertThat("5.5 kg for £306", is(buySummaries.get(0).toString()));
+        assertThat(buySummaries.get(0).toString().charAt(11), is('\u00a3'));
+        assertThat(liveOrderService.sellSummary().size(), is(1));
+    }
+
+    @Test
+    public void cancelOrders() {
+        Order order1 = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        Order order2 = liveOrderService.registerOrder("user2", 2.0, 306, BUY);
+        Order order3 = liveOrderService.registerOrder("user3", 1.5, 309, SELL);
+
+        List<OrderResult> results = liveOrderService.cancelOrders(
+                Arrays.asList(order1.getOrderRef(), "UnknownOrderRef", order3.getOrderRef()));
+        assertThat(results.size(), is(3));
+
+        assertThat(results.get(0).getOrder(), is(order1));
+        assertThat(results.get(1).isSuccess(), is(false));
+        assertThat(results.get(1).getError() instanceof OrderNotFound, is(true));
+        assertThat(results.get(1).getError().getMessage(), containsString("OrderRef=UnknownOrderRef"));
+        assertThat(results.get(2).getOrder(), is(order3));
+
+        List<OrderSummary> buySummaries = liveOrderService.buySummary();
+        assertThat(buySummaries.size(), is(1));
+        assertThat("2.0 kg for £306", is(buySummaries.get(0).toString()));
+        assertThat(liveOrderService.sellSummary().size(), is(0));
+        assertThat(liveOrderService.getOrder(order2.getOrderRef()), is(order2));
+    }
+
     @Test
     public void getOrder() {
         Order order = liveOrderService.registerOrder("User1", 1.0, 300, BUY);
@@ -177,6 +240,21 @@ public abstract class LiveOrderServiceTest {
         assertThat("1.5 kg for £307", is(orderSummariesDesc.get(0)));
     }
 
+    @Test
+    public void cancelOrder_samePrice_reducesSummary() {
+        Order order1 = liveOrderService.registerOrder("user1", 1.0, 300, SELL);
+        Order order2 = liveOrderService.registerOrder("user2", 2.5, 300, SELL);
+        assertThat(order2.getOrderRef(), notNullValue());
+
+        liveOrderService.cancelOrder(order1.getOrderRef());
+        List<OrderSummary> orderSummaries = liveOrderService.sellSummary();
+        assertThat(orderSummaries.size(), is(1));
+        assertThat("2.5 kg for £300", is(orderSummaries.get(0).toString()));
+
+        liveOrderService.cancelOrder(order2.getOrderRef());
+        assertThat(liveOrderService.sellSummary().size(), is(0));
+    }
+
     @Test
     public void cancelOrder_UnknownOrderRef() {
         exception.expect(OrderNotFound.class);
@@ -185,6 +263,112 @@ public abstract class LiveOrderServiceTest {
         liveOrderService.cancelOrder("UnknownOrderRef");
     }
 
+    @Test
+    public void amendOrder_quantity() {
+        Order order1 = liveOrderService.registerOrder("user1", 3.5, 306, SELL);
+        liveOrderService.registerOrder("user2", 1.5, 306, SELL);
+
+        Order amended = liveOrderService.amendOrder(order1.getOrderRef(), 2.0, 306);
+        assertThat(amended.getOrderRef(), is(order1.getOrderRef()));
+        assertThat(amended.getUserId(), is("user1"));
+        assertThat(amended.getBuySell(), is(SELL));
+        assertThat(liveOrderService.getOrder(order1.getOrderRef()), is(amended));
+        List<OrderSummary> orderSummaries = liveOrderService.sellSummary();
+        assertThat(orderSummaries.size(), is(1));
+        assertThat("3.5 kg for £306", is(orderSummaries.get(0).toString()));
+    }
+
+    @Test
+    public void amendOrder_price_movesLevel() {
+        Order order1 = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        liveOrderService.registerOrder("user2", 1.5, 306, BUY);
+
+        liveOrderService.amendOrder(order1.getOrderRef(), 3.0, 308);
+        List<OrderSummary> orderSummaries = liveOrderService.buySummary();
+        assertThat(orderSummaries.size(), is(2));
+        assertThat("3.0 kg for £308", is(orderSummaries.get(0).toString()));
+        assertThat("1.5 kg for £306", is(orderSummaries.get(1).toString()));
+        assertThat(liveOrderService.getOrder(order1.getOrderRef()).getPrice(), is(308));
+        assertThat(liveOrderService.getOrdersForUser("user1").size(), is(1));
+
+        liveOrderService.cancelOrder(order1.getOrderRef());
+        assertThat(liveOrderService.buySummary().size(), is(1));
+    }
+
+    @Test
+    public void amendOrder_UnknownOrderRef() {
+        exception.expect(OrderNotFound.class);
+        exception.expectMessage(containsString("OrderRef=UnknownOrderRef"));
+
+        liveOrderService.amendOrder("UnknownOrderRef", 1.0, 300);
+    }
+
+    @Test
+    public void amendOrder_withZeroQuantity() {
+        Order order = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        exception.expect(IllegalQuantity.class);
+
+        try {
+            liveOrderService.amendOrder(order.getOrderRef(), 0.0, 306);
+        } finally {
+            assertThat(liveOrderService.getOrder(order.getOrderRef()), is(order));
+        }
+    }
+
+    @Test
+    public void getOrdersForUser() {
+        Order order1 = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        Order order2 = liveOrderService.registerOrder("user2", 1.5, 307, BUY);
+        Order order3 = liveOrderService.registerOrder("user1", 2.0, 409, SELL);
+
+        List<Order> orders = liveOrderService.getOrdersForUser("user1");
+        assertThat(orders.size(), is(2));
+        assertThat(orders, hasItem(order1));
+        assertThat(orders, hasItem(order3));
+
+        liveOrderService.cancelOrder(order1.getOrderRef());
+        orders = liveOrderService.getOrdersForUser("user1");
+        assertThat(orders.size(), is(1));
+        assertThat(orders, hasItem(order3));
+
+        assertThat(liveOrderService.getOrdersForUser("user2"), hasItem(order2));
+    }
+
+    @Test
+    public void getOrdersForUser_unknownUser() {
+        List<Order> orders = liveOrderService.getOrdersForUser("user1");
+        assertThat(orders, notNullValue());
+        assertThat(orders.size(), is(0));
+    }
+
+    @Test
+    public void getOrdersForUser_withNullUserId() {
+        exception.expect(IllegalUserId.class);
+        exception.expectMessage(containsString("UserId=null"));
+        liveOrderService.getOrdersForUser(null);
+    }
+
+    @Test
+    public void cancelAllForUser() {
+        Order order1 = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        Order order2 = liveOrderService.registerOrder("user2", 1.5, 306, BUY);
+        Order order3 = liveOrderService.registerOrder("user1", 2.0, 409, SELL);
+
+        List<Order> canceledOrders = liveOrderService.cancelAllForUser("user1");
+        assertThat(canceledOrders.size(), is(2));
+        assertThat(canceledOrders, hasItem(order1));
+        assertThat(canceledOrders, hasItem(order3));
+        assertThat(liveOrderService.getOrdersForUser("user1").size(), is(0));
+        assertThat(liveOrderService.getOrder(order2.getOrderRef()), is(order2));
+
+        List<OrderSummary> buySummaries = liveOrderService.buySummary();
+        assertThat(buySummaries.size(), is(1));
+        assertThat("1.5 kg for £306", is(buySummaries.get(0).toString()));
+        assertThat(liveOrderService.sellSummary().size(), is(0));
+
+        assertThat(liveOrderService.cancelAllForUser("user1").size(), is(0));
+    }
+
     @Test
     public void buySummary_emptyOrders() {
         List<OrderSummary> orderSummaries = liveOrderService.buySummary();
@@ -223,6 +407,103 @@ public abstract class LiveOrderServiceTest {
         assertThat("5.5 kg for £306", is(orderSummariesDesc.get(2)));
     }
 
+    @Test
+    public void buySummary_exactTotals() {
+        Order[] orders = new Order[10];
+        for (int i = 0; i < orders.length; i++) {
+            orders[i] = liveOrderService.registerOrder("user" + i, 0.1, 306, BUY);
+        }
+        assertThat(liveOrderService.buySummary().get(0).getQuantity(), is(1.0));
+
+        for (int i = 0; i < orders.length - 1; i++) {
+            liveOrderService.cancelOrder(orders[i].getOrderRef());
+        }
+        assertThat(liveOrderService.buySummary().get(0).getQuantity(), is(0.1));
+        assertThat(liveOrderService.buySummary().get(0).getQuantityUnits(), is(orders[0].getQuantityUnits()));
+    }
+
+    @Test
+    public void summary_cachedUntilSideChanges() {
+        liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        liveOrderService.registerOrder("user2", 2.0, 310, SELL);
+        long buyVersion = liveOrderService.summaryVersion(BUY);
+        long sellVersion = liveOrderService.summaryVersion(SELL);
+        List<OrderSummary> buySummary = liveOrderService.buySummary();
+        List<OrderSummary> sellSummary = liveOrderService.sellSummary();
+
+        assertThat(liveOrderService.buySummary() == buySummary, is(true));
+        liveOrderService.registerOrder("user3", 1.5, 305, BUY);
+
+        assertThat(liveOrderService.summaryVersion(BUY) == buyVersion, is(false));
+        assertThat(liveOrderService.summaryVersion(SELL), is(sellVersion));
+        assertThat(liveOrderService.sellSummary() == sellSummary, is(true));
+        assertThat(liveOrderService.buySummary(),
+                is(Arrays.asList(new OrderSummary(3.5, 306), new OrderSummary(1.5, 305))));
+    }
+
+    @Test
+    public void orderCount() {
+        Order order = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        liveOrderService.registerOrder("user2", 2.0, 306, BUY);
+        liveOrderService.registerOrder("user2", 1.0, 305, BUY);
+        liveOrderService.registerOrder("user3", 2.0, 310, SELL);
+        assertThat(liveOrderService.orderCount(BUY), is(3));
+        assertThat(liveOrderService.orderCount(SELL), is(1));
+
+        liveOrderService.amendOrder(order.getOrderRef(), 1.0, 300);
+        liveOrderService.cancelOrder(order.getOrderRef());
+        liveOrderService.cancelAllForUser("user3");
+        assertThat(liveOrderService.orderCount(BUY), is(2));
+        assertThat(liveOrderService.orderCount(SELL), is(0));
+    }
+
+    @Test
+    public void bucketSummary() {
+        liveOrderService.registerOrder("user1", 3.5, 301, BUY);
+        liveOrderService.registerOrder("user2", 1.5, 310, BUY);
+        liveOrderService.registerOrder("user3", 2.0, 311, BUY);
+        liveOrderService.registerOrder("user4", 1.0, 9, BUY);
+        liveOrderService.registerOrder("user1", 4.0, 320, SELL);
+        liveOrderService.registerOrder("user2", 1.0, 329, SELL);
+        liveOrderService.registerOrder("user3", 2.5, 351, SELL);
+
+        assertThat(liveOrderService.buyBucketSummary(10), is(Arrays.asList(
+                new OrderSummary(2.0, 320), new OrderSummary(5.0, 310), new OrderSummary(1.0, 10))));
+        assertThat(liveOrderService.sellBucketSummary(10), is(Arrays.asList(
+                new OrderSummary(4.0, 320), new OrderSummary(1.0, 330), new OrderSummary(2.5, 360))));
+        assertThat(liveOrderService.sellBucketSummary(100), is(Arrays.asList(new OrderSummary(7.5, 400))));
+    }
+
+    @Test
+    public void bucketSummary_withZeroBucketSize() {
+        exception.expect(IllegalBucketSize.class);
+        exception.expectMessage(containsString("BucketSize=0 not allowed"));
+        liveOrderService.buyBucketSummary(0);
+    }
+
+    @Test
+    public void summary_levelAboveSingleOrderLimit() {
+        double largest = (double) (QuantityScale.MAX_UNITS / QuantityScale.UNITS_PER_KG);
+        liveOrderService.registerOrder("user1", largest, 306, BUY);
+        liveOrderService.registerOrder("user2", largest, 306, BUY);
+        long levelUnits = 2 * QuantityScale.toUnits(largest);
+
+        assertThat(levelUnits > QuantityScale.MAX_UNITS, is(true));
+        assertThat(liveOrderService.buySummary().get(0).getQuantityUnits(), is(levelUnits));
+        assertThat(liveOrderService.buySummary(1).get(0).getQuantityUnits(), is(levelUnits));
+        assertThat(liveOrderService.buySummary(300, 310).get(0).getQuantityUnits(), is(levelUnits));
+        assertThat(liveOrderService.buyBucketSummary(10).get(0).getQuantityUnits(), is(levelUnits));
+        assertThat(liveOrderService.bookSnapshot().getBuySummary().get(0).getQuantityUnits(), is(levelUnits));
+    }
+
+    @Test
+    public void buySummary_unmodifiable() {
+        liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+
+        exception.expect(UnsupportedOperationException.class);
+        liveOrderService.buySummary().clear();
+    }
+
     @Test
     public void sellSummary_emptyOrders() {
         List<OrderSummary> orderSummaries = liveOrderService.sellSummary();
@@ -261,6 +542,190 @@ public abstract class LiveOrderServiceTest {
         assertThat("1.2 kg for £310", is(orderSummariesDesc.get(2)));
     }
 
+    @Test
+    public void buySummary_depth() {
+        registerSampleOrders();
+
+        List<OrderSummary> orderSummaries = liveOrderService.buySummary(2);
+        assertThat(orderSummaries.size(), is(2));
+        assertThat("1.2 kg for £310", is(orderSummaries.get(0).toString()));
+        assertThat("1.5 kg for £307", is(orderSummaries.get(1).toString()));
+
+        assertThat(liveOrderService.buySummary(10).size(), is(3));
+    }
+
+    @Test
+    public void sellSummary_depth() {
+        registerSampleOrders();
+
+        List<OrderSummary> orderSummaries = liveOrderService.sellSummary(1);
+        assertThat(orderSummaries.size(), is(1));
+        assertThat("1.5 kg for £309", is(orderSummaries.get(0).toString()));
+    }
+
+    @Test
+    public void buySummary_zeroDepth() {
+        exception.expect(IllegalDepth.class);
+        exception.expectMessage(containsString("Depth=0"));
+        liveOrderService.buySummary(0);
+    }
+
+    @Test
+    public void buySummary_priceBand() {
+        registerSampleOrders();
+
+        List<OrderSummary> orderSummaries = liveOrderService.buySummary(306, 307);
+        assertThat(orderSummaries.size(), is(2));
+        assertThat("1.5 kg for £307", is(orderSummaries.get(0).toString()));
+        assertThat("5.5 kg for £306", is(orderSummaries.get(1).toString()));
+
+        assertThat(liveOrderService.buySummary(311, 400).size(), is(0));
+        assertThat(liveOrderService.buySummary(310, 300).size(), is(0));
+    }
+
+    @Test
+    public void sellSummary_priceBand() {
+        registerSampleOrders();
+
+        List<OrderSummary> orderSummaries = liveOrderService.sellSummary(300, 400);
+        assertThat(orderSummaries.size(), is(1));
+        assertThat("1.5 kg for £309", is(orderSummaries.get(0).toString()));
+
+        orderSummaries = liveOrderService.sellSummary(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        assertThat(orderSummaries.size(), is(2));
+        assertThat("2.0 kg for £409", is(orderSummaries.get(1).toString()));
+    }
+
+    @Test
+    public void bookSnapshot() {
+        BookSnapshot empty = liveOrderService.bookSnapshot();
+        assertThat(empty.getBuySummary().size(), is(0));
+        assertThat(empty.getSellSummary().size(), is(0));
+
+        registerSampleOrders();
+        BookSnapshot bookSnapshot = liveOrderService.bookSnapshot();
+        assertThat(bookSnapshot.getBuySummary().size(), is(3));
+        assertThat(bookSnapshot.getBuySummary().get(0).toString(), is(liveOrderService.buySummary().get(0).toString()));
+        assertThat(bookSnapshot.getSellSummary().size(), is(2));
+        assertThat(bookSnapshot.getSequence() > empty.getSequence(), is(true));
+        assertThat(liveOrderService.bookSnapshot().getSequence(), is(bookSnapshot.getSequence()));
+    }
+
+    @Test
+    public void bookSnapshot_sidesAgreeUnderConcurrentWrites() throws InterruptedException {
+        int pairs = 500;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < pairs; i++) {
+                liveOrderService.registerOrder("user1", 1.0, 300, BUY);
+                liveOrderService.registerOrder("user1", 1.0, 400, SELL);
+            }
+        });
+        writer.start();
+        long lastSequence = -1;
+        while (writer.isAlive()) {
+            BookSnapshot bookSnapshot = liveOrderService.bookSnapshot();
+            double buyQuantity = totalQuantity(bookSnapshot.getBuySummary());
+            double sellQuantity = totalQuantity(bookSnapshot.getSellSummary());
+            double difference = buyQuantity - sellQuantity;
+            assertThat(bookSnapshot.toString(), difference >= 0 && difference <= 1, is(true));
+            assertThat(bookSnapshot.getSequence() >= lastSequence, is(true));
+            lastSequence = bookSnapshot.getSequence();
+        }
+        writer.join();
+        assertThat(totalQuantity(liveOrderService.bookSnapshot().getSellSummary()), is((double) pairs));
+    }
+
+    @Test
+    public void amendOrder_racingCancelLeavesNoLevel() throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            String orderRef = liveOrderService.registerOrder("user1", 1.0, 300, BUY).getOrderRef();
+            int price = 301 + i;
+            CountDownLatch start = new CountDownLatch(1);
+            Thread amender = new Thread(() -> {
+                awaitQuietly(start);
+                try {
+                    liveOrderService.amendOrder(orderRef, 2.0, price);
+                } catch (OrderNotFound e) {
+                    // cancelled first
+                }
+            });
+            Thread canceller = new Thread(() -> {
+                awaitQuietly(start);
+                liveOrderService.cancelOrder(orderRef);
+            });
+            amender.start();
+            canceller.start();
+            start.countDown();
+            amender.join();
+            canceller.join();
+        }
+        assertThat(liveOrderService.buySummary().toString(), liveOrderService.buySummary().isEmpty(), is(true));
+        assertThat(liveOrderService.buyBucketSummary(10).isEmpty(), is(true));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double totalQuantity(List<OrderSummary> orderSummaries) {
+        return orderSummaries.stream().mapToDouble(OrderSummary::getQuantity).sum();
+    }
+
+    @Test
+    public void subscribe_receivesLevelChanges() throws InterruptedException {
+        registerSampleOrders();
+        Map<String, Double> levels = new ConcurrentHashMap<>();
+        SummarySubscription subscription = liveOrderService.subscribe(update -> {
+            String level = update.getBuySell() + " " + update.getPrice();
+            if (update.getChange() == LevelChange.REMOVED) {
+                levels.remove(level);
+            } else {
+                levels.put(level, update.getQuantity());
+            }
+        });
+        awaitLevels(levels, "BUY 306=5.5", "BUY 307=1.5", "BUY 310=1.2", "SELL 309=1.5", "SELL 409=2.0");
+
+        Order order = liveOrderService.registerOrder("user5", 0.5, 307, BUY);
+        liveOrderService.cancelAllForUser("user4");
+        awaitLevels(levels, "BUY 306=3.5", "BUY 307=2.0", "BUY 310=1.2", "SELL 309=1.5");
+
+        subscription.cancel();
+        assertThat(subscription.isCancelled(), is(true));
+        liveOrderService.cancelOrder(order.getOrderRef());
+        Thread.sleep(50);
+        assertThat(levels.get("BUY 307"), is(2.0));
+    }
+
+    private static void awaitLevels(Map<String, Double> levels, String... expectedLevels) throws InterruptedException {
+        List<String> expected = Arrays.asList(expectedLevels);
+        long deadline = System.currentTimeMillis() + 5000;
+        List<String> actual;
+        do {
+            actual = levels.entrySet().stream()
+                    .map(level -> level.getKey() + "=" + level.getValue())
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (actual.equals(expected)) {
+                return;
+            }
+            Thread.sleep(5);
+        } while (System.currentTimeMillis() < deadline);
+        assertThat(actual, is(expected));
+    }
+
+    private void registerSampleOrders() {
+        liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        liveOrderService.registerOrder("user3", 1.5, 307, BUY);
+        liveOrderService.registerOrder("user4", 2.0, 306, BUY);
+        liveOrderService.registerOrder("user3", 1.5, 309, SELL);
+        liveOrderService.registerOrder("user4", 2.0, 409, SELL);
+        liveOrderService.registerOrder("user2", 1.2, 310, BUY);
+    }
+
     public LiveOrderService getLiveOrderService() {
         return liveOrderService;
     }
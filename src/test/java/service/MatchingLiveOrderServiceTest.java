@@ -0,0 +1,140 @@
+package service;
+
+import exception.OrderNotFound;
+import model.Order;
+import model.OrderRequest;
+import model.OrderSummary;
+import model.Trade;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MatchingLiveOrderServiceTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final MatchingLiveOrderService liveOrderService = new MatchingLiveOrderService();
+    private final List<Trade> trades = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        liveOrderService.addTradeListener(trades::add);
+    }
+
+    @Test
+    public void registerOrder_crossingOrdersTrade() {
+        Order buy = liveOrderService.registerOrder("user1", 1.0, 300, BUY);
+        Order sell = liveOrderService.registerOrder("user2", 1.0, 290, SELL);
+
+        assertThat(trades.size(), is(1));
+        assertThat(trades.get(0).getBuyOrderRef(), is(buy.getOrderRef()));
+        assertThat(trades.get(0).getSellOrderRef(), is(sell.getOrderRef()));
+        assertThat(trades.get(0).getPrice(), is(300));
+        assertThat(liveOrderService.buySummary().size(), is(0));
+        assertThat(liveOrderService.sellSummary().size(), is(0));
+    }
+
+    @Test
+    public void registerOrder_partialFillRests() {
+        Order sell = liveOrderService.registerOrder("user1", 3.5, 306, SELL);
+        liveOrderService.registerOrder("user2", 1.5, 307, BUY);
+
+        assertThat(liveOrderService.getOrder(sell.getOrderRef()).getQuantity(), is(2.0));
+        List<OrderSummary> sellSummary = liveOrderService.sellSummary();
+        assertThat(sellSummary.size(), is(1));
+        assertThat(sellSummary.get(0).getQuantity(), is(2.0));
+        assertThat(liveOrderService.getOrdersForUser("user2").size(), is(0));
+        assertThat(liveOrderService.bookSnapshot().getSellSummary().get(0).getQuantity(), is(2.0));
+    }
+
+    @Test
+    public void amendOrder_reducedQuantityKeepsPriority() {
+        Order first = liveOrderService.registerOrder("user1", 3.0, 306, SELL);
+        Order second = liveOrderService.registerOrder("user2", 2.0, 306, SELL);
+        liveOrderService.amendOrder(first.getOrderRef(), 1.0, 306);
+
+        liveOrderService.registerOrder("user3", 1.0, 306, BUY);
+        assertThat(trades.size(), is(1));
+        assertThat(trades.get(0).getSellOrderRef(), is(first.getOrderRef()));
+        assertThat(liveOrderService.getOrder(second.getOrderRef()).getQuantity(), is(2.0));
+    }
+
+    @Test
+    public void amendOrder_increasedQuantityLosesPriority() {
+        Order first = liveOrderService.registerOrder("user1", 1.0, 306, SELL);
+        Order second = liveOrderService.registerOrder("user2", 2.0, 306, SELL);
+        liveOrderService.amendOrder(first.getOrderRef(), 3.0, 306);
+
+        liveOrderService.registerOrder("user3", 1.0, 306, BUY);
+        assertThat(trades.size(), is(1));
+        assertThat(trades.get(0).getSellOrderRef(), is(second.getOrderRef()));
+        assertThat(liveOrderService.sellSummary().get(0).getQuantity(), is(4.0));
+    }
+
+    @Test
+    public void amendOrder_crossingPriceTrades() {
+        Order buy = liveOrderService.registerOrder("user1", 1.0, 300, BUY);
+        Order sell = liveOrderService.registerOrder("user2", 2.0, 305, SELL);
+        liveOrderService.amendOrder(sell.getOrderRef(), 2.0, 300);
+
+        assertThat(trades.size(), is(1));
+        assertThat(trades.get(0).getBuyOrderRef(), is(buy.getOrderRef()));
+        assertThat(liveOrderService.buySummary().size(), is(0));
+        assertThat(liveOrderService.getOrder(sell.getOrderRef()).getQuantity(), is(1.0));
+    }
+
+    @Test
+    public void cancelOrder_filledOrder() {
+        Order buy = liveOrderService.registerOrder("user1", 1.0, 300, BUY);
+        liveOrderService.registerOrder("user2", 1.0, 300, SELL);
+
+        exception.expect(OrderNotFound.class);
+        liveOrderService.cancelOrder(buy.getOrderRef());
+    }
+
+    @Test
+    public void cancelOrder_partiallyFilled_returnsUnfilledQuantity() {
+        Order buy = liveOrderService.registerOrder("user1", 5.0, 300, BUY);
+        liveOrderService.registerOrder("user2", 2.0, 300, SELL);
+
+        assertThat(liveOrderService.cancelOrder(buy.getOrderRef()).getQuantity(), is(3.0));
+        assertThat(liveOrderService.buySummary().size(), is(0));
+    }
+
+    @Test
+    public void registerOrders_matchInBatchOrder() {
+        liveOrderService.registerOrder("user1", 1.0, 310, SELL);
+        liveOrderService.registerOrder("user1", 1.0, 305, SELL);
+
+        liveOrderService.registerOrders(Arrays.asList(
+                new OrderRequest("user2", 1.0, 320, BUY),
+                new OrderRequest("user3", 1.0, 320, BUY)));
+
+        assertThat(trades.size(), is(2));
+        assertThat(trades.get(0).getPrice(), is(305));
+        assertThat(trades.get(1).getPrice(), is(310));
+    }
+
+    @Test
+    public void failingTradeListener_doesNotStopMatching() {
+        liveOrderService.addTradeListener(trade -> {
+            throw new IllegalStateException();
+        });
+        liveOrderService.registerOrder("user1", 1.0, 300, BUY);
+        liveOrderService.registerOrder("user2", 1.0, 300, SELL);
+
+        assertThat(trades.size(), is(1));
+        assertThat(liveOrderService.buySummary().size(), is(0));
+    }
+}
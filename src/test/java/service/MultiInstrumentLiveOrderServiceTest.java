@@ -0,0 +1,142 @@
+package service;
+
+import exception.IllegalInstrument;
+import exception.OrderNotFound;
+import model.Order;
+import model.OrderSummary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class MultiInstrumentLiveOrderServiceTest {
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    private final MultiInstrumentLiveOrderService liveOrderService =
+            new MultiInstrumentLiveOrderService(Arrays.asList("XAU", "XAG"));
+
+    @Test
+    public void summary_perInstrument() {
+        liveOrderService.registerOrder("XAU", "user1", 3.5, 306, BUY);
+        liveOrderService.registerOrder("XAU", "user2", 1.5, 306, BUY);
+        liveOrderService.registerOrder("XAG", "user1", 2.0, 306, BUY);
+        liveOrderService.registerOrder("XAG", "user3", 4.0, 310, SELL);
+
+        assertThat(liveOrderService.buySummary("XAU"), is(Collections.singletonList(new OrderSummary(5.0, 306))));
+        assertThat(liveOrderService.buySummary("XAG"), is(Collections.singletonList(new OrderSummary(2.0, 306))));
+        assertThat(liveOrderService.sellSummary("XAU").isEmpty(), is(true));
+        assertThat(liveOrderService.sellSummary("XAG"), is(Collections.singletonList(new OrderSummary(4.0, 310))));
+    }
+
+    @Test
+    public void orderRefs_uniqueAcrossInstruments() {
+        Order gold = liveOrderService.registerOrder("XAU", "user1", 3.5, 306, BUY);
+        Order silver = liveOrderService.registerOrder("XAG", "user1", 3.5, 306, BUY);
+
+        assertThat(gold.getOrderRef(), is(not(silver.getOrderRef())));
+        assertThat(liveOrderService.getOrder("XAU", gold.getOrderRef()), is(gold));
+    }
+
+    @Test
+    public void cancelOrder_otherInstrument() {
+        Order gold = liveOrderService.registerOrder("XAU", "user1", 3.5, 306, BUY);
+
+        exception.expect(OrderNotFound.class);
+        liveOrderService.cancelOrder("XAG", gold.getOrderRef());
+    }
+
+    @Test
+    public void ordersForUser_byInstrument() {
+        Order gold = liveOrderService.registerOrder("XAU", "user1", 3.5, 306, BUY);
+        Order silver = liveOrderService.registerOrder("XAG", "user1", 2.0, 310, SELL);
+        liveOrderService.registerOrder("XAG", "user2", 2.0, 310, SELL);
+
+        Map<String, List<Order>> orders = liveOrderService.getOrdersForUser("user1");
+        assertThat(orders.get("XAU"), is(Collections.singletonList(gold)));
+        assertThat(orders.get("XAG"), is(Collections.singletonList(silver)));
+
+        Map<String, List<Order>> cancelled = liveOrderService.cancelAllForUser("user1");
+        assertThat(cancelled.get("XAU"), is(Collections.singletonList(gold)));
+        assertThat(cancelled.get("XAG"), is(Collections.singletonList(silver)));
+        assertThat(cancelled.size(), is(2));
+        assertThat(liveOrderService.getOrdersForUser("user1").isEmpty(), is(true));
+        assertThat(liveOrderService.sellSummary("XAG"), is(Collections.singletonList(new OrderSummary(2.0, 310))));
+    }
+
+    @Test
+    public void orderRefOnly_findsInstrument() {
+        Order gold = liveOrderService.registerOrder("XAU", "user1", 3.5, 306, BUY);
+        Order silver = liveOrderService.registerOrder("XAG", "user1", 2.0, 310, SELL);
+
+        assertThat(liveOrderService.instrumentOf(gold.getOrderRef()), is("XAU"));
+        assertThat(liveOrderService.instrumentOf(silver.getOrderRef()), is("XAG"));
+        assertThat(liveOrderService.getOrder(silver.getOrderRef()), is(silver));
+
+        Order amended = liveOrderService.amendOrder(gold.getOrderRef(), 1.5, 305);
+        assertThat(liveOrderService.buySummary("XAU"), is(Collections.singletonList(new OrderSummary(1.5, 305))));
+        assertThat(liveOrderService.cancelOrder(gold.getOrderRef()), is(amended));
+        assertThat(liveOrderService.buySummary("XAU").isEmpty(), is(true));
+        assertThat(liveOrderService.sellSummary("XAG").size(), is(1));
+    }
+
+    @Test
+    public void instrumentOf_cancelledOrder() {
+        Order gold = liveOrderService.registerOrder("XAU", "user1", 3.5, 306, BUY);
+        liveOrderService.cancelOrder("XAU", gold.getOrderRef());
+
+        exception.expect(OrderNotFound.class);
+        exception.expectMessage(containsString("OrderRef=" + gold.getOrderRef()));
+        liveOrderService.instrumentOf(gold.getOrderRef());
+    }
+
+    @Test
+    public void getOrder_removedThroughBook_dropsIndex() {
+        Order gold = liveOrderService.registerOrder("XAU", "user1", 3.5, 306, BUY);
+        liveOrderService.book("XAU").cancelOrder(gold.getOrderRef());
+
+        try {
+            liveOrderService.getOrder(gold.getOrderRef());
+        } catch (OrderNotFound e) {
+            // the book no longer has it
+        }
+        exception.expect(OrderNotFound.class);
+        liveOrderService.instrumentOf(gold.getOrderRef());
+    }
+
+    @Test
+    public void addInstrument() {
+        liveOrderService.addInstrument("XPT");
+        liveOrderService.registerOrder("XPT", "user1", 1.0, 900, SELL);
+
+        assertThat(liveOrderService.instruments().toString(), is("[XAG, XAU, XPT]"));
+        assertThat(liveOrderService.book("XPT").sellSummary().size(), is(1));
+    }
+
+    @Test
+    public void registerOrder_unknownInstrument() {
+        exception.expect(IllegalInstrument.class);
+        exception.expectMessage(containsString("Instrument=XPD not allowed"));
+
+        liveOrderService.registerOrder("XPD", "user1", 1.0, 900, SELL);
+    }
+
+    @Test
+    public void addInstrument_blank() {
+        exception.expect(IllegalInstrument.class);
+
+        liveOrderService.addInstrument("");
+    }
+}
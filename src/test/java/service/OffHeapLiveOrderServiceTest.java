@@ -0,0 +1,27 @@
+package service;
+
+import model.Order;
+import org.junit.Test;
+import ref.UuidOrderRefGenerator;
+
+import static model.BuySell.BUY;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class OffHeapLiveOrderServiceTest extends LiveOrderServiceTest {
+
+    @Override
+    protected LiveOrderService createOrderService() {
+        return new OffHeapLiveOrderService();
+    }
+
+    @Test
+    public void registerOrder_uuidOrderRefs() {
+        OffHeapLiveOrderService liveOrderService = new OffHeapLiveOrderService(36, new UuidOrderRefGenerator());
+        Order order = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+
+        assertThat(liveOrderService.getOrder(order.getOrderRef()), is(order));
+        assertThat(liveOrderService.cancelOrder(order.getOrderRef()), is(order));
+        assertThat(liveOrderService.buySummary().size(), is(0));
+    }
+}
@@ -0,0 +1,114 @@
+package service;
+
+import exception.IllegalPrice;
+import exception.OrderNotFound;
+import journal.FsyncPolicy;
+import model.Order;
+import model.OrderSummary;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class PipelinedLiveOrderServiceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void calls_appliedInOrder() throws InterruptedException {
+        InMemoryLiveOrderService liveOrderService = new InMemoryLiveOrderService();
+        try (PipelinedLiveOrderService pipeline = new PipelinedLiveOrderService(liveOrderService, 64)) {
+            List<CompletableFuture<Order>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                futures.add(pipeline.registerOrderAsync("user1", 1.0, 300 + i % 3, BUY));
+            }
+            CompletableFuture<List<OrderSummary>> buySummary = pipeline.buySummaryAsync();
+
+            assertThat(buySummary.join().size(), is(3));
+            assertThat(buySummary.join().get(0).getQuantity(), is(333.0));
+
+            Order order = futures.get(0).join();
+            CompletableFuture<Order> cancelled = pipeline.cancelOrderAsync(order.getOrderRef());
+            CompletableFuture<Order> loaded = pipeline.getOrderAsync(order.getOrderRef());
+            assertThat(cancelled.join(), is(order));
+            try {
+                loaded.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(OrderNotFound.class));
+            }
+            assertThat(liveOrderService.getOrdersForUser("user1").size(), is(999));
+        }
+    }
+
+    @Test
+    public void cancelOrderAsync_failsAlone() throws InterruptedException {
+        try (PipelinedLiveOrderService pipeline = new PipelinedLiveOrderService(new InMemoryLiveOrderService())) {
+            Order order = pipeline.registerOrderAsync("user1", 2.0, 310, SELL).join();
+            CompletableFuture<Order> unknown = pipeline.cancelOrderAsync("UnknownOrderRef");
+            CompletableFuture<Order> cancelled = pipeline.cancelOrderAsync(order.getOrderRef());
+
+            assertThat(cancelled.join(), is(order));
+            try {
+                unknown.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(OrderNotFound.class));
+            }
+            assertThat(pipeline.sellSummaryAsync().join(), is(Collections.<OrderSummary>emptyList()));
+        }
+    }
+
+    @Test(expected = IllegalPrice.class)
+    public void registerOrderAsync_rejectsInvalidInput() {
+        try (PipelinedLiveOrderService pipeline = new PipelinedLiveOrderService(new InMemoryLiveOrderService())) {
+            pipeline.registerOrderAsync("user1", 2.0, -1, SELL);
+        }
+    }
+
+    @Test
+    public void registerOrderAsync_groupCommitsJournal() throws IOException {
+        Path journalFile = folder.newFolder().toPath().resolve("orders.journal");
+        List<CompletableFuture<Order>> futures = new ArrayList<>();
+        try (JournaledLiveOrderService journaled = new JournaledLiveOrderService(journalFile, FsyncPolicy.EVERY_EVENT);
+             PipelinedLiveOrderService pipeline = new PipelinedLiveOrderService(journaled)) {
+            for (int i = 0; i < 500; i++) {
+                futures.add(pipeline.registerOrderAsync("user" + i % 5, 1.5, 300 + i % 7, i % 2 == 0 ? BUY : SELL));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        }
+
+        try (JournaledLiveOrderService recovered =
+                     new JournaledLiveOrderService(journalFile, FsyncPolicy.EVERY_EVENT)) {
+            for (CompletableFuture<Order> future : futures) {
+                assertThat(recovered.getOrder(future.join().getOrderRef()), is(future.join()));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void registerOrderAsync_afterClose() throws Throwable {
+        PipelinedLiveOrderService pipeline = new PipelinedLiveOrderService(new InMemoryLiveOrderService());
+        pipeline.close();
+        try {
+            pipeline.registerOrderAsync("user1", 2.0, 310, SELL).get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package service;
+
+import model.Order;
+import model.OrderSummary;
+import org.junit.Test;
+import ref.SequenceOrderRefGenerator;
+
+import java.util.Arrays;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PriceLadderLiveOrderServiceTest extends InMemoryLiveOrderServiceTest {
+
+    @Override
+    protected LiveOrderService createOrderService() {
+        return new PriceLadderLiveOrderService(new SequenceOrderRefGenerator(), 10, 100);
+    }
+
+    @Test
+    public void bucketSummary_maintainedMatchesAggregated() {
+        PriceLadderLiveOrderService maintained = (PriceLadderLiveOrderService) getLiveOrderService();
+        LiveOrderService aggregated = new InMemoryLiveOrderService();
+        for (LiveOrderService liveOrderService : Arrays.asList(maintained, aggregated)) {
+            Order amended = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+            Order cancelled = liveOrderService.registerOrder("user2", 1.5, 295, BUY);
+            for (int i = 0; i < 200; i++) {
+                liveOrderService.registerOrder("user" + i % 7, 0.5, 250 + i % 90, i % 2 == 0 ? BUY : SELL);
+            }
+            liveOrderService.amendOrder(amended.getOrderRef(), 2.0, 412);
+            liveOrderService.cancelOrder(cancelled.getOrderRef());
+        }
+
+        for (int bucketSize : new int[]{10, 100}) {
+            assertThat(maintained.buyBucketSummary(bucketSize), is(aggregated.buyBucketSummary(bucketSize)));
+            assertThat(maintained.sellBucketSummary(bucketSize), is(aggregated.sellBucketSummary(bucketSize)));
+        }
+        assertThat(maintained.buyBucketSummary(100).get(0), is(new OrderSummary(2.0, 500)));
+    }
+
+    @Test
+    public void buyLevels_intoBuffer() {
+        PriceLadderLiveOrderService liveOrderService = (PriceLadderLiveOrderService) getLiveOrderService();
+        liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        liveOrderService.registerOrder("user3", 1.5, 307, BUY);
+        liveOrderService.registerOrder("user4", 2.0, 306, BUY);
+        liveOrderService.registerOrder("user2", 1.2, 310, SELL);
+
+        int[] prices = new int[10];
+        long[] quantities = new long[10];
+        assertThat(liveOrderService.buyLevels(prices, quantities), is(2));
+        assertThat(prices[0], is(307));
+        assertThat(quantities[0], is(1500L));
+        assertThat(prices[1], is(306));
+        assertThat(quantities[1], is(5500L));
+
+        assertThat(liveOrderService.sellLevels(prices, quantities), is(1));
+        assertThat(prices[0], is(310));
+        assertThat(quantities[0], is(1200L));
+    }
+}
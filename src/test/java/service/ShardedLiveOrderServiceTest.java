@@ -0,0 +1,106 @@
+package service;
+
+import model.BookSnapshot;
+import model.BuySell;
+import model.Order;
+import model.OrderSummary;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ShardedLiveOrderServiceTest extends LiveOrderServiceTest {
+
+    @Override
+    protected LiveOrderService createOrderService() {
+        return new ShardedLiveOrderService(8);
+    }
+
+    @Test
+    public void shardCount_roundedUpToPowerOfTwo() {
+        assertThat(new ShardedLiveOrderService(1).getShardCount(), is(1));
+        assertThat(new ShardedLiveOrderService(6).getShardCount(), is(8));
+        assertThat(new ShardedLiveOrderService(16).getShardCount(), is(16));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shardCount_zero() {
+        new ShardedLiveOrderService(0);
+    }
+
+    @Test
+    public void buySummary_depth_mergesShards() {
+        LiveOrderService liveOrderService = getLiveOrderService();
+        for (int i = 0; i < 100; i++) {
+            liveOrderService.registerOrder("user" + i, 1.0, 300 + i % 10, BUY);
+        }
+
+        List<OrderSummary> orderSummaries = liveOrderService.buySummary(3);
+        assertThat(orderSummaries.size(), is(3));
+        assertThat(orderSummaries.get(0).toString(), is(new OrderSummary(10.0, 309).toString()));
+        assertThat(orderSummaries.get(2).toString(), is(new OrderSummary(10.0, 307).toString()));
+        assertThat(liveOrderService.buySummary(305, 306).size(), is(2));
+    }
+
+    @Test
+    public void registerAndCancel_concurrently() throws Exception {
+        LiveOrderService liveOrderService = getLiveOrderService();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                String userId = "user" + t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        Order order = liveOrderService.registerOrder(userId, 2.0, 300 + i % 5, SELL);
+                        if (i % 2 == 0) {
+                            liveOrderService.cancelOrder(order.getOrderRef());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<OrderSummary> orderSummaries = liveOrderService.sellSummary();
+        assertThat(orderSummaries.size(), is(5));
+        double totalQuantity = orderSummaries.stream().mapToDouble(OrderSummary::getQuantity).sum();
+        assertThat(totalQuantity, is(8 * 500 * 2.0));
+        assertThat(liveOrderService.getOrdersForUser("user3").size(), is(500));
+    }
+
+    @Test
+    public void bookSnapshot_seesWriteBeforeItsSummaryVersionMoves() {
+        List<BookSnapshot> snapshots = new ArrayList<>();
+        ShardedLiveOrderService service = new ShardedLiveOrderService(8) {
+            @Override
+            protected void levelChanged(BuySell buySell, int price) {
+                // the write has ended but the side's cached summary is not yet invalidated
+                snapshots.add(bookSnapshot());
+                super.levelChanged(buySell, price);
+            }
+        };
+        service.sellSummary();
+        service.buySummary();
+
+        service.registerOrder("user1", 2.0, 300, BUY);
+        service.registerOrder("user2", 2.0, 310, SELL);
+
+        assertThat(snapshots.get(0).getBuySummary().size(), is(1));
+        assertThat(snapshots.get(0).getSellSummary().size(), is(0));
+        assertThat(snapshots.get(1).getBuySummary().size(), is(1));
+        assertThat(snapshots.get(1).getSellSummary().get(0).getQuantity(), is(2.0));
+    }
+}
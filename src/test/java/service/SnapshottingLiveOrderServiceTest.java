@@ -0,0 +1,194 @@
+package service;
+
+import journal.FsyncPolicy;
+import model.Order;
+import model.OrderSummary;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static model.BuySell.BUY;
+import static model.BuySell.SELL;
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SnapshottingLiveOrderServiceTest extends InMemoryLiveOrderServiceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Override
+    protected LiveOrderService createOrderService() {
+        try {
+            directory = folder.newFolder().toPath();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return newService();
+    }
+
+    @After
+    public void tearDown() {
+        ((SnapshottingLiveOrderService) getLiveOrderService()).close();
+    }
+
+    @Test
+    public void restart_fromSnapshotAndJournal() throws IOException {
+        List<OrderSummary> buySummary;
+        List<OrderSummary> sellSummary;
+        Order order1;
+        try (SnapshottingLiveOrderService liveOrderService = newService()) {
+            order1 = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+            Order order2 = liveOrderService.registerOrder("user2", 2.0, 306, BUY);
+            liveOrderService.registerOrder("user3", 1.5, 309, SELL);
+            liveOrderService.snapshot();
+            liveOrderService.cancelOrder(order2.getOrderRef());
+            liveOrderService.registerOrder("user4", 1.2, 310, SELL);
+            liveOrderService.snapshot();
+            liveOrderService.registerOrder("user5", 1.0, 305, BUY);
+            buySummary = liveOrderService.buySummary();
+            sellSummary = liveOrderService.sellSummary();
+        }
+        assertThat(fileNames(), is("journal-2.log,snapshot-2.snap"));
+
+        try (SnapshottingLiveOrderService liveOrderService = newService()) {
+            assertThat(liveOrderService.buySummary(), is(buySummary));
+            assertThat(liveOrderService.sellSummary(), is(sellSummary));
+            Order recovered = liveOrderService.getOrder(order1.getOrderRef());
+            assertThat(recovered.getUserId(), is("user1"));
+            assertThat(recovered.getQuantity(), is(3.5));
+            assertThat(recovered.getPrice(), is(306));
+            assertThat(recovered.getBuySell(), is(BUY));
+            assertThat(liveOrderService.getOrdersForUser("user2").size(), is(0));
+        }
+    }
+
+    @Test
+    public void snapshot_concurrentWriters() throws Exception {
+        List<OrderSummary> buySummary;
+        List<OrderSummary> sellSummary;
+        try (SnapshottingLiveOrderService liveOrderService = newService()) {
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    Order order = liveOrderService.registerOrder("user" + i % 7, 1.0, 300 + i % 13, i % 2 == 0 ? BUY : SELL);
+                    if (i % 3 == 0) {
+                        liveOrderService.cancelOrder(order.getOrderRef());
+                    }
+                }
+            });
+            writer.start();
+            while (writer.isAlive()) {
+                liveOrderService.snapshot();
+            }
+            writer.join();
+            buySummary = liveOrderService.buySummary();
+            sellSummary = liveOrderService.sellSummary();
+        }
+
+        try (SnapshottingLiveOrderService liveOrderService = newService()) {
+            assertThat(liveOrderService.buySummary(), is(buySummary));
+            assertThat(liveOrderService.sellSummary(), is(sellSummary));
+        }
+    }
+
+    @Test
+    public void restart_concurrentAmends() throws InterruptedException {
+        List<Order> amended = new ArrayList<>();
+        List<OrderSummary> buySummary;
+        try (SnapshottingLiveOrderService liveOrderService = newService()) {
+            List<String> orderRefs = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                orderRefs.add(liveOrderService.registerOrder("user1", 1.0, 300, BUY).getOrderRef());
+            }
+            Thread[] amenders = new Thread[2];
+            for (int t = 0; t < amenders.length; t++) {
+                int price = 301 + 100 * t;
+                amenders[t] = new Thread(() -> {
+                    for (String orderRef : orderRefs) {
+                        liveOrderService.amendOrder(orderRef, 2.0, price);
+                    }
+                });
+                amenders[t].start();
+            }
+            for (Thread amender : amenders) {
+                amender.join();
+            }
+            for (String orderRef : orderRefs) {
+                amended.add(liveOrderService.getOrder(orderRef));
+            }
+            buySummary = liveOrderService.buySummary();
+        }
+
+        try (SnapshottingLiveOrderService liveOrderService = newService()) {
+            for (Order order : amended) {
+                Order recovered = liveOrderService.getOrder(order.getOrderRef());
+                assertThat(recovered.getQuantity(), is(order.getQuantity()));
+                assertThat(recovered.getPrice(), is(order.getPrice()));
+            }
+            assertThat(liveOrderService.buySummary(), is(buySummary));
+        }
+    }
+
+    @Test
+    public void restart_withoutSnapshot() {
+        Order order;
+        try (SnapshottingLiveOrderService liveOrderService = newService()) {
+            order = liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+        }
+        assertThat(fileNames(), is("journal-0.log"));
+
+        try (SnapshottingLiveOrderService liveOrderService = newService()) {
+            assertThat(liveOrderService.getOrdersForUser("user1"), hasItems(order));
+        }
+    }
+
+    @Test
+    public void backgroundSnapshotFailure_recorded() throws Exception {
+        try (SnapshottingLiveOrderService liveOrderService =
+                     new SnapshottingLiveOrderService(directory, FsyncPolicy.GROUP_COMMIT, 10)) {
+            liveOrderService.registerOrder("user1", 3.5, 306, BUY);
+            assertThat(liveOrderService.lastSnapshotFailure(), is(nullValue()));
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (liveOrderService.snapshotFailures() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(liveOrderService.snapshotFailures() > 0, is(true));
+            assertThat(liveOrderService.lastSnapshotFailure(), instanceOf(UncheckedIOException.class));
+            assertThat(liveOrderService.getOrdersForUser("user1").size(), is(1));
+        }
+    }
+
+    private SnapshottingLiveOrderService newService() {
+        return new SnapshottingLiveOrderService(directory, FsyncPolicy.GROUP_COMMIT, 0);
+    }
+
+    private String fileNames() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.joining(","));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package timer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TimerWheelTest {
+
+    @Test
+    public void advance_expiresDueKeys() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 0);
+        wheel.schedule("a", 50);
+        wheel.schedule("b", 120);
+        wheel.schedule("c", 55);
+        List<String> expired = new ArrayList<>();
+
+        assertThat(wheel.advance(49, expired), is(0));
+        assertThat(wheel.advance(60, expired), is(2));
+        Collections.sort(expired);
+        assertThat(expired, is(Arrays.asList("a", "c")));
+        assertThat(wheel.size(), is(1));
+
+        expired.clear();
+        assertThat(wheel.advance(1000, expired), is(1));
+        assertThat(expired, is(Collections.singletonList("b")));
+        assertThat(wheel.size(), is(0));
+    }
+
+    @Test
+    public void advance_limit_leavesRestPending() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 0);
+        wheel.schedule("a", 50);
+        wheel.schedule("b", 50);
+        wheel.schedule("c", 50);
+        wheel.schedule("d", 70);
+        List<String> expired = new ArrayList<>();
+
+        assertThat(wheel.advance(100, expired, 2), is(2));
+        assertThat(wheel.size(), is(2));
+        assertThat(wheel.advance(100, expired, 2), is(2));
+        assertThat(wheel.advance(100, expired, 2), is(0));
+        Collections.sort(expired);
+        assertThat(expired, is(Arrays.asList("a", "b", "c", "d")));
+        assertThat(wheel.size(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void advance_zeroLimit() {
+        new TimerWheel<String>(10, 0).advance(100, new ArrayList<>(), 0);
+    }
+
+    @Test
+    public void advance_neverExpiresEarly() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 0);
+        wheel.schedule("a", 1005);
+        List<String> expired = new ArrayList<>();
+
+        assertThat(wheel.advance(1004, expired), is(0));
+        assertThat(wheel.advance(1009, expired), is(0));
+        assertThat(wheel.advance(1010, expired), is(1));
+    }
+
+    @Test
+    public void schedule_pastDeadline_expiresOnNextAdvance() {
+        TimerWheel<String> wheel = new TimerWheel<>(10, 1000);
+        wheel.schedule("a", 5);
+        List<String> expired = new ArrayList<>();
+
+        assertThat(wheel.advance(1000, expired), is(1));
+        assertThat(expired, is(Collections.singletonList("a")));
+    }
+
+    @Test
+    public void schedule_replacesDeadline() {
+        TimerWheel<String> wheel = new TimerWheel<>(1, 0);
+        wheel.schedule("a", 10);
+        wheel.schedule("a", 5000);
+        List<String> expired = new ArrayList<>();
+
+        assertThat(wheel.advance(4999, expired), is(0));
+        assertThat(wheel.advance(5000, expired), is(1));
+        assertThat(wheel.size(), is(0));
+    }
+
+    @Test
+    public void cancel() {
+        TimerWheel<String> wheel = new TimerWheel<>(1, 0);
+        wheel.schedule("a", 100_000);
+        wheel.schedule("b", 100_000);
+
+        assertThat(wheel.cancel("a"), is(true));
+        assertThat(wheel.cancel("a"), is(false));
+        List<String> expired = new ArrayList<>();
+        wheel.advance(100_000, expired);
+        assertThat(expired, is(Collections.singletonList("b")));
+    }
+
+    @Test
+    public void advance_cascadesEveryLevel() {
+        TimerWheel<Long> wheel = new TimerWheel<>(1, 255);
+        Random random = new Random(42);
+        List<Long> deadlines = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            long deadline = 255 + (1L << random.nextInt(34)) + random.nextInt(1000);
+            if (!deadlines.contains(deadline)) {
+                deadlines.add(deadline);
+                wheel.schedule(deadline, deadline);
+            }
+        }
+        Collections.sort(deadlines);
+
+        List<Long> expired = new ArrayList<>();
+        for (long deadline : deadlines) {
+            expired.clear();
+            wheel.advance(deadline - 1, expired);
+            assertThat(expired.isEmpty(), is(true));
+            wheel.advance(deadline, expired);
+            assertThat(expired, is(Collections.singletonList(deadline)));
+        }
+        assertThat(wheel.size(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_zeroTick() {
+        new TimerWheel<String>(0, 0);
+    }
+}
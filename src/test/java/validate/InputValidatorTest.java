@@ -1,16 +1,23 @@
 package validate;
 
+import exception.IllegalDepth;
+import exception.IllegalInstrument;
 import exception.IllegalPrice;
 import exception.IllegalQuantity;
 import exception.IllegalUserId;
+import model.QuantityScale;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.*;
+import static validate.InputValidator.validateDepth;
+import static validate.InputValidator.validateInstrument;
 import static validate.InputValidator.validatePrice;
 import static validate.InputValidator.validateQuantity;
+import static validate.InputValidator.validateQuantityUnits;
+import static validate.InputValidator.validateTotalQuantityUnits;
 import static validate.InputValidator.validateUserId;
 
 public class InputValidatorTest {
@@ -60,6 +67,38 @@ public class InputValidatorTest {
         validateQuantity(10.0);
     }
 
+    @Test
+    public void validateQuantity_belowHalfUnit() {
+        exception.expect(IllegalQuantity.class);
+        exception.expectMessage(containsString("Quantity=1.0E-4 not allowed"));
+
+        validateQuantity(0.0001);
+    }
+
+    @Test
+    public void validateQuantity_nan() {
+        exception.expect(IllegalQuantity.class);
+
+        validateQuantity(Double.NaN);
+    }
+
+    @Test
+    public void validateQuantityUnits_zero() {
+        exception.expect(IllegalQuantity.class);
+        exception.expectMessage(containsString("Quantity=0.0 not allowed"));
+
+        validateQuantityUnits(0);
+    }
+
+    @Test
+    public void validateTotalQuantityUnits_aboveSingleOrderLimit() {
+        validateTotalQuantityUnits(QuantityScale.MAX_UNITS * 2);
+
+        exception.expect(IllegalQuantity.class);
+        exception.expectMessage(containsString("Quantity=0.0 not allowed"));
+        validateTotalQuantityUnits(0);
+    }
+
     @Test
     public void validateUserId_blank() {
         exception.expect(IllegalUserId.class);
@@ -75,4 +114,25 @@ public class InputValidatorTest {
 
         validateUserId(null);
     }
+
+    @Test
+    public void validateInstrument_blank() {
+        exception.expect(IllegalInstrument.class);
+        exception.expectMessage(containsString("Instrument=  not allowed"));
+
+        validateInstrument(" ");
+    }
+
+    @Test
+    public void validateDepth_positive() {
+        validateDepth(1);
+    }
+
+    @Test
+    public void validateDepth_negative() {
+        exception.expect(IllegalDepth.class);
+        exception.expectMessage(containsString("Depth=-1 not allowed"));
+
+        validateDepth(-1);
+    }
 }
\ No newline at end of file